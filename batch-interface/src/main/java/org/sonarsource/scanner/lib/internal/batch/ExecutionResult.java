@@ -0,0 +1,90 @@
+/*
+ * SonarScanner Java Library - Batch Interface
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.batch;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of an analysis executed by {@link IsolatedLauncher#execute(Map)}, with measures of where the time went. Measures that are
+ * not available in the JVM are -1.
+ * @since 3.3
+ */
+public final class ExecutionResult {
+
+  private final Throwable failure;
+  private final long wallTimeMs;
+  private final long cpuTimeMs;
+  private final long peakHeapBytes;
+  private final Map<String, Long> phaseDurationsMs;
+
+  /**
+   * @param failure          the exception thrown by the engine, or null if the analysis succeeded
+   * @param phaseDurationsMs durations of the phases of the execution, in the order they were executed
+   */
+  public ExecutionResult(Throwable failure, long wallTimeMs, long cpuTimeMs, long peakHeapBytes, Map<String, Long> phaseDurationsMs) {
+    this.failure = failure;
+    this.wallTimeMs = wallTimeMs;
+    this.cpuTimeMs = cpuTimeMs;
+    this.peakHeapBytes = peakHeapBytes;
+    this.phaseDurationsMs = Collections.unmodifiableMap(new LinkedHashMap<>(phaseDurationsMs));
+  }
+
+  public boolean isSuccess() {
+    return failure == null;
+  }
+
+  /**
+   * @return the exception thrown by the engine, or null if the analysis succeeded
+   */
+  public Throwable getFailure() {
+    return failure;
+  }
+
+  public long getWallTimeMs() {
+    return wallTimeMs;
+  }
+
+  /**
+   * CPU time of the thread that executed the analysis.
+   */
+  public long getCpuTimeMs() {
+    return cpuTimeMs;
+  }
+
+  /**
+   * Maximum heap usage of the JVM sampled during the analysis, so the actual peak can be missed. It includes the memory used by
+   * the rest of the JVM.
+   */
+  public long getPeakHeapBytes() {
+    return peakHeapBytes;
+  }
+
+  public Map<String, Long> getPhaseDurationsMs() {
+    return phaseDurationsMs;
+  }
+
+  @Override
+  public String toString() {
+    return "success=" + isSuccess() + ", wallTimeMs=" + wallTimeMs + ", cpuTimeMs=" + cpuTimeMs + ", peakHeapBytes=" + peakHeapBytes
+      + ", phaseDurationsMs=" + phaseDurationsMs;
+  }
+}
@@ -21,6 +21,35 @@ package org.sonarsource.scanner.lib.internal.batch;
 
 import java.util.Map;
 
+/**
+ * Entry point of the engine, called by the library across the isolated classloader. An analysis is either executed alone by
+ * {@link #execute(Map, LogOutput)}, or in a session: {@link #start(Map, LogOutput)}, then {@link #execute(Map)} for each analysis,
+ * then {@link #stop()}. A session keeps the engine and its plugins loaded between analyses.
+ */
 public interface IsolatedLauncher {
+
+  /**
+   * Execute an analysis on an engine started and stopped for it.
+   */
   void execute(Map<String, String> properties, LogOutput logOutput);
+
+  /**
+   * Start the engine for the analyses of a session. The global properties are used for all of them.
+   * @throws IllegalStateException if a session is already started
+   * @since 3.3
+   */
+  void start(Map<String, String> globalProperties, LogOutput logOutput);
+
+  /**
+   * Execute an analysis on the engine of the session. A failure of the engine is returned in the result instead of being thrown.
+   * @throws IllegalStateException if no session is started
+   * @since 3.3
+   */
+  ExecutionResult execute(Map<String, String> properties);
+
+  /**
+   * Stop the engine of the session. Does nothing if no session is started.
+   * @since 3.3
+   */
+  void stop();
 }
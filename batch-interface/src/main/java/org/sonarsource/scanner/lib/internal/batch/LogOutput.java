@@ -28,6 +28,27 @@ public interface LogOutput {
 
   void log(String formattedMessage, Level level);
 
+  /**
+   * Whether messages of the given level are written. Allows to skip messages that would be discarded, before formatting them.
+   * @since 3.3
+   */
+  default boolean isEnabled(Level level) {
+    return true;
+  }
+
+  /**
+   * Log several messages in a single call. The message {@code formattedMessages[i]} has the level {@code levels[i]}.
+   * @since 3.3
+   */
+  default void log(String[] formattedMessages, Level[] levels) {
+    if (formattedMessages.length != levels.length) {
+      throw new IllegalArgumentException("Messages and levels must have the same length");
+    }
+    for (int i = 0; i < formattedMessages.length; i++) {
+      log(formattedMessages[i], levels[i]);
+    }
+  }
+
   enum Level {
     ERROR, WARN, INFO, DEBUG, TRACE;
   }
@@ -19,7 +19,13 @@
  */
 package org.sonarsource.scanner.lib.internal.batch;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import org.sonar.batch.bootstrapper.Batch;
 
 /**
  * This class is executed within the classloader provided by the server. It contains the installed plugins and
@@ -27,17 +33,156 @@ import java.util.Map;
  */
 public class BatchIsolatedLauncher implements IsolatedLauncher {
   private final BatchFactory factory;
+  private final boolean sessionSupported;
+  // Started batches of the session, and the ones not used by a running analysis
+  private final List<Batch> sessionBatches = new ArrayList<>();
+  private final Deque<Batch> idleBatches = new ArrayDeque<>();
+  private Map<String, String> sessionGlobalProperties;
+  private LogOutput sessionLogOutput;
+  private long pendingStartDurationMs = -1;
 
   public BatchIsolatedLauncher() {
     this(new DefaultBatchFactory());
   }
 
   public BatchIsolatedLauncher(BatchFactory factory) {
+    this(factory, isSessionSupported());
+  }
+
+  BatchIsolatedLauncher(BatchFactory factory, boolean sessionSupported) {
     this.factory = factory;
+    this.sessionSupported = sessionSupported;
+  }
+
+  /**
+   * Recent engines only support the execution of a single analysis per {@link Batch}.
+   */
+  private static boolean isSessionSupported() {
+    try {
+      Batch.class.getMethod("executeTask", Map.class, Object[].class);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
   }
 
   @Override
   public void execute(Map<String, String> properties, LogOutput logOutput) {
     factory.createBatch(properties, logOutput).execute();
   }
+
+  /**
+   * When the engine doesn't support sessions, each analysis of the session is executed on its own {@link Batch}.
+   */
+  @Override
+  public synchronized void start(Map<String, String> globalProperties, LogOutput logOutput) {
+    if (sessionLogOutput != null) {
+      throw new IllegalStateException("Engine is already started");
+    }
+    if (sessionSupported) {
+      long startNanos = System.nanoTime();
+      Batch batch = startBatch(globalProperties, logOutput);
+      sessionBatches.add(batch);
+      idleBatches.push(batch);
+      pendingStartDurationMs = (System.nanoTime() - startNanos) / 1_000_000;
+    }
+    sessionGlobalProperties = globalProperties;
+    sessionLogOutput = logOutput;
+  }
+
+  /**
+   * The duration of the start of the engine is reported as the "start" phase of the first analysis of the session, before the
+   * "analysis" phase. It is not part of the wall time of the result.
+   * <p>
+   * A {@link Batch} is not thread safe, so concurrent analyses never share one: an analysis started while all the batches of the
+   * session are busy starts a new one, with the global properties of the session, and reports its duration as "start" phase.
+   * Batches are reused by the next analyses, and stopped with the session. The logging of the engine is static, but all the
+   * batches log to the output of the session, so the logs of concurrent analyses are only interleaved.
+   */
+  @Override
+  @SuppressWarnings("deprecation")
+  public ExecutionResult execute(Map<String, String> properties) {
+    Batch batch = null;
+    Map<String, String> globalProperties;
+    LogOutput logOutput;
+    Map<String, Long> phaseDurationsMs = new LinkedHashMap<>();
+    synchronized (this) {
+      globalProperties = sessionGlobalProperties;
+      logOutput = sessionLogOutput;
+      if (sessionSupported) {
+        batch = idleBatches.poll();
+      }
+      if (pendingStartDurationMs >= 0) {
+        phaseDurationsMs.put("start", pendingStartDurationMs);
+        pendingStartDurationMs = -1;
+      }
+    }
+    if (logOutput == null) {
+      throw new IllegalStateException("Engine is not started");
+    }
+    if (sessionSupported && batch == null) {
+      long startNanos = System.nanoTime();
+      batch = startBatch(globalProperties, logOutput);
+      phaseDurationsMs.put("start", (System.nanoTime() - startNanos) / 1_000_000);
+      synchronized (this) {
+        sessionBatches.add(batch);
+      }
+    }
+    var meter = ExecutionMeter.start();
+    long analysisStartNanos = System.nanoTime();
+    RuntimeException failure = null;
+    try {
+      if (batch != null) {
+        batch.executeTask(properties);
+      } else {
+        execute(properties, logOutput);
+      }
+    } catch (RuntimeException e) {
+      failure = e;
+    } finally {
+      if (batch != null) {
+        release(batch);
+      }
+    }
+    phaseDurationsMs.put("analysis", (System.nanoTime() - analysisStartNanos) / 1_000_000);
+    return meter.stop(failure, phaseDurationsMs);
+  }
+
+  @SuppressWarnings("deprecation")
+  private Batch startBatch(Map<String, String> globalProperties, LogOutput logOutput) {
+    Batch batch = factory.createBatch(globalProperties, logOutput);
+    batch.start();
+    return batch;
+  }
+
+  private synchronized void release(Batch batch) {
+    if (sessionBatches.contains(batch)) {
+      idleBatches.push(batch);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public synchronized void stop() {
+    RuntimeException failure = null;
+    for (Batch batch : sessionBatches) {
+      try {
+        batch.stop();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    sessionBatches.clear();
+    idleBatches.clear();
+    sessionGlobalProperties = null;
+    sessionLogOutput = null;
+    pendingStartDurationMs = -1;
+    if (failure != null) {
+      throw failure;
+    }
+  }
 }
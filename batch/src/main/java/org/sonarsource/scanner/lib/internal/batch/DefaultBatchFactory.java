@@ -19,6 +19,7 @@
  */
 package org.sonarsource.scanner.lib.internal.batch;
 
+import java.util.Arrays;
 import java.util.Map;
 import org.sonar.batch.bootstrapper.Batch;
 import org.sonar.batch.bootstrapper.EnvironmentInformation;
@@ -26,6 +27,9 @@ import org.sonar.batch.bootstrapper.EnvironmentInformation;
 class DefaultBatchFactory implements BatchFactory {
   private static final String SCANNER_APP_KEY = "sonar.scanner.app";
   private static final String SCANNER_APP_VERSION_KEY = "sonar.scanner.appVersion";
+  private static final LogOutput.Level[] LEVELS = Arrays.stream(org.sonar.batch.bootstrapper.LogOutput.Level.values())
+    .map(level -> LogOutput.Level.valueOf(level.name()))
+    .toArray(LogOutput.Level[]::new);
 
   @Override
   public Batch createBatch(Map<String, String> properties, final LogOutput logOutput) {
@@ -33,7 +37,19 @@ class DefaultBatchFactory implements BatchFactory {
     return Batch.builder()
       .setEnvironment(env)
       .setGlobalProperties(properties)
-      .setLogOutput((formattedMessage, level) -> logOutput.log(formattedMessage, LogOutput.Level.valueOf(level.name())))
+      .setLogOutput(adapt(logOutput))
       .build();
   }
+
+  /**
+   * Messages of the levels not enabled by the output are dropped before calling it.
+   */
+  static org.sonar.batch.bootstrapper.LogOutput adapt(LogOutput logOutput) {
+    return (formattedMessage, level) -> {
+      LogOutput.Level scannerLevel = LEVELS[level.ordinal()];
+      if (logOutput.isEnabled(scannerLevel)) {
+        logOutput.log(formattedMessage, scannerLevel);
+      }
+    };
+  }
 }
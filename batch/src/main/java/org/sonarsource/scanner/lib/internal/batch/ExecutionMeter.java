@@ -0,0 +1,89 @@
+/*
+ * SonarScanner Java Library - Batch
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.batch;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the wall time, the CPU time of the current thread and the peak heap usage of an execution.
+ * <p>
+ * The heap usage is sampled by a daemon thread during the execution, so the peak is approximate. The peak usage tracked by the
+ * memory pools of the JVM is not used, because resetting it would affect all the users of the JVM.
+ */
+class ExecutionMeter {
+  private static final long HEAP_SAMPLING_PERIOD_MS = 100;
+
+  private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+  private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+  private final AtomicLong peakHeapBytes = new AtomicLong();
+  private final Thread heapSampler;
+  private final long startNanos;
+  private final long startCpuNanos;
+
+  private ExecutionMeter() {
+    sampleHeap();
+    heapSampler = new Thread(this::sampleHeapUntilInterrupted, "scanner-heap-sampler");
+    heapSampler.setDaemon(true);
+    heapSampler.start();
+    startCpuNanos = cpuTimeNanos();
+    startNanos = System.nanoTime();
+  }
+
+  static ExecutionMeter start() {
+    return new ExecutionMeter();
+  }
+
+  ExecutionResult stop(Throwable failure, Map<String, Long> phaseDurationsMs) {
+    long wallTimeMs = (System.nanoTime() - startNanos) / 1_000_000;
+    long cpuNanos = cpuTimeNanos();
+    long cpuTimeMs = startCpuNanos >= 0 && cpuNanos >= 0 ? ((cpuNanos - startCpuNanos) / 1_000_000) : -1;
+    heapSampler.interrupt();
+    sampleHeap();
+    return new ExecutionResult(failure, wallTimeMs, cpuTimeMs, peakHeapBytes.get(), phaseDurationsMs);
+  }
+
+  private long cpuTimeNanos() {
+    if (!threadBean.isCurrentThreadCpuTimeSupported() || !threadBean.isThreadCpuTimeEnabled()) {
+      return -1;
+    }
+    return threadBean.getCurrentThreadCpuTime();
+  }
+
+  private void sampleHeapUntilInterrupted() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        Thread.sleep(HEAP_SAMPLING_PERIOD_MS);
+        sampleHeap();
+      }
+    } catch (InterruptedException e) {
+      // Execution is done
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void sampleHeap() {
+    long used = memoryBean.getHeapMemoryUsage().getUsed();
+    peakHeapBytes.accumulateAndGet(used, Math::max);
+  }
+}
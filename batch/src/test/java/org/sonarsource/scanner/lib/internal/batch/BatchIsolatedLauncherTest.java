@@ -19,14 +19,26 @@
  */
 package org.sonarsource.scanner.lib.internal.batch;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.batch.bootstrapper.Batch;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -58,4 +70,126 @@ public class BatchIsolatedLauncherTest {
     verifyNoMoreInteractions(factory);
   }
 
+  @Test
+  public void session_reuses_batch() {
+    when(factory.createBatch(any(Map.class), any(LogOutput.class))).thenReturn(batch);
+    Map<String, String> global = new HashMap<>();
+    Map<String, String> task1 = new HashMap<>();
+    task1.put("sonar.projectKey", "p1");
+    Map<String, String> task2 = new HashMap<>();
+    task2.put("sonar.projectKey", "p2");
+
+    launcher.start(global, (m, l) -> {
+    });
+    ExecutionResult result1 = launcher.execute(task1);
+    ExecutionResult result2 = launcher.execute(task2);
+    launcher.stop();
+
+    assertThat(result1.isSuccess()).isTrue();
+    assertThat(result1.getPhaseDurationsMs()).containsOnlyKeys("start", "analysis");
+    assertThat(result2.getPhaseDurationsMs()).containsOnlyKeys("analysis");
+    assertThat(result2.getWallTimeMs()).isNotNegative();
+    assertThat(result2.getPeakHeapBytes()).isPositive();
+    launcher.stop();
+
+    verify(factory, times(1)).createBatch(any(Map.class), any(LogOutput.class));
+    verify(batch).start();
+    verify(batch).executeTask(task1);
+    verify(batch).executeTask(task2);
+    verify(batch).stop();
+    verifyNoMoreInteractions(batch);
+  }
+
+  @Test
+  public void session_must_be_started_once() {
+    when(factory.createBatch(any(Map.class), any(LogOutput.class))).thenReturn(batch);
+    Map<String, String> props = new HashMap<>();
+
+    assertThatThrownBy(() -> launcher.execute(props))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Engine is not started");
+
+    launcher.start(props, (m, l) -> {
+    });
+    assertThatThrownBy(() -> launcher.start(props, (m, l) -> {
+    }))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Engine is already started");
+  }
+
+  @Test
+  public void session_creates_batch_per_execution_when_not_supported_by_engine() {
+    when(factory.createBatch(any(Map.class), any(LogOutput.class))).thenReturn(batch);
+    launcher = new BatchIsolatedLauncher(factory, false);
+    Map<String, String> props = new HashMap<>();
+
+    launcher.start(props, (m, l) -> {
+    });
+    launcher.execute(props);
+    launcher.execute(props);
+    launcher.stop();
+
+    verify(factory, times(2)).createBatch(any(Map.class), any(LogOutput.class));
+    verify(batch, times(2)).execute();
+    verifyNoMoreInteractions(batch);
+  }
+
+  @Test
+  public void session_executes_concurrent_analyses_on_separate_batches() throws Exception {
+    int threads = 4;
+    // Only opens when all the analyses run at the same time
+    CyclicBarrier barrier = new CyclicBarrier(threads);
+    List<Batch> batches = Collections.synchronizedList(new ArrayList<>());
+    when(factory.createBatch(any(Map.class), any(LogOutput.class))).thenAnswer(invocation -> {
+      Batch newBatch = mock(Batch.class);
+      doAnswer(i -> {
+        barrier.await(10, TimeUnit.SECONDS);
+        return newBatch;
+      }).when(newBatch).executeTask(any(Map.class));
+      batches.add(newBatch);
+      return newBatch;
+    });
+    Map<String, String> props = new HashMap<>();
+    launcher.start(props, (m, l) -> {
+    });
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<ExecutionResult>> results = new ArrayList<>();
+    try {
+      for (int i = 0; i < threads; i++) {
+        results.add(executor.submit(() -> launcher.execute(props)));
+      }
+      for (Future<ExecutionResult> result : results) {
+        ExecutionResult executionResult = result.get(30, TimeUnit.SECONDS);
+        assertThat(executionResult.getFailure()).isNull();
+        assertThat(executionResult.getPhaseDurationsMs()).containsKey("start");
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    launcher.stop();
+
+    assertThat(batches).hasSize(threads);
+    for (Batch b : batches) {
+      verify(b).start();
+      verify(b).stop();
+    }
+  }
+
+  @Test
+  public void session_returns_failure_of_engine() {
+    RuntimeException failure = new IllegalStateException("Analysis failed");
+    when(factory.createBatch(any(Map.class), any(LogOutput.class))).thenReturn(batch);
+    when(batch.executeTask(any(Map.class))).thenThrow(failure);
+    Map<String, String> props = new HashMap<>();
+
+    launcher.start(props, (m, l) -> {
+    });
+    ExecutionResult result = launcher.execute(props);
+
+    assertThat(result.isSuccess()).isFalse();
+    assertThat(result.getFailure()).isSameAs(failure);
+    assertThat(result.getPhaseDurationsMs()).containsKey("analysis");
+  }
+
 }
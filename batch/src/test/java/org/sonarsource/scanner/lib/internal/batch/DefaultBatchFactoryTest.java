@@ -19,7 +19,9 @@
  */
 package org.sonarsource.scanner.lib.internal.batch;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.junit.Test;
 import org.sonar.batch.bootstrapper.Batch;
@@ -43,4 +45,27 @@ public class DefaultBatchFactoryTest {
 
     assertThat(batch).isNotNull();
   }
+
+  @Test
+  public void should_only_log_enabled_levels() {
+    List<String> logs = new ArrayList<>();
+    LogOutput logOutput = new LogOutput() {
+      @Override
+      public void log(String formattedMessage, Level level) {
+        logs.add(level + " " + formattedMessage);
+      }
+
+      @Override
+      public boolean isEnabled(Level level) {
+        return level != Level.DEBUG;
+      }
+    };
+
+    org.sonar.batch.bootstrapper.LogOutput adapted = DefaultBatchFactory.adapt(logOutput);
+    adapted.log("info", org.sonar.batch.bootstrapper.LogOutput.Level.INFO);
+    adapted.log("debug", org.sonar.batch.bootstrapper.LogOutput.Level.DEBUG);
+    adapted.log("error", org.sonar.batch.bootstrapper.LogOutput.Level.ERROR);
+
+    assertThat(logs).containsExactly("INFO info", "ERROR error");
+  }
 }
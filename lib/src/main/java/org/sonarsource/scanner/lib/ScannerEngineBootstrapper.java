@@ -22,22 +22,32 @@ package org.sonarsource.scanner.lib;
 import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.BootstrapMetrics;
 import org.sonarsource.scanner.lib.internal.FailedBootstrap;
 import org.sonarsource.scanner.lib.internal.InternalProperties;
 import org.sonarsource.scanner.lib.internal.MessageException;
 import org.sonarsource.scanner.lib.internal.SuccessfulBootstrap;
+import org.sonarsource.scanner.lib.internal.cache.ArtifactSource;
+import org.sonarsource.scanner.lib.internal.cache.DirectoryArtifactSource;
 import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.facade.forked.ArtifactRefresher;
 import org.sonarsource.scanner.lib.internal.facade.forked.NewScannerEngineFacade;
+import org.sonarsource.scanner.lib.internal.facade.forked.PluginPrefetcher;
 import org.sonarsource.scanner.lib.internal.facade.forked.ScannerEngineLauncherFactory;
 import org.sonarsource.scanner.lib.internal.facade.inprocess.InProcessScannerEngineFacade;
 import org.sonarsource.scanner.lib.internal.facade.inprocess.IsolatedLauncherFactory;
@@ -45,6 +55,8 @@ import org.sonarsource.scanner.lib.internal.facade.simulation.SimulationScannerE
 import org.sonarsource.scanner.lib.internal.http.HttpConfig;
 import org.sonarsource.scanner.lib.internal.http.HttpException;
 import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
+import org.sonarsource.scanner.lib.internal.http.SslFactoryLoader;
+import org.sonarsource.scanner.lib.internal.http.UrlTemplateArtifactSource;
 import org.sonarsource.scanner.lib.internal.http.ssl.CertificateStore;
 import org.sonarsource.scanner.lib.internal.util.ArchResolver;
 import org.sonarsource.scanner.lib.internal.util.OsResolver;
@@ -81,6 +93,7 @@ public class ScannerEngineBootstrapper {
   private static final String SONARCLOUD_REST_API = "https://api.sonarcloud.io";
   static final String SQ_VERSION_NEW_BOOTSTRAPPING = "10.6";
   static final String SQ_VERSION_TOKEN_AUTHENTICATION = "10.0";
+  private static final Duration DEFAULT_BACKGROUND_REFRESH_TIMEOUT = Duration.ofSeconds(5);
 
   private final IsolatedLauncherFactory launcherFactory;
   private final ScannerEngineLauncherFactory scannerEngineLauncherFactory;
@@ -125,13 +138,17 @@ public class ScannerEngineBootstrapper {
     if (LOG.isDebugEnabled()) {
       LOG.debug("Scanner max available memory: {}", FileUtils.byteCountToDisplaySize(Runtime.getRuntime().maxMemory()));
     }
-    initBootstrapDefaultValues();
+    var metrics = new BootstrapMetrics();
+    initServerDefaultValues();
+    var sonarUserHome = resolveSonarUserHome(bootstrapProperties);
+    var httpConfig = new HttpConfig(Map.copyOf(bootstrapProperties), sonarUserHome, system);
+    var isSimulation = bootstrapProperties.containsKey(InternalProperties.SCANNER_DUMP_TO_FILE);
+    // Loading the SSL material can be slow, so start it as soon as possible to overlap with the local bootstrap work
+    var sslFactoryLoader = isSimulation ? null : SslFactoryLoader.start(httpConfig);
+    metrics.time("platformDetection", this::initPlatformDefaultValues);
     var immutableProperties = Map.copyOf(bootstrapProperties);
-    var sonarUserHome = resolveSonarUserHome(immutableProperties);
-    var httpConfig = new HttpConfig(immutableProperties, sonarUserHome, system);
     var isSonarCloud = isSonarCloud(immutableProperties);
-    var isSimulation = immutableProperties.containsKey(InternalProperties.SCANNER_DUMP_TO_FILE);
-    var fileCache = FileCache.create(sonarUserHome);
+    var fileCache = metrics.time("fileCache", () -> FileCache.create(sonarUserHome).withVerifyOnHit(loadCacheVerificationRate(immutableProperties)));
 
     if (isSimulation) {
       var serverVersion = immutableProperties.getOrDefault(InternalProperties.SCANNER_VERSION_SIMULATION, "9.9");
@@ -139,10 +156,14 @@ public class ScannerEngineBootstrapper {
     }
 
     // No HTTP call should be made before this point
+    var successful = false;
     try {
-      scannerHttpClient.init(httpConfig);
+      scannerHttpClient.init(httpConfig, sslFactoryLoader, metrics);
+      recordSslMetrics(metrics, sslFactoryLoader);
+      scannerHttpClient.warmUpConnections();
+      var fileCacheWithSources = fileCache.withArtifactSources(createArtifactSources(immutableProperties, scannerHttpClient));
 
-      var serverVersion = !isSonarCloud ? getServerVersion(scannerHttpClient) : null;
+      var serverVersion = !isSonarCloud ? metrics.time("serverVersion", () -> getServerVersion(scannerHttpClient)) : null;
 
       if (!isSonarCloud && VersionUtils.isAtLeastIgnoringQualifier(serverVersion, SQ_VERSION_TOKEN_AUTHENTICATION) && Objects.nonNull(httpConfig.getLogin())) {
         LOG.warn("Use of '{}' property has been deprecated in favor of '{}' (or the env variable alternative '{}'). Please use the latter when passing a token.", SONAR_LOGIN,
@@ -151,22 +172,87 @@ public class ScannerEngineBootstrapper {
 
       ScannerEngineFacade scannerFacade;
       if (isSonarCloud || VersionUtils.isAtLeastIgnoringQualifier(serverVersion, SQ_VERSION_NEW_BOOTSTRAPPING)) {
-        var launcher = scannerEngineLauncherFactory.createLauncher(scannerHttpClient, fileCache, immutableProperties);
+        // Plugins are downloaded in background, while the JRE and the scanner engine are provisioned
+        var pluginPrefetch = prefetchPlugins(immutableProperties, scannerHttpClient, fileCache);
+        var launcher = metrics.time("engineProvisioning", () -> scannerEngineLauncherFactory.createLauncher(scannerHttpClient, fileCacheWithSources, immutableProperties));
+        metrics.time("pluginPrefetchWait", () -> {
+          pluginPrefetch.join();
+        });
 
         var adaptedProperties = adaptSslPropertiesToScannerProperties(immutableProperties, httpConfig);
 
-        scannerFacade = new NewScannerEngineFacade(adaptedProperties, launcher, isSonarCloud, serverVersion);
+        scannerFacade = new NewScannerEngineFacade(adaptedProperties, launcher, isSonarCloud, serverVersion,
+          createArtifactRefresher(immutableProperties, scannerHttpClient, fileCacheWithSources));
       } else {
-        var launcher = launcherFactory.createLauncher(scannerHttpClient, fileCache);
+        var preloadClasses = Boolean.parseBoolean(immutableProperties.get(ScannerProperties.SCANNER_PRELOAD_ENGINE_CLASSES));
+        var launcher = metrics.time("engineProvisioning", () -> launcherFactory.createLauncher(scannerHttpClient, fileCacheWithSources, preloadClasses));
         var adaptedProperties = adaptDeprecatedPropertiesForInProcessBootstrapping(immutableProperties, httpConfig);
         scannerFacade = new InProcessScannerEngineFacade(adaptedProperties, launcher, false, serverVersion);
       }
 
       logServerType(scannerFacade);
-      return new SuccessfulBootstrap(scannerFacade);
+      successful = true;
+      return new SuccessfulBootstrap(scannerFacade, scannerHttpClient::close);
     } catch (MessageException e) {
       return handleException(e);
+    } finally {
+      if (!successful) {
+        scannerHttpClient.close();
+      }
+      metrics.log();
+    }
+  }
+
+  private static CompletableFuture<Void> prefetchPlugins(Map<String, String> properties, ScannerHttpClient scannerHttpClient, FileCache fileCache) {
+    if (!Boolean.parseBoolean(properties.get(ScannerProperties.SCANNER_PREFETCH_PLUGINS))) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return new PluginPrefetcher(scannerHttpClient, fileCache).prefetchAsync();
+  }
+
+  static double loadCacheVerificationRate(Map<String, String> properties) {
+    var value = properties.get(ScannerProperties.SCANNER_CACHE_VERIFICATION_RATE);
+    if (StringUtils.isBlank(value)) {
+      return 0;
+    }
+    try {
+      return Double.parseDouble(value.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(ScannerProperties.SCANNER_CACHE_VERIFICATION_RATE + " is not a valid number: " + value, e);
+    }
+  }
+
+  @Nullable
+  static ArtifactRefresher createArtifactRefresher(Map<String, String> properties, ScannerHttpClient scannerHttpClient, FileCache fileCache) {
+    if (!Boolean.parseBoolean(properties.get(ScannerProperties.SCANNER_BACKGROUND_REFRESH))) {
+      return null;
+    }
+    var timeoutValue = properties.get(ScannerProperties.SCANNER_BACKGROUND_REFRESH_TIMEOUT);
+    var timeout = timeoutValue != null ? HttpConfig.parseDurationProperty(timeoutValue, ScannerProperties.SCANNER_BACKGROUND_REFRESH_TIMEOUT)
+      : DEFAULT_BACKGROUND_REFRESH_TIMEOUT;
+    return new ArtifactRefresher(scannerHttpClient, fileCache, properties, timeout);
+  }
+
+  static List<ArtifactSource> createArtifactSources(Map<String, String> properties, ScannerHttpClient scannerHttpClient) {
+    var value = properties.get(ScannerProperties.SCANNER_ARTIFACT_SOURCES);
+    if (StringUtils.isBlank(value)) {
+      return List.of();
     }
+    return Arrays.stream(value.split(","))
+      .map(String::trim)
+      .filter(StringUtils::isNotBlank)
+      .map(location -> location.matches("(?i)^https?://.*")
+        ? new UrlTemplateArtifactSource(location, scannerHttpClient)
+        : new DirectoryArtifactSource(Paths.get(location)))
+      .collect(Collectors.toList());
+  }
+
+  private static void recordSslMetrics(BootstrapMetrics metrics, SslFactoryLoader sslFactoryLoader) {
+    var loadingTime = sslFactoryLoader.getLoadingTime();
+    if (loadingTime != null) {
+      metrics.record("sslLoading", loadingTime);
+    }
+    metrics.record("sslWaiting", sslFactoryLoader.getWaitingTime());
   }
 
   private static ScannerEngineBootstrapResult handleException(MessageException e) {
@@ -295,10 +381,13 @@ public class ScannerEngineBootstrapper {
     return e.getMessage();
   }
 
-  private void initBootstrapDefaultValues() {
+  private void initServerDefaultValues() {
     setBootstrapPropertyIfNotAlreadySet(ScannerProperties.HOST_URL, getSonarCloudUrl());
     setBootstrapPropertyIfNotAlreadySet(ScannerProperties.API_BASE_URL,
       isSonarCloud(bootstrapProperties) ? SONARCLOUD_REST_API : (StringUtils.removeEnd(bootstrapProperties.get(ScannerProperties.HOST_URL), "/") + "/api/v2"));
+  }
+
+  private void initPlatformDefaultValues() {
     if (!bootstrapProperties.containsKey(SCANNER_OS)) {
       setBootstrapProperty(SCANNER_OS, new OsResolver(system, new Paths2()).getOs().name().toLowerCase(Locale.ENGLISH));
     }
@@ -88,6 +88,76 @@ public final class ScannerProperties {
   public static final String SONAR_SCANNER_TRUSTSTORE_PASSWORD = "sonar.scanner.truststorePassword";
   public static final String SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE = "sonar.scanner.skipSystemTruststore";
   public static final String SONAR_SCANNER_SKIP_JVM_SSL_CONFIG = "sonar.scanner.skipJvmSslConfig";
+  /**
+   * Maximum time to wait for the OS trusted certificates to be loaded. Once elapsed, only the JVM/default trust material is used.
+   */
+  public static final String SONAR_SCANNER_SYSTEM_TRUSTSTORE_TIMEOUT = "sonar.scanner.systemTruststoreTimeout";
+  /**
+   * HTTP protocol used to talk to the server: {@code http2} (default, negotiated during the TLS handshake, with fallback to HTTP/1.1),
+   * {@code http1} (always HTTP/1.1) or {@code h2c} (HTTP/2 with prior knowledge for the {@code http://} URLs of the server, and
+   * same as {@code http2} for the other URLs).
+   */
+  public static final String SONAR_SCANNER_HTTP_PROTOCOL = "sonar.scanner.httpProtocol";
+  /**
+   * Comma-separated list of URLs of other nodes equivalent to {@link #HOST_URL}. Web API calls go to the fastest reachable one,
+   * and fail over to the others.
+   */
+  public static final String SONAR_SCANNER_ALTERNATIVE_HOST_URLS = "sonar.scanner.alternativeHostUrls";
+  /**
+   * Comma-separated list of URLs of other nodes equivalent to {@link #API_BASE_URL}. REST API calls go to the fastest reachable one,
+   * and fail over to the others.
+   */
+  public static final String SONAR_SCANNER_ALTERNATIVE_API_BASE_URLS = "sonar.scanner.alternativeApiBaseUrls";
+  /**
+   * Comma-separated list of mirrors for the artifacts (JRE, scanner engine) that the server asks to download from an external URL.
+   * The scheme, host and port of the external URL are replaced by the mirror URL, the path is kept. The fastest reachable mirror
+   * is used first, and the original URL is used as a fallback.
+   */
+  public static final String SONAR_SCANNER_DOWNLOAD_MIRRORS = "sonar.scanner.downloadMirrors";
+  /**
+   * HTTP client implementation: {@code okhttp} (default) or {@code jdk}.
+   */
+  public static final String SONAR_SCANNER_HTTP_TRANSPORT = "sonar.scanner.httpTransport";
+  /**
+   * Run the callbacks of the {@code jdk} HTTP client on virtual threads, when the JVM supports them (Java 21+).
+   */
+  public static final String SONAR_SCANNER_HTTP_VIRTUAL_THREADS = "sonar.scanner.httpVirtualThreads";
+  /**
+   * Maximum download speed of this process, in KB/s. Only applies to the download of files (JRE, scanner engine, plugins).
+   */
+  public static final String SONAR_SCANNER_DOWNLOAD_RATE_LIMIT = "sonar.scanner.downloadRateLimit";
+  /**
+   * Maximum download speed shared by all the scanners of this machine using the same {@link #SONAR_USER_HOME}, in KB/s.
+   */
+  public static final String SONAR_SCANNER_HOST_DOWNLOAD_RATE_LIMIT = "sonar.scanner.hostDownloadRateLimit";
+  /**
+   * Maximum number of idle connections kept in the HTTP connection pool.
+   */
+  public static final String SONAR_SCANNER_CONNECTION_POOL_SIZE = "sonar.scanner.connectionPoolSize";
+  /**
+   * How long idle connections are kept in the HTTP connection pool.
+   */
+  public static final String SONAR_SCANNER_CONNECTION_KEEP_ALIVE = "sonar.scanner.connectionKeepAlive";
+  /**
+   * Maximum number of times a failed HTTP GET is retried, when the failure is transient (connection failure, 429, 502, 503 or 504).
+   */
+  public static final String SONAR_SCANNER_HTTP_MAX_RETRIES = "sonar.scanner.httpMaxRetries";
+  /**
+   * Maximum number of retries for all the HTTP calls made during the bootstrap.
+   */
+  public static final String SONAR_SCANNER_HTTP_RETRY_BUDGET = "sonar.scanner.httpRetryBudget";
+  /**
+   * Delay before the first retry. The delay is doubled for each subsequent retry, with some random jitter.
+   */
+  public static final String SONAR_SCANNER_HTTP_RETRY_INITIAL_BACKOFF = "sonar.scanner.httpRetryInitialBackoff";
+  /**
+   * Maximum delay between two retries. A server asking to retry later than that (using the Retry-After header) is not retried.
+   */
+  public static final String SONAR_SCANNER_HTTP_RETRY_MAX_BACKOFF = "sonar.scanner.httpRetryMaxBackoff";
+  /**
+   * Number of consecutive failures after which a host is considered down, and calls to it fail immediately for a while. 0 to disable.
+   */
+  public static final String SONAR_SCANNER_HTTP_CIRCUIT_BREAKER_THRESHOLD = "sonar.scanner.httpCircuitBreakerThreshold";
   /**
    * Skip analysis.
    */
@@ -118,4 +188,48 @@ public final class ScannerProperties {
    * Java options to be used by the scanner-engine.
    */
   public static final String SCANNER_JAVA_OPTS = "sonar.scanner.javaOpts";
+
+  /**
+   * Comma-separated list of locations where the JRE and the scanner engine are looked for before downloading them from the server.
+   * Each location is either a directory (local or network share), or the URL template of an HTTP artifact repository, where
+   * {@code {filename}} and {@code {hash}} are replaced.
+   */
+  public static final String SCANNER_ARTIFACT_SOURCES = "sonar.scanner.artifactSources";
+
+  /**
+   * Flag to send the server calls of the scanner-engine through a local caching proxy. The downloads of plugins, and the settings,
+   * quality profiles and rules, are reused by all the analyses run with the same bootstrapped scanner engine, unless the server
+   * forbids it. The cache is kept in memory, with a bounded size. Other calls are not cached.
+   */
+  public static final String SCANNER_ENGINE_CACHING_PROXY = "sonar.scanner.engineCachingProxy";
+
+  /**
+   * Flag to download the plugins installed on the server that are required for all languages into the cache during the JRE and
+   * scanner-engine provisioning, instead of letting the scanner-engine download them after it has started.
+   */
+  public static final String SCANNER_PREFETCH_PLUGINS = "sonar.scanner.prefetchPlugins";
+
+  /**
+   * Flag to check, once the analysis is done, whether the server publishes a new scanner-engine or JRE, and download them in
+   * background, so that the next runs find them in the cache.
+   */
+  public static final String SCANNER_BACKGROUND_REFRESH = "sonar.scanner.backgroundRefresh";
+
+  /**
+   * How long closing the scanner engine waits for the background refresh to complete before cancelling it, in seconds. Default is
+   * 5 seconds, to be increased if the new JRE or scanner engine can't be downloaded in that time.
+   */
+  public static final String SCANNER_BACKGROUND_REFRESH_TIMEOUT = "sonar.scanner.backgroundRefreshTimeout";
+
+  /**
+   * Ratio of the cache hits, between 0 and 1, for which the hash of the cached file is verified before it is used. Corrupted files
+   * are removed from the cache and downloaded again. Default is 0, meaning no verification.
+   */
+  public static final String SCANNER_CACHE_VERIFICATION_RATE = "sonar.scanner.cacheVerificationRate";
+
+  /**
+   * Flag to record the classes loaded by the in-process scanner engine of old SonarQube versions, and to preload them on background
+   * threads in the next analyses with the same scanner engine.
+   */
+  public static final String SCANNER_PRELOAD_ENGINE_CLASSES = "sonar.scanner.preloadEngineClasses";
 }
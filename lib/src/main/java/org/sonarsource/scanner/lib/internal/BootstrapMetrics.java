@@ -0,0 +1,70 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the duration of the different bootstrap steps. Steps can be recorded from any thread.
+ */
+public class BootstrapMetrics {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BootstrapMetrics.class);
+
+  private final Map<String, Duration> durations = new LinkedHashMap<>();
+
+  public synchronized void record(String step, Duration duration) {
+    durations.merge(step, duration, Duration::plus);
+  }
+
+  public <T> T time(String step, Supplier<T> supplier) {
+    long start = System.nanoTime();
+    try {
+      return supplier.get();
+    } finally {
+      record(step, Duration.ofNanos(System.nanoTime() - start));
+    }
+  }
+
+  public void time(String step, Runnable runnable) {
+    time(step, () -> {
+      runnable.run();
+      return null;
+    });
+  }
+
+  public synchronized Map<String, Duration> getDurations() {
+    return Map.copyOf(durations);
+  }
+
+  public synchronized void log() {
+    if (LOG.isDebugEnabled() && !durations.isEmpty()) {
+      LOG.debug("Bootstrap timings: {}", durations.entrySet().stream()
+        .map(e -> e.getKey() + "=" + e.getValue().toMillis() + "ms")
+        .collect(Collectors.joining(", ")));
+    }
+  }
+}
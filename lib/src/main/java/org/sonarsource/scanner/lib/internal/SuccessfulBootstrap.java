@@ -25,9 +25,19 @@ import org.sonarsource.scanner.lib.ScannerEngineFacade;
 public class SuccessfulBootstrap implements ScannerEngineBootstrapResult {
 
   private final ScannerEngineFacade facade;
+  private final AutoCloseable resources;
 
   public SuccessfulBootstrap(ScannerEngineFacade facade) {
+    this(facade, () -> {
+    });
+  }
+
+  /**
+   * @param resources closed after the facade, as they can be used until the facade is closed
+   */
+  public SuccessfulBootstrap(ScannerEngineFacade facade, AutoCloseable resources) {
     this.facade = facade;
+    this.resources = resources;
   }
 
   @Override
@@ -42,6 +52,10 @@ public class SuccessfulBootstrap implements ScannerEngineBootstrapResult {
 
   @Override
   public void close() throws Exception {
-    facade.close();
+    try {
+      facade.close();
+    } finally {
+      resources.close();
+    }
   }
 }
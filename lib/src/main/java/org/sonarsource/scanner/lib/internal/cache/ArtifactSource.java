@@ -0,0 +1,38 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Alternative location of the artifacts that the {@link FileCache} would otherwise download from the server. Sources are consulted
+ * in order, and the artifacts they provide are checked against the expected hash before being cached.
+ */
+public interface ArtifactSource {
+
+  /**
+   * Copy the artifact with the given filename and hash to the target file.
+   *
+   * @return false if this source doesn't have the artifact
+   * @throws IOException if the source has the artifact but failed to provide it
+   */
+  boolean fetch(String filename, String hash, Path toFile) throws IOException;
+}
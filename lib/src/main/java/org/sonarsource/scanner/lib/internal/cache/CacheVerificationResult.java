@@ -0,0 +1,66 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.cache;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of the verification of a whole cache.
+ */
+public class CacheVerificationResult {
+  private int verifiedCount;
+  private int skippedCount;
+  private final List<Path> quarantinedFiles = new ArrayList<>();
+
+  void add(Path file, CacheVerifier.Status status) {
+    switch (status) {
+      case SKIPPED:
+        skippedCount++;
+        break;
+      case QUARANTINED:
+        verifiedCount++;
+        quarantinedFiles.add(file);
+        break;
+      case VALID:
+      default:
+        verifiedCount++;
+    }
+  }
+
+  public int getVerifiedCount() {
+    return verifiedCount;
+  }
+
+  /**
+   * Files whose hash could not be verified, because the algorithm could not be deduced from their hash
+   */
+  public int getSkippedCount() {
+    return skippedCount;
+  }
+
+  /**
+   * Corrupted files, that were removed from the cache
+   */
+  public List<Path> getQuarantinedFiles() {
+    return List.copyOf(quarantinedFiles);
+  }
+}
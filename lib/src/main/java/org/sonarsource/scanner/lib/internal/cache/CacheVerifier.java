@@ -0,0 +1,195 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+/**
+ * Check that the files of the cache still have the hash they are stored under, and move the corrupted ones to a quarantine
+ * directory, so that they are downloaded again.
+ */
+class CacheVerifier {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CacheVerifier.class);
+
+  static final String QUARANTINE_DIR_NAME = "_quarantine";
+  private static final String LOCK_FILE_SUFFIX = ".lock";
+
+  private final Path cacheDir;
+  private final Path quarantineDir;
+  private final FileHashes hashes;
+
+  CacheVerifier(Path cacheDir, FileHashes hashes) {
+    this.cacheDir = cacheDir;
+    this.quarantineDir = cacheDir.resolve(QUARANTINE_DIR_NAME);
+    this.hashes = hashes;
+  }
+
+  /**
+   * The cache only knows entries by their hash, so the algorithm is deduced from the length of the hash.
+   */
+  static Optional<String> hashAlgorithmOf(String hash) {
+    switch (hash.length()) {
+      case 32:
+        return Optional.of("MD5");
+      case 40:
+        return Optional.of("SHA-1");
+      case 64:
+        return Optional.of("SHA-256");
+      case 128:
+        return Optional.of("SHA-512");
+      default:
+        return Optional.empty();
+    }
+  }
+
+  /**
+   * @return true if the file has the expected hash. Otherwise, the file is moved to the quarantine directory.
+   */
+  boolean verify(Path cachedFile, String hash, String hashAlgorithm) {
+    String actualHash;
+    try {
+      actualHash = hashes.of(cachedFile.toFile(), hashAlgorithm);
+    } catch (IllegalStateException e) {
+      LOG.warn("Unable to verify cached file {}: {}", cachedFile, e.getMessage());
+      return true;
+    }
+    if (hash.equalsIgnoreCase(actualHash)) {
+      return true;
+    }
+    var quarantinedFile = quarantine(cachedFile, hash);
+    LOG.warn("Cached file {} is corrupted: it was expected to have hash {} but has hash {}. It was moved to {} and will be downloaded again.",
+      cachedFile, hash, actualHash, quarantinedFile);
+    return false;
+  }
+
+  private Path quarantine(Path cachedFile, String hash) {
+    var quarantinedFile = quarantineDir.resolve(hash).resolve(cachedFile.getFileName());
+    try {
+      Files.createDirectories(quarantinedFile.getParent());
+      Files.move(cachedFile, quarantinedFile, StandardCopyOption.REPLACE_EXISTING);
+      return quarantinedFile;
+    } catch (IOException e) {
+      LOG.debug("Unable to move {} to quarantine, deleting it: {}", cachedFile, e.getMessage());
+    }
+    try {
+      Files.deleteIfExists(cachedFile);
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to remove corrupted cached file " + cachedFile, e);
+    }
+    return cachedFile;
+  }
+
+  /**
+   * Verify all the entries of the cache, in both the flat and the sharded layouts.
+   */
+  CacheVerificationResult verifyAll(int parallelism) {
+    var entries = listEntries();
+    var executor = Executors.newFixedThreadPool(Math.max(1, parallelism), Utils.daemonThreadFactory("sonar-scanner-cache-verifier"));
+    try {
+      var futures = entries.stream()
+        .map(entry -> CompletableFuture.supplyAsync(() -> verify(entry), executor))
+        .collect(Collectors.toList());
+      var result = new CacheVerificationResult();
+      for (int i = 0; i < entries.size(); i++) {
+        var status = futures.get(i).join();
+        result.add(entries.get(i).file, status);
+      }
+      LOG.info("Verified {} cached files: {} corrupted, {} skipped", result.getVerifiedCount(), result.getQuarantinedFiles().size(), result.getSkippedCount());
+      return result;
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private Status verify(Entry entry) {
+    var hashAlgorithm = hashAlgorithmOf(entry.hash);
+    if (hashAlgorithm.isEmpty()) {
+      return Status.SKIPPED;
+    }
+    return verify(entry.file, entry.hash, hashAlgorithm.get()) ? Status.VALID : Status.QUARANTINED;
+  }
+
+  private List<Entry> listEntries() {
+    var entries = new ArrayList<Entry>();
+    for (var topLevelDir : listDirectories(cacheDir)) {
+      var name = topLevelDir.getFileName().toString();
+      // Skip internal directories, like _tmp and _quarantine
+      if (name.startsWith("_")) {
+        continue;
+      }
+      if (name.length() == FileCache.SHARD_PREFIX_LENGTH) {
+        for (var hashDir : listDirectories(topLevelDir)) {
+          addEntries(entries, hashDir, name + hashDir.getFileName());
+        }
+      } else {
+        addEntries(entries, topLevelDir, name);
+      }
+    }
+    return entries;
+  }
+
+  private static void addEntries(List<Entry> entries, Path hashDir, String hash) {
+    try (Stream<Path> files = Files.list(hashDir)) {
+      // Extracted archives are directories, and their lock files are not content-addressed
+      files.filter(Files::isRegularFile)
+        .filter(file -> !file.getFileName().toString().endsWith(LOCK_FILE_SUFFIX))
+        .forEach(file -> entries.add(new Entry(file, hash)));
+    } catch (IOException e) {
+      LOG.debug("Unable to list {}: {}", hashDir, e.getMessage());
+    }
+  }
+
+  private static List<Path> listDirectories(Path dir) {
+    try (Stream<Path> children = Files.list(dir)) {
+      return children.filter(Files::isDirectory).collect(Collectors.toList());
+    } catch (IOException e) {
+      LOG.debug("Unable to list {}: {}", dir, e.getMessage());
+      return List.of();
+    }
+  }
+
+  enum Status {
+    VALID, QUARANTINED, SKIPPED
+  }
+
+  private static class Entry {
+    private final Path file;
+    private final String hash;
+
+    private Entry(Path file, String hash) {
+      this.file = file;
+      this.hash = hash;
+    }
+  }
+}
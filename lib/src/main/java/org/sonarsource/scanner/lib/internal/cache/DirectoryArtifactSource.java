@@ -0,0 +1,55 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.sonarsource.scanner.lib.internal.util.IoBuffers;
+
+/**
+ * Artifacts stored in a local or network directory, either with the same layout as the cache ({@code <hash>/<filename>}), or
+ * directly as {@code <filename>}.
+ */
+public class DirectoryArtifactSource implements ArtifactSource {
+
+  private final Path dir;
+
+  public DirectoryArtifactSource(Path dir) {
+    this.dir = dir;
+  }
+
+  @Override
+  public boolean fetch(String filename, String hash, Path toFile) throws IOException {
+    for (var candidate : List.of(dir.resolve(hash).resolve(filename), dir.resolve(filename))) {
+      if (Files.isRegularFile(candidate)) {
+        IoBuffers.copy(candidate, toFile);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return dir.toString();
+  }
+}
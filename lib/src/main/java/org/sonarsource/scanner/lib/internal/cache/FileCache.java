@@ -20,38 +20,116 @@
 package org.sonarsource.scanner.lib.internal.cache;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.util.Utils;
 
 /**
  * This class is responsible for managing Sonar batch file cache. You can put file into cache and
  * later try to retrieve them. The checksum is used to differentiate files (name is not secure as files may come
  * from different Sonar servers and have same name but be actually different, and same for SNAPSHOTs).
+ * <p>
+ * Files are either stored in the flat layout {@code <hash>/<filename>}, or in the sharded layout
+ * {@code <first 2 chars of hash>/<rest of hash>/<filename>}, that keeps the number of sibling directories low on long-lived
+ * caches. A sharded cache still finds the files of the flat layout, and uses them in place: they are shared with the scanners
+ * that only know the flat layout, and with the files extracted next to them.
  */
 public class FileCache {
 
   private static final Logger LOG = LoggerFactory.getLogger(FileCache.class);
+  static final int SHARD_PREFIX_LENGTH = 2;
+  static final String METADATA_DIR_NAME = "_metadata";
+  static final Duration METADATA_MAX_AGE = Duration.ofDays(30);
 
   private final Path dir;
   private final Path tmpDir;
   private final FileHashes hashes;
+  private final List<ArtifactSource> artifactSources;
+  private final boolean sharded;
+  private final CacheVerifier verifier;
+  private final double verifyOnHitRate;
 
   FileCache(Path dir, FileHashes fileHashes) {
+    this(dir, fileHashes, false);
+  }
+
+  FileCache(Path dir, FileHashes fileHashes, boolean sharded) {
     this.hashes = fileHashes;
     this.dir = createDir(dir, "user cache: ");
     LOG.info("User cache: {}", dir);
     this.tmpDir = createDir(dir.resolve("_tmp"), "temp dir");
+    this.artifactSources = List.of();
+    this.sharded = sharded;
+    this.verifier = new CacheVerifier(dir, fileHashes);
+    this.verifyOnHitRate = 0;
+  }
+
+  private FileCache(FileCache fileCache, List<ArtifactSource> artifactSources, boolean sharded, double verifyOnHitRate) {
+    this.hashes = fileCache.hashes;
+    this.dir = fileCache.dir;
+    this.tmpDir = fileCache.tmpDir;
+    this.artifactSources = List.copyOf(artifactSources);
+    this.sharded = sharded;
+    this.verifier = fileCache.verifier;
+    this.verifyOnHitRate = verifyOnHitRate;
   }
 
   public static FileCache create(Path sonarUserHome) {
     var dir = sonarUserHome.resolve("cache");
-    return new FileCache(dir, new FileHashes());
+    return new FileCache(dir, new FileHashes(), true);
+  }
+
+  /**
+   * @return a cache using the same directory, that stores files in the flat layout. This is the layout expected by the scanner
+   * engine for the files it looks up by itself, like plugins.
+   */
+  public FileCache withFlatLayout() {
+    if (!sharded) {
+      return this;
+    }
+    return new FileCache(this, artifactSources, false, verifyOnHitRate);
+  }
+
+  /**
+   * @param rate ratio of the cache hits, between 0 and 1, for which the hash of the file is verified before it is used. Corrupted
+   *             files are removed from the cache, and downloaded again.
+   */
+  public FileCache withVerifyOnHit(double rate) {
+    if (!(rate >= 0 && rate <= 1)) {
+      throw new IllegalArgumentException("Rate of verification of cached files must be between 0 and 1: " + rate);
+    }
+    return new FileCache(this, artifactSources, sharded, rate);
+  }
+
+  /**
+   * Verify the hash of all the files of the cache, using the given number of threads. Corrupted files are removed from the cache,
+   * so that they are downloaded again. This is meant to be run as a maintenance operation, for example on long-lived agents.
+   */
+  public CacheVerificationResult verifyAll(int parallelism) {
+    return verifier.verifyAll(parallelism);
+  }
+
+  /**
+   * @return a cache using the same directory, that looks for missing files in the given sources, in order, before downloading them
+   */
+  public FileCache withArtifactSources(List<ArtifactSource> artifactSources) {
+    if (artifactSources.isEmpty() && this.artifactSources.isEmpty()) {
+      return this;
+    }
+    return new FileCache(this, artifactSources, sharded, verifyOnHitRate);
   }
 
   public Path getDir() {
@@ -64,14 +142,36 @@ public class FileCache {
    */
   @CheckForNull
   public Path get(String filename, String hash) {
-    Path cachedFile = dir.resolve(hash).resolve(filename);
-    if (Files.exists(cachedFile)) {
+    Path cachedFile = lookup(filename, hash);
+    if (cachedFile != null && isValid(cachedFile, hash, CacheVerifier.hashAlgorithmOf(hash).orElse(null))) {
       return cachedFile;
     }
     LOG.debug("No file found in the cache with name {} and hash {}", filename, hash);
     return null;
   }
 
+  private boolean isValid(Path cachedFile, String hash, @Nullable String hashAlgorithm) {
+    if (hashAlgorithm == null || verifyOnHitRate <= 0 || ThreadLocalRandom.current().nextDouble() >= verifyOnHitRate) {
+      return true;
+    }
+    return verifier.verify(cachedFile, hash, hashAlgorithm);
+  }
+
+  @CheckForNull
+  private Path lookup(String filename, String hash) {
+    Path cachedFile = hashDir(hash).resolve(filename);
+    if (Files.exists(cachedFile)) {
+      return cachedFile;
+    }
+    if (isSharded(hash)) {
+      Path legacyFile = dir.resolve(hash).resolve(filename);
+      if (Files.exists(legacyFile)) {
+        return legacyFile;
+      }
+    }
+    return null;
+  }
+
   @FunctionalInterface
   public interface Downloader {
     void download(String filename, Path toFile) throws IOException;
@@ -81,21 +181,44 @@ public class FileCache {
     // Does not fail if another process tries to create the directory at the same time.
     Path hashDir = hashDir(hash);
     Path targetFile = hashDir.resolve(filename);
-    if (Files.exists(targetFile)) {
-      return new CachedFile(targetFile, true);
+    Path cachedFile = lookup(filename, hash);
+    if (cachedFile != null && isValid(cachedFile, hash, hashAlgorithm)) {
+      return new CachedFile(cachedFile, true);
     }
     Path tempFile = newTempFile();
-    download(downloader, filename, tempFile);
-    String downloadedHash = hashes.of(tempFile.toFile(), hashAlgorithm);
-    if (!hash.equals(downloadedHash)) {
-      throw new HashMismatchException("INVALID HASH: File " + tempFile.toAbsolutePath() + " was expected to have hash " + hash
-        + " but was downloaded with hash " + downloadedHash);
+    if (!fetchFromArtifactSources(filename, hash, hashAlgorithm, tempFile)) {
+      download(downloader, filename, tempFile);
+      String downloadedHash = hashes.of(tempFile.toFile(), hashAlgorithm);
+      if (!hash.equals(downloadedHash)) {
+        throw new HashMismatchException("INVALID HASH: File " + tempFile.toAbsolutePath() + " was expected to have hash " + hash
+          + " but was downloaded with hash " + downloadedHash);
+      }
     }
     mkdirQuietly(hashDir);
     renameQuietly(tempFile, targetFile);
     return new CachedFile(targetFile, false);
   }
 
+  private boolean fetchFromArtifactSources(String filename, String hash, String hashAlgorithm, Path tempFile) {
+    for (var source : artifactSources) {
+      try {
+        if (!source.fetch(filename, hash, tempFile)) {
+          LOG.debug("{} not found in {}", filename, source);
+          continue;
+        }
+        var fetchedHash = hashes.of(tempFile.toFile(), hashAlgorithm);
+        if (hash.equals(fetchedHash)) {
+          LOG.debug("{} fetched from {}", filename, source);
+          return true;
+        }
+        LOG.warn("Ignoring {} from {}: it was expected to have hash {} but has hash {}", filename, source, hash, fetchedHash);
+      } catch (Exception e) {
+        LOG.warn("Failed to get {} from {}: {}", filename, source, e.getMessage());
+      }
+    }
+    return false;
+  }
+
   private static void download(Downloader downloader, String filename, Path tempFile) {
     try {
       downloader.download(filename, tempFile);
@@ -104,6 +227,100 @@ public class FileCache {
     }
   }
 
+  @FunctionalInterface
+  public interface MetadataWriter {
+    void write(Path toFile) throws IOException;
+  }
+
+  /**
+   * Key of the metadata computed from a list of files, like an index of their content. Files of the cache are identified by their
+   * location in the cache, that contains their hash, so the key changes as soon as the content of one of the files changes.
+   */
+  public String metadataKey(List<Path> files) {
+    var digest = FileHashes.messageDigest("SHA-256");
+    for (var file : files) {
+      String id;
+      if (file.startsWith(dir)) {
+        id = dir.relativize(file).toString().replace('\\', '/');
+      } else {
+        var f = file.toFile();
+        id = f.getAbsolutePath() + ":" + f.length() + ":" + f.lastModified();
+      }
+      digest.update((id + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    return FileHashes.toHex(digest.digest());
+  }
+
+  /**
+   * Metadata is stored in {@code _metadata/<key>/<filename>}. It is not verified, so readers must handle content they can't parse.
+   * The directory of the key is marked as used, so that it is not removed as stale by {@link #putMetadata(String, String, MetadataWriter)}.
+   *
+   * @return the metadata file, or null if it was not stored yet
+   */
+  @CheckForNull
+  public Path getMetadata(String key, String filename) {
+    var file = dir.resolve(METADATA_DIR_NAME).resolve(key).resolve(filename);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    touchQuietly(file.getParent());
+    return file;
+  }
+
+  /**
+   * Store metadata, replacing the previous content if any. The file is written in a temp file first, so that readers never see
+   * partial content.
+   */
+  public Path putMetadata(String key, String filename, MetadataWriter writer) {
+    var targetDir = dir.resolve(METADATA_DIR_NAME).resolve(key);
+    var targetFile = targetDir.resolve(filename);
+    Path tempFile = newTempFile();
+    try {
+      writer.write(tempFile);
+      Files.createDirectories(targetDir);
+      Files.move(tempFile, targetFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      touchQuietly(targetDir);
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to store " + targetFile, e);
+    } finally {
+      Utils.deleteQuietly(tempFile);
+    }
+    deleteStaleMetadata(Instant.now().minus(METADATA_MAX_AGE));
+    return targetFile;
+  }
+
+  /**
+   * Metadata is computed from files that are replaced over time, like the jars of a new engine version. Keys that were not used
+   * since the given time are removed.
+   */
+  void deleteStaleMetadata(Instant notUsedSince) {
+    var limit = FileTime.from(notUsedSince);
+    try (var keyDirs = Files.list(dir.resolve(METADATA_DIR_NAME))) {
+      keyDirs.filter(keyDir -> isNotModifiedSince(keyDir, limit)).forEach(keyDir -> {
+        LOG.debug("Delete stale metadata {}", keyDir);
+        Utils.deleteQuietly(keyDir);
+      });
+    } catch (IOException e) {
+      LOG.debug("Unable to delete stale metadata: {}", e.getMessage());
+    }
+  }
+
+  private static boolean isNotModifiedSince(Path file, FileTime limit) {
+    try {
+      return Files.getLastModifiedTime(file).compareTo(limit) < 0;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void touchQuietly(Path file) {
+    try {
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+    } catch (IOException e) {
+      // Only delays the removal of stale metadata
+    }
+  }
+
   private static void renameQuietly(Path sourceFile, Path targetFile) {
     try {
       Files.move(sourceFile, targetFile, StandardCopyOption.ATOMIC_MOVE);
@@ -123,9 +340,16 @@ public class FileCache {
   }
 
   private Path hashDir(String hash) {
+    if (isSharded(hash)) {
+      return dir.resolve(hash.substring(0, SHARD_PREFIX_LENGTH)).resolve(hash.substring(SHARD_PREFIX_LENGTH));
+    }
     return dir.resolve(hash);
   }
 
+  private boolean isSharded(String hash) {
+    return sharded && hash.length() > SHARD_PREFIX_LENGTH;
+  }
+
   private static void mkdirQuietly(Path hashDir) {
     try {
       Files.createDirectories(hashDir);
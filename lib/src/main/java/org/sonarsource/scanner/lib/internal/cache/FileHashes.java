@@ -20,53 +20,98 @@
 package org.sonarsource.scanner.lib.internal.cache;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import org.sonarsource.scanner.lib.internal.util.IoBuffers;
 
 /**
  * Hashes used to store files in the cache directory.
  *
  * @since 3.5
  */
-class FileHashes {
+public class FileHashes {
 
-  private static final int STREAM_BUFFER_LENGTH = 1024;
+  static final long MEMORY_MAPPING_THRESHOLD = 8L * 1024 * 1024;
+  private static final long MEMORY_MAPPING_WINDOW = 64L * 1024 * 1024;
+  // On Windows, a mapped file can neither be moved nor deleted until the mapping is garbage collected
+  private static final boolean MEMORY_MAPPING_SUPPORTED = !System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH).startsWith("windows");
 
   String of(File file, String hashAlgorithm) {
     try {
-      return of(new FileInputStream(file), hashAlgorithm);
+      if (MEMORY_MAPPING_SUPPORTED && file.length() >= MEMORY_MAPPING_THRESHOLD) {
+        return ofMapped(file.toPath(), hashAlgorithm);
+      }
+      try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        return toHex(digest(channel, messageDigest(hashAlgorithm)));
+      }
     } catch (IOException e) {
       throw new IllegalStateException("Fail to compute hash of: " + file.getAbsolutePath(), e);
     }
   }
 
+  /**
+   * Large files are hashed through memory mapping, which avoids copying their content in the heap.
+   */
+  static String ofMapped(Path file, String hashAlgorithm) throws IOException {
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      MessageDigest digest = messageDigest(hashAlgorithm);
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        long length = Math.min(MEMORY_MAPPING_WINDOW, size - position);
+        digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        position += length;
+      }
+      return toHex(digest.digest());
+    }
+  }
+
+  static MessageDigest messageDigest(String hashAlgorithm) {
+    try {
+      return MessageDigest.getInstance(hashAlgorithm);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Fail to compute hash", e);
+    }
+  }
+
   /**
    * Computes the hash of given stream. The stream is closed by this method.
    */
   String of(InputStream input, String hashAlgorithm) {
     try (InputStream is = input) {
-      MessageDigest digest = MessageDigest.getInstance(hashAlgorithm);
-      byte[] hash = digest(is, digest);
+      MessageDigest digest = messageDigest(hashAlgorithm);
+      byte[] hash = digest(Channels.newChannel(is), digest);
       return toHex(hash);
     } catch (Exception e) {
       throw new IllegalStateException("Fail to compute hash", e);
     }
   }
 
-  private static byte[] digest(InputStream input, MessageDigest digest) throws IOException {
-    final byte[] buffer = new byte[STREAM_BUFFER_LENGTH];
-    int read = input.read(buffer, 0, STREAM_BUFFER_LENGTH);
-    while (read > -1) {
-      digest.update(buffer, 0, read);
-      read = input.read(buffer, 0, STREAM_BUFFER_LENGTH);
+  private static byte[] digest(ReadableByteChannel input, MessageDigest digest) throws IOException {
+    ByteBuffer buffer = IoBuffers.acquire();
+    try {
+      while (input.read(buffer) != -1) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+      return digest.digest();
+    } finally {
+      IoBuffers.release(buffer);
     }
-    return digest.digest();
   }
 
-  static String toHex(byte[] bytes) {
+  public static String toHex(byte[] bytes) {
     BigInteger bi = new BigInteger(1, bytes);
     String hexFormat = "%0" + (bytes.length << 1) + "x";
     return String.format(hexFormat, bi);
@@ -66,7 +66,7 @@ public abstract class AbstractScannerEngineFacade implements ScannerEngineFacade
     return doAnalyze(allProps);
   }
 
-  private void addStatsProperties(Map<String, String> allProps) {
+  protected void addStatsProperties(Map<String, String> allProps) {
     if (wasJreCacheHit != null) {
       allProps.put("sonar.scanner.wasJreCacheHit", wasJreCacheHit.name());
     }
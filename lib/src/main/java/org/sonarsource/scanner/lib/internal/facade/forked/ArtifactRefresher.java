@@ -0,0 +1,108 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.forked;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+import static org.sonarsource.scanner.lib.ScannerProperties.SCANNER_ARCH;
+import static org.sonarsource.scanner.lib.ScannerProperties.SCANNER_OS;
+
+/**
+ * Check in background whether the server publishes a new scanner engine or JRE, and download and extract them into the cache,
+ * so that the next runs do not pay for it. The cache is updated under the same locks as during the bootstrap.
+ */
+public class ArtifactRefresher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ArtifactRefresher.class);
+
+  private final ScannerHttpClient scannerHttpClient;
+  private final FileCache fileCache;
+  private final Map<String, String> properties;
+  private final Duration closeTimeout;
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final FutureTask<Void> task = new FutureTask<>(this::refresh, null);
+
+  public ArtifactRefresher(ScannerHttpClient scannerHttpClient, FileCache fileCache, Map<String, String> properties, Duration closeTimeout) {
+    this.scannerHttpClient = scannerHttpClient;
+    this.fileCache = fileCache;
+    this.properties = properties;
+    this.closeTimeout = closeTimeout;
+  }
+
+  /**
+   * Start the refresh in background. Only the first call has an effect.
+   */
+  public void start() {
+    if (started.compareAndSet(false, true)) {
+      Utils.daemonExecutor("sonar-scanner-artifact-refresh").execute(task);
+    }
+  }
+
+  /**
+   * Wait for the refresh to complete, and cancel it if it takes longer than the configured timeout. Cancelled downloads are
+   * never visible in the cache.
+   */
+  public void awaitOrCancel() {
+    if (!started.get()) {
+      return;
+    }
+    try {
+      task.get(closeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      LOG.debug("Background refresh of the scanner engine and JRE did not complete in {}ms, cancelling it", closeTimeout.toMillis());
+      task.cancel(true);
+    } catch (ExecutionException e) {
+      LOG.debug("Background refresh of the scanner engine and JRE failed", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      task.cancel(true);
+    }
+  }
+
+  void refresh() {
+    long start = System.currentTimeMillis();
+    try {
+      var scannerEngine = ScannerEngineLauncherFactory.provisionScannerEngine(scannerHttpClient, fileCache);
+      LOG.debug(scannerEngine.isCacheHit() ? "Scanner engine in cache is up to date" : "Downloaded a new scanner engine in background");
+    } catch (Exception e) {
+      LOG.debug("Failed to refresh the scanner engine in background: {}", e.getMessage());
+    }
+    if (JavaRunnerFactory.isJreProvisioningEnabled(properties) && !Thread.currentThread().isInterrupted()) {
+      try {
+        var jre = JavaRunnerFactory.provisionJre(scannerHttpClient, fileCache, properties.get(SCANNER_OS), properties.get(SCANNER_ARCH), true);
+        jre.ifPresent(j -> LOG.debug(j.isCacheHit() ? "JRE in cache is up to date" : "Downloaded a new JRE in background"));
+      } catch (Exception e) {
+        LOG.debug("Failed to refresh the JRE in background: {}", e.getMessage());
+      }
+    }
+    LOG.debug("Background refresh of the scanner engine and JRE completed in {}ms", System.currentTimeMillis() - start);
+  }
+}
@@ -135,11 +135,27 @@ public class JavaRunnerFactory {
     String os = properties.get(SCANNER_OS);
     String arch = properties.get(SCANNER_ARCH);
     LOG.info("JRE provisioning: os[{}], arch[{}]", os, arch);
+    var jre = provisionJre(scannerHttpClient, fileCache, os, arch, retry);
+    if (jre.isEmpty()) {
+      LOG.info("No JRE found for this OS/architecture");
+    }
+    return jre;
+  }
+
+  /**
+   * @return whether the JRE is provisioned by this factory, rather than configured by the user or found on the machine
+   */
+  static boolean isJreProvisioningEnabled(Map<String, String> properties) {
+    return properties.get(JAVA_EXECUTABLE_PATH) == null && !Boolean.parseBoolean(properties.get(SKIP_JRE_PROVISIONING));
+  }
 
+  /**
+   * Get the JRE for the given OS and architecture from the cache, or download and extract it.
+   */
+  static Optional<CachedFile> provisionJre(ScannerHttpClient scannerHttpClient, FileCache fileCache, String os, String arch, boolean retry) {
     try {
       var jreMetadata = getJreMetadata(scannerHttpClient, os, arch);
       if (jreMetadata.isEmpty()) {
-        LOG.info("No JRE found for this OS/architecture");
         return Optional.empty();
       }
       var cachedFile = fileCache.getOrDownload(jreMetadata.get().getFilename(), jreMetadata.get().getSha256(), "SHA-256",
@@ -150,7 +166,7 @@ public class JavaRunnerFactory {
       if (retry) {
         // A new JRE might have been published between the metadata fetch and the download
         LOG.warn("Failed to get the JRE, retrying...");
-        return getJreFromServer(scannerHttpClient, fileCache, properties, false);
+        return provisionJre(scannerHttpClient, fileCache, os, arch, false);
       }
       throw e;
     }
@@ -192,8 +208,13 @@ public class JavaRunnerFactory {
           // Recheck in case of concurrent processes
           if (!Files.exists(destDir)) {
             var tempDir = Files.createTempDirectory(cachedFile.getParent(), "jre");
-            extract(cachedFile, tempDir);
-            Files.move(tempDir, destDir);
+            try {
+              extract(cachedFile, tempDir);
+              Files.move(tempDir, destDir);
+            } finally {
+              // Left behind when the extraction fails or is interrupted
+              deleteQuietly(tempDir);
+            }
           }
         } finally {
           lock.release();
@@ -25,20 +25,38 @@ import org.sonarsource.scanner.lib.internal.facade.AbstractScannerEngineFacade;
 
 public class NewScannerEngineFacade extends AbstractScannerEngineFacade {
   private final ScannerEngineLauncher launcher;
+  @Nullable
+  private final ArtifactRefresher artifactRefresher;
 
   public NewScannerEngineFacade(Map<String, String> bootstrapProperties, ScannerEngineLauncher launcher,
     boolean isSonarCloud, @Nullable String serverVersion) {
+    this(bootstrapProperties, launcher, isSonarCloud, serverVersion, null);
+  }
+
+  public NewScannerEngineFacade(Map<String, String> bootstrapProperties, ScannerEngineLauncher launcher,
+    boolean isSonarCloud, @Nullable String serverVersion, @Nullable ArtifactRefresher artifactRefresher) {
     super(bootstrapProperties, isSonarCloud, serverVersion, launcher.isEngineCacheHit(), launcher.getJreCacheHit());
     this.launcher = launcher;
+    this.artifactRefresher = artifactRefresher;
   }
 
   @Override
   protected boolean doAnalyze(Map<String, String> allProps) {
-    return launcher.execute(allProps);
+    try {
+      return launcher.execute(allProps);
+    } finally {
+      // Done after the analysis, to not compete with it for the network bandwidth
+      if (artifactRefresher != null) {
+        artifactRefresher.start();
+      }
+    }
   }
 
   @Override
   public void close() throws Exception {
-    // nothing to do
+    if (artifactRefresher != null) {
+      artifactRefresher.awaitOrCancel();
+    }
+    launcher.close();
   }
 }
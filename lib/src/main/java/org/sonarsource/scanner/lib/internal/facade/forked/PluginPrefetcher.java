@@ -0,0 +1,139 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.forked;
+
+import com.google.gson.Gson;
+import com.google.gson.annotations.SerializedName;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+/**
+ * Download the plugins installed on the server into the cache shared with the scanner engine, so that they are cache hits when the
+ * engine starts. Meant to run in background, during the JRE and scanner engine provisioning.
+ * <p>
+ * Only the plugins that the engine always loads are prefetched. The plugins required only for some languages are left to the
+ * engine, that downloads them when one of these languages is detected in the project.
+ * <p>
+ * Failures are only logged: the engine downloads the plugins that are still missing by itself.
+ */
+public class PluginPrefetcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PluginPrefetcher.class);
+
+  static final String API_PATH_INSTALLED_PLUGINS = "/api/plugins/installed";
+  static final String API_PATH_DOWNLOAD_PLUGIN = "/api/plugins/download?plugin=";
+  // Same algorithm as the scanner engine for plugins
+  private static final String HASH_ALGORITHM = "MD5";
+  private static final int PARALLELISM = 4;
+
+  private final ScannerHttpClient scannerHttpClient;
+  private final FileCache fileCache;
+
+  public PluginPrefetcher(ScannerHttpClient scannerHttpClient, FileCache fileCache) {
+    this.scannerHttpClient = scannerHttpClient;
+    // The scanner engine looks for plugins by itself, in the flat layout
+    this.fileCache = fileCache.withFlatLayout();
+  }
+
+  public CompletableFuture<Void> prefetchAsync() {
+    return CompletableFuture.runAsync(this::prefetch, Utils.daemonExecutor("sonar-scanner-plugin-prefetch"));
+  }
+
+  void prefetch() {
+    List<InstalledPlugin> plugins;
+    try {
+      plugins = Objects.requireNonNull(new Gson().fromJson(scannerHttpClient.callWebApi(API_PATH_INSTALLED_PLUGINS), InstalledPlugins.class).plugins,
+        "No plugins in response");
+    } catch (Exception e) {
+      LOG.debug("Failed to list the plugins installed on the server: {}", e.getMessage());
+      return;
+    }
+    var requiredPlugins = plugins.stream()
+      .filter(PluginPrefetcher::isAlwaysRequired)
+      .collect(Collectors.toList());
+    var missingPlugins = requiredPlugins.stream()
+      .filter(plugin -> fileCache.get(plugin.filename, plugin.hash) == null)
+      .collect(Collectors.toList());
+    if (missingPlugins.isEmpty()) {
+      LOG.debug("All the {} plugins always required by the scanner engine are already in cache", requiredPlugins.size());
+      return;
+    }
+
+    long start = System.currentTimeMillis();
+    var downloaded = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLELISM, missingPlugins.size()), Utils.daemonThreadFactory("sonar-scanner-plugin-prefetch"));
+    try {
+      CompletableFuture.allOf(missingPlugins.stream()
+        .map(plugin -> CompletableFuture.runAsync(() -> {
+          if (download(plugin)) {
+            downloaded.incrementAndGet();
+          }
+        }, executor))
+        .toArray(CompletableFuture[]::new))
+        .join();
+    } finally {
+      executor.shutdown();
+    }
+    LOG.debug("Prefetched {}/{} missing plugins in {}ms", downloaded.get(), missingPlugins.size(), System.currentTimeMillis() - start);
+  }
+
+  private static boolean isAlwaysRequired(InstalledPlugin plugin) {
+    return plugin.requiredForLanguages == null || plugin.requiredForLanguages.isEmpty();
+  }
+
+  private boolean download(InstalledPlugin plugin) {
+    try {
+      fileCache.getOrDownload(plugin.filename, plugin.hash, HASH_ALGORITHM,
+        (filename, toFile) -> scannerHttpClient.downloadFromWebApi(API_PATH_DOWNLOAD_PLUGIN + URLEncoder.encode(plugin.key, StandardCharsets.UTF_8), toFile));
+      return true;
+    } catch (Exception e) {
+      LOG.debug("Failed to prefetch plugin '{}': {}", plugin.key, e.getMessage());
+      return false;
+    }
+  }
+
+  private static class InstalledPlugins {
+    @SerializedName("plugins")
+    private List<InstalledPlugin> plugins;
+  }
+
+  private static class InstalledPlugin {
+    @SerializedName("key")
+    private String key;
+    @SerializedName("hash")
+    private String hash;
+    @SerializedName("filename")
+    private String filename;
+    @SerializedName("requiredForLanguages")
+    private List<String> requiredForLanguages;
+  }
+}
@@ -25,17 +25,26 @@ import com.google.gson.JsonObject;
 import com.google.gson.annotations.SerializedName;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonarsource.scanner.lib.ScannerProperties;
 import org.sonarsource.scanner.lib.internal.cache.CachedFile;
-import org.sonarsource.scanner.lib.internal.http.OkHttpClientFactory;
+import org.sonarsource.scanner.lib.internal.http.LoopbackCachingProxy;
+import org.sonarsource.scanner.lib.internal.http.SslFactories;
+
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_PROXY_HOST;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_PROXY_PASSWORD;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_PROXY_PORT;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_PROXY_USER;
 
 public class ScannerEngineLauncher {
   private static final Set<String> SENSITIVE_JVM_ARGUMENTS = Set.of(
@@ -46,16 +55,47 @@ public class ScannerEngineLauncher {
   private static final Logger LOG = LoggerFactory.getLogger(ScannerEngineLauncher.class);
 
   private static final String JSON_FIELD_SCANNER_PROPERTIES = "scannerProperties";
+  private static final String SERVER_BASE_URL = "sonar.core.serverBaseURL";
+  private static final List<String> HTTP_PROXY_PROPERTIES = List.of(SONAR_SCANNER_PROXY_HOST, SONAR_SCANNER_PROXY_PORT, SONAR_SCANNER_PROXY_USER,
+    SONAR_SCANNER_PROXY_PASSWORD);
   private final JavaRunner javaRunner;
   private final CachedFile scannerEngineJar;
+  @Nullable
+  private final LoopbackCachingProxy cachingProxy;
 
   public ScannerEngineLauncher(JavaRunner javaRunner, CachedFile scannerEngineJar) {
+    this(javaRunner, scannerEngineJar, null);
+  }
+
+  public ScannerEngineLauncher(JavaRunner javaRunner, CachedFile scannerEngineJar, @Nullable LoopbackCachingProxy cachingProxy) {
     this.javaRunner = javaRunner;
     this.scannerEngineJar = scannerEngineJar;
+    this.cachingProxy = cachingProxy;
   }
 
   public boolean execute(Map<String, String> properties) {
-    return javaRunner.execute(buildArgs(properties), buildJsonProperties(properties), ScannerEngineLauncher::tryParse);
+    var engineProperties = cachingProxy != null ? redirectToCachingProxy(properties, cachingProxy) : properties;
+    return javaRunner.execute(buildArgs(engineProperties), buildJsonProperties(engineProperties), ScannerEngineLauncher::tryParse);
+  }
+
+  /**
+   * Make the scanner engine call the server through the caching proxy.
+   */
+  static Map<String, String> redirectToCachingProxy(Map<String, String> properties, LoopbackCachingProxy cachingProxy) {
+    var redirected = new HashMap<>(properties);
+    var hostUrl = properties.get(ScannerProperties.HOST_URL);
+    if (StringUtils.isNotBlank(hostUrl)) {
+      // Links to the server displayed at the end of the analysis, or written in the report task file, must not target the proxy
+      redirected.putIfAbsent(SERVER_BASE_URL, hostUrl);
+      redirected.put(ScannerProperties.HOST_URL, cachingProxy.localUrlFor(hostUrl));
+    }
+    var apiBaseUrl = properties.get(ScannerProperties.API_BASE_URL);
+    if (StringUtils.isNotBlank(apiBaseUrl)) {
+      redirected.put(ScannerProperties.API_BASE_URL, cachingProxy.localUrlFor(apiBaseUrl));
+    }
+    // The caching proxy already goes through the HTTP proxy, if any
+    HTTP_PROXY_PROPERTIES.forEach(redirected::remove);
+    return redirected;
   }
 
   static void tryParse(String stdout) {
@@ -114,7 +154,7 @@ public class ScannerEngineLauncher {
       LOG.atInfo().addArgument(() -> redactSensitiveArguments(split)).log("SONAR_SCANNER_JAVA_OPTS={}");
       args.addAll(split);
     }
-    args.add("-D" + OkHttpClientFactory.BC_IGNORE_USELESS_PASSWD + "=true");
+    args.add("-D" + SslFactories.BC_IGNORE_USELESS_PASSWD + "=true");
     args.add("-jar");
     args.add(scannerEngineJar.getPathInCache().toAbsolutePath().toString());
     return args;
@@ -163,4 +203,10 @@ public class ScannerEngineLauncher {
   public JreCacheHit getJreCacheHit() {
     return javaRunner.getJreCacheHit();
   }
+
+  public void close() {
+    if (cachingProxy != null) {
+      cachingProxy.close();
+    }
+  }
 }
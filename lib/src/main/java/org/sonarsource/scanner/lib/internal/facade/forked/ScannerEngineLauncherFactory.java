@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.Map;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -31,10 +32,13 @@ import org.slf4j.LoggerFactory;
 import org.sonarsource.scanner.lib.internal.cache.CachedFile;
 import org.sonarsource.scanner.lib.internal.cache.FileCache;
 import org.sonarsource.scanner.lib.internal.cache.HashMismatchException;
+import org.sonarsource.scanner.lib.internal.http.LoopbackCachingProxy;
 import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
 import org.sonarsource.scanner.lib.internal.util.ProcessWrapperFactory;
 import org.sonarsource.scanner.lib.internal.util.System2;
 
+import static org.sonarsource.scanner.lib.ScannerProperties.SCANNER_ENGINE_CACHING_PROXY;
+
 public class ScannerEngineLauncherFactory {
 
   private static final Logger LOG = LoggerFactory.getLogger(ScannerEngineLauncherFactory.class);
@@ -51,26 +55,53 @@ public class ScannerEngineLauncherFactory {
   }
 
   public ScannerEngineLauncher createLauncher(ScannerHttpClient scannerHttpClient, FileCache fileCache, Map<String, String> properties) {
+    // Fetch the metadata first, so that the connection to the download host can be warmed up during JRE provisioning
+    var scannerEngineMetadata = getScannerEngineMetadata(scannerHttpClient);
+    warmUpDownloadHost(scannerHttpClient, fileCache, scannerEngineMetadata);
     JavaRunner javaRunner = javaRunnerFactory.createRunner(scannerHttpClient, fileCache, properties);
     jreSanityCheck(javaRunner);
-    var scannerEngine = getScannerEngine(scannerHttpClient, fileCache, true);
-    return new ScannerEngineLauncher(javaRunner, scannerEngine);
+    var scannerEngine = getScannerEngine(scannerHttpClient, fileCache, scannerEngineMetadata, true);
+    var cachingProxy = Boolean.parseBoolean(properties.get(SCANNER_ENGINE_CACHING_PROXY)) ? startCachingProxy(scannerHttpClient) : null;
+    return new ScannerEngineLauncher(javaRunner, scannerEngine, cachingProxy);
+  }
+
+  @CheckForNull
+  private static LoopbackCachingProxy startCachingProxy(ScannerHttpClient scannerHttpClient) {
+    try {
+      return scannerHttpClient.startCachingProxy();
+    } catch (IOException e) {
+      LOG.warn("Failed to start the caching proxy, the scanner engine will call the server directly: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private static void warmUpDownloadHost(ScannerHttpClient scannerHttpClient, FileCache fileCache, ScannerEngineMetadata scannerEngineMetadata) {
+    if (StringUtils.isNotBlank(scannerEngineMetadata.getDownloadUrl())
+      && fileCache.get(scannerEngineMetadata.getFilename(), scannerEngineMetadata.getSha256()) == null) {
+      scannerHttpClient.warmUp(scannerEngineMetadata.getDownloadUrl());
+    }
   }
 
   private static void jreSanityCheck(JavaRunner javaRunner) {
     javaRunner.execute(Collections.singletonList("--version"), null, LOG::debug);
   }
 
-  private static CachedFile getScannerEngine(ScannerHttpClient scannerHttpClient, FileCache fileCache, boolean retry) {
+  /**
+   * Get the scanner engine currently published by the server from the cache, or download it.
+   */
+  static CachedFile provisionScannerEngine(ScannerHttpClient scannerHttpClient, FileCache fileCache) {
+    return getScannerEngine(scannerHttpClient, fileCache, getScannerEngineMetadata(scannerHttpClient), true);
+  }
+
+  private static CachedFile getScannerEngine(ScannerHttpClient scannerHttpClient, FileCache fileCache, ScannerEngineMetadata scannerEngineMetadata, boolean retry) {
     try {
-      var scannerEngineMetadata = getScannerEngineMetadata(scannerHttpClient);
       return fileCache.getOrDownload(scannerEngineMetadata.getFilename(), scannerEngineMetadata.getSha256(), "SHA-256",
         new ScannerEngineDownloader(scannerHttpClient, scannerEngineMetadata));
     } catch (HashMismatchException e) {
       if (retry) {
         // A new scanner-engine might have been published between the metadata fetch and the download
         LOG.warn("Failed to get the scanner-engine, retrying...");
-        return getScannerEngine(scannerHttpClient, fileCache, false);
+        return getScannerEngine(scannerHttpClient, fileCache, getScannerEngineMetadata(scannerHttpClient), false);
       }
       throw e;
     }
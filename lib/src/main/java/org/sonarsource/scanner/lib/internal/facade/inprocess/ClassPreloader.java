@@ -0,0 +1,152 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+/**
+ * Most of the startup of the in-process scanner engine is spent loading its classes, lazily, on the analysis thread. The classes
+ * defined during a first analysis are recorded, and stored as metadata of the engine jars in the file cache. Next analyses with
+ * the same jars load them on background threads, while the engine starts.
+ * <p>
+ * Classes are loaded without being initialized, so that preloading has no side effect.
+ */
+class ClassPreloader implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassPreloader.class);
+
+  static final String FILENAME = "preloaded-classes.txt";
+  static final int MAX_RECORDED_CLASSES = 100_000;
+  private static final int MAX_THREADS = 4;
+
+  private final FileCache fileCache;
+  private final String key;
+  private final IsolatedClassloader classloader;
+  @Nullable
+  private final ExecutorService executor;
+  private final AtomicInteger preloadedCount = new AtomicInteger();
+
+  private ClassPreloader(FileCache fileCache, String key, IsolatedClassloader classloader, @Nullable ExecutorService executor) {
+    this.fileCache = fileCache;
+    this.key = key;
+    this.classloader = classloader;
+    this.executor = executor;
+  }
+
+  /**
+   * Preload the classes recorded by a previous analysis with the same jars, or start recording them if there is none.
+   */
+  static ClassPreloader start(FileCache fileCache, List<Path> jars, IsolatedClassloader classloader) {
+    return start(fileCache, jars, classloader, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+  }
+
+  static ClassPreloader start(FileCache fileCache, List<Path> jars, IsolatedClassloader classloader, int threads) {
+    var key = fileCache.metadataKey(jars);
+    var recorded = readRecordedClasses(fileCache, key);
+    if (recorded.isEmpty()) {
+      classloader.recordDefinedClasses(MAX_RECORDED_CLASSES);
+      return new ClassPreloader(fileCache, key, classloader, null);
+    }
+    if (threads < 1) {
+      // Preloading would only compete with the analysis thread
+      LOG.debug("No spare processor to preload the classes of the scanner engine");
+      return new ClassPreloader(fileCache, key, classloader, null);
+    }
+    LOG.debug("Preload {} classes of the scanner engine with {} threads", recorded.size(), threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads, Utils.daemonThreadFactory("sonar-scanner-class-preload"));
+    var preloader = new ClassPreloader(fileCache, key, classloader, executor);
+    // Threads share a cursor on the list, so that classes are preloaded in the order they were first needed
+    var cursor = new AtomicInteger();
+    for (int i = 0; i < threads; i++) {
+      executor.execute(() -> preloader.preload(recorded, cursor));
+    }
+    executor.shutdown();
+    return preloader;
+  }
+
+  private static List<String> readRecordedClasses(FileCache fileCache, String key) {
+    var file = fileCache.getMetadata(key, FILENAME);
+    if (file == null) {
+      return List.of();
+    }
+    try {
+      return Files.readAllLines(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOG.debug("Unable to read the classes to preload from {}: {}", file, e.getMessage());
+      return List.of();
+    }
+  }
+
+  private void preload(List<String> classNames, AtomicInteger cursor) {
+    int i;
+    while ((i = cursor.getAndIncrement()) < classNames.size() && !Thread.currentThread().isInterrupted()) {
+      try {
+        Class.forName(classNames.get(i), false, classloader);
+        preloadedCount.incrementAndGet();
+      } catch (ClassNotFoundException | LinkageError e) {
+        // The class will fail the same way if the engine really needs it
+      }
+    }
+  }
+
+  int getPreloadedCount() {
+    return preloadedCount.get();
+  }
+
+  /**
+   * Stop preloading, or store the classes recorded during the analysis. Must be called before closing the classloader.
+   */
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      LOG.debug("{} classes of the scanner engine were preloaded", preloadedCount.get());
+      return;
+    }
+    var definedClasses = classloader.getDefinedClasses();
+    if (definedClasses.isEmpty()) {
+      return;
+    }
+    try {
+      fileCache.putMetadata(key, FILENAME, toFile -> Files.write(toFile, definedClasses, StandardCharsets.UTF_8));
+      LOG.debug("Recorded {} classes of the scanner engine to preload in the next analyses", definedClasses.size());
+    } catch (RuntimeException e) {
+      LOG.debug("Unable to record the classes of the scanner engine: {}", e.getMessage());
+    }
+  }
+}
@@ -19,43 +19,86 @@
  */
 package org.sonarsource.scanner.lib.internal.facade.inprocess;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.concurrent.Immutable;
 
+/**
+ * Decides whether a class can be loaded from the parent classloader. Rules are plain prefixes of class names, and the longest
+ * matching rule wins.
+ * <p>
+ * Rules are stored in a trie of characters, so that the longest mask and unmask rules are found in a single pass over the class
+ * name. The trie is not modified after construction.
+ */
 @Immutable
 public class ClassloadRules {
-  private final List<String> mask;
-  private final List<String> unmask;
+  private final Node root = new Node();
 
   public ClassloadRules(Set<String> maskRules, Set<String> unmaskRules) {
-    this.mask = new ArrayList<>(maskRules);
-    this.unmask = new ArrayList<>(unmaskRules);
+    maskRules.forEach(rule -> insert(rule).mask = true);
+    unmaskRules.forEach(rule -> insert(rule).unmask = true);
   }
 
-  public boolean canLoad(String className) {
-    // if there is a tie -> block it
-    return unmaskSize(className) > maskSize(className);
+  private Node insert(String rule) {
+    var node = root;
+    for (int i = 0; i < rule.length(); i++) {
+      node = node.getOrAddChild(rule.charAt(i));
+    }
+    return node;
   }
 
-  private int maskSize(String className) {
-    return findBestMatch(mask, className);
+  public boolean canLoad(String className) {
+    // there can be a match of 0 ("")
+    int maskSize = -1;
+    int unmaskSize = -1;
+    var node = root;
+    for (int i = 0; ; i++) {
+      if (node.mask) {
+        maskSize = i;
+      }
+      if (node.unmask) {
+        unmaskSize = i;
+      }
+      var child = i < className.length() ? node.child(className.charAt(i)) : null;
+      if (child == null) {
+        break;
+      }
+      node = child;
+    }
+    // if there is a tie -> block it
+    return unmaskSize > maskSize;
   }
 
-  private int unmaskSize(String className) {
-    return findBestMatch(unmask, className);
-  }
+  /**
+   * Nodes have few children, so they are kept in small arrays that are scanned linearly.
+   */
+  private static class Node {
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    private boolean mask;
+    private boolean unmask;
 
-  private static int findBestMatch(List<String> list, String name) {
-    // there can be a match of 0 ("")
-    int bestMatch = -1;
-    for (String s : list) {
-      if (name.startsWith(s) && s.length() > bestMatch) {
-        bestMatch = s.length();
+    @CheckForNull
+    private Node child(char c) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i] == c) {
+          return children[i];
+        }
       }
+      return null;
     }
 
-    return bestMatch;
+    private Node getOrAddChild(char c) {
+      var child = child(c);
+      if (child == null) {
+        child = new Node();
+        keys = Arrays.copyOf(keys, keys.length + 1);
+        children = Arrays.copyOf(children, children.length + 1);
+        keys[keys.length - 1] = c;
+        children[children.length - 1] = child;
+      }
+      return child;
+    }
   }
 }
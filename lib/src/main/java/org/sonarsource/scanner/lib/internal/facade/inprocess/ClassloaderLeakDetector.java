@@ -0,0 +1,172 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Closes the engine classloaders, and tracks them with weak references, so that long-lived hosts (like build daemons) can report
+ * the ones that are not garbage collected, in debug logs.
+ * <p>
+ * Before closing, the threads started by the engine are interrupted: the ones whose class is defined by the classloader, and the
+ * ones whose context classloader is still the classloader, like the threads of the executors of the engine, that inherit it.
+ * The threads of the host calling the engine get their context classloader back at the end of each call, see
+ * {@link IsolatedLauncherProxy}. The resource bundles loaded by the classloader are removed from the cache.
+ */
+class ClassloaderLeakDetector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ClassloaderLeakDetector.class);
+  private static final ClassloaderLeakDetector INSTANCE = new ClassloaderLeakDetector(Duration.ofSeconds(2));
+
+  private final Duration threadsTimeout;
+  private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+  private final Set<ClosedClassloader> closedClassloaders = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger closedCount = new AtomicInteger();
+
+  ClassloaderLeakDetector(Duration threadsTimeout) {
+    this.threadsTimeout = threadsTimeout;
+  }
+
+  static ClassloaderLeakDetector get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Stop the threads using the classloader, close it, and start tracking it.
+   */
+  void close(URLClassLoader classloader) throws IOException {
+    stopThreads(classloader);
+    try {
+      classloader.close();
+    } finally {
+      ResourceBundle.clearCache(classloader);
+      expunge();
+      closedClassloaders.add(new ClosedClassloader(classloader, closedCount.incrementAndGet(), queue));
+    }
+  }
+
+  /**
+   * Log, at debug level, the closed classloaders that are not garbage collected yet. No garbage collection is forced, so a
+   * classloader can be reported only because the JVM didn't need to collect it yet. Each classloader is reported once.
+   *
+   * @return the number of closed classloaders not garbage collected yet
+   */
+  int reportLeaks() {
+    expunge();
+    int leaks = 0;
+    for (var closed : closedClassloaders) {
+      var classloader = closed.get();
+      if (classloader == null) {
+        continue;
+      }
+      leaks++;
+      if (!closed.reported && LOG.isDebugEnabled()) {
+        closed.reported = true;
+        var threads = threadsUsing(classloader).stream().map(Thread::getName).collect(Collectors.toList());
+        LOG.debug("The scanner engine classloader #{} is not garbage collected yet. Threads using it: {}", closed.number, threads);
+      }
+    }
+    return leaks;
+  }
+
+  private void expunge() {
+    Reference<? extends ClassLoader> ref;
+    while ((ref = queue.poll()) != null) {
+      closedClassloaders.remove(ref);
+    }
+  }
+
+  private void stopThreads(ClassLoader classloader) {
+    var threads = threadsUsing(classloader);
+    if (threads.isEmpty()) {
+      return;
+    }
+    threads.forEach(Thread::interrupt);
+    long deadline = System.nanoTime() + threadsTimeout.toNanos();
+    for (var thread : threads) {
+      try {
+        long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+        if (remainingMillis > 0) {
+          thread.join(remainingMillis);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    for (var thread : threads) {
+      if (thread.isAlive()) {
+        LOG.debug("Thread '{}' started by the scanner engine is still running", thread.getName());
+      }
+    }
+  }
+
+  private static List<Thread> threadsUsing(ClassLoader classloader) {
+    return liveThreads().stream()
+      .filter(t -> t.getContextClassLoader() == classloader || t.getClass().getClassLoader() == classloader)
+      .collect(Collectors.toList());
+  }
+
+  private static List<Thread> liveThreads() {
+    var group = Thread.currentThread().getThreadGroup();
+    while (group.getParent() != null) {
+      group = group.getParent();
+    }
+    Thread[] threads;
+    int count;
+    do {
+      threads = new Thread[group.activeCount() + 16];
+      count = group.enumerate(threads, true);
+    } while (count == threads.length);
+
+    List<Thread> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      var thread = threads[i];
+      if (thread != Thread.currentThread() && thread.isAlive()) {
+        result.add(thread);
+      }
+    }
+    return result;
+  }
+
+  private static class ClosedClassloader extends WeakReference<ClassLoader> {
+    private final int number;
+    private volatile boolean reported;
+
+    private ClosedClassloader(ClassLoader classloader, int number, ReferenceQueue<ClassLoader> queue) {
+      super(classloader, queue);
+      this.number = number;
+    }
+  }
+}
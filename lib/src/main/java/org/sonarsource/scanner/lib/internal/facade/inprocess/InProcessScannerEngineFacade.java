@@ -19,13 +19,42 @@
  */
 package org.sonarsource.scanner.lib.internal.facade.inprocess;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.ScannerProperties;
+import org.sonarsource.scanner.lib.internal.batch.ExecutionResult;
+import org.sonarsource.scanner.lib.internal.batch.IsolatedLauncher;
 import org.sonarsource.scanner.lib.internal.facade.AbstractScannerEngineFacade;
 
+/**
+ * Analyses are executed in a session of the engine, started by the first analysis with the bootstrap properties as global
+ * properties, and stopped when the facade is closed. Next analyses reuse the engine and its loaded plugins, while the analysis
+ * properties only apply to the analysis that declares them.
+ * <p>
+ * Analyses can be executed concurrently by several threads. The engine runs each concurrent analysis on its own engine instance,
+ * started on demand in the same classloader: they share the loaded classes, but no analysis state. Each analysis gets its own
+ * work directory: when the work directory of an analysis is already used by a running analysis, a suffix is added to it. The
+ * context classloader is switched per call by {@link IsolatedLauncherProxy}. Closing the facade waits for the running analyses.
+ */
 public class InProcessScannerEngineFacade extends AbstractScannerEngineFacade {
 
+  private static final Logger LOG = LoggerFactory.getLogger(InProcessScannerEngineFacade.class);
+
   private final IsolatedLauncherFactory.IsolatedLauncherAndClassloader launcherAndCl;
+  private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+  private final Set<String> workDirsInUse = ConcurrentHashMap.newKeySet();
+  private boolean started;
+  private boolean closed;
+  @Nullable
+  private volatile ExecutionResult lastExecutionResult;
 
   public InProcessScannerEngineFacade(Map<String, String> bootstrapProperties, IsolatedLauncherFactory.IsolatedLauncherAndClassloader launcherAndCl,
     boolean isSonarCloud, @Nullable String serverVersion) {
@@ -35,12 +64,92 @@ public class InProcessScannerEngineFacade extends AbstractScannerEngineFacade {
 
   @Override
   protected boolean doAnalyze(Map<String, String> allProps) {
-    launcherAndCl.getLauncher().execute(allProps, new Slf4jLogOutputAdapter());
-    return true;
+    lifecycleLock.readLock().lock();
+    try {
+      var launcher = launcherAndCl.getLauncher();
+      startIfNeeded(launcher);
+      var workDir = reserveWorkDir(allProps.get(ScannerProperties.WORK_DIR));
+      try {
+        allProps.put(ScannerProperties.WORK_DIR, workDir);
+        var result = launcher.execute(allProps);
+        lastExecutionResult = result;
+        LOG.debug("Analysis execution: {}", result);
+        if (!result.isSuccess()) {
+          throw propagate(result.getFailure());
+        }
+      } finally {
+        workDirsInUse.remove(workDir);
+      }
+      return true;
+    } finally {
+      lifecycleLock.readLock().unlock();
+    }
+  }
+
+  private static RuntimeException propagate(Throwable failure) {
+    if (failure instanceof RuntimeException) {
+      return (RuntimeException) failure;
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    }
+    return new IllegalStateException(failure);
+  }
+
+  /**
+   * Result of the last analysis completed by this facade, successful or not, with the time and memory it used.
+   *
+   * @return null if no analysis was completed
+   */
+  @CheckForNull
+  public ExecutionResult getLastExecutionResult() {
+    return lastExecutionResult;
+  }
+
+  private synchronized void startIfNeeded(IsolatedLauncher launcher) {
+    if (closed) {
+      throw new IllegalStateException("Scanner engine is closed");
+    }
+    if (!started) {
+      var globalProps = new HashMap<>(getBootstrapProperties());
+      addStatsProperties(globalProps);
+      launcher.start(globalProps, new Slf4jLogOutputAdapter());
+      started = true;
+    }
+  }
+
+  private String reserveWorkDir(String workDir) {
+    if (workDirsInUse.add(workDir)) {
+      return workDir;
+    }
+    for (int i = 2; ; i++) {
+      var candidate = workDir + "-" + i;
+      if (workDirsInUse.add(candidate)) {
+        LOG.info("Work directory {} is used by a concurrent analysis, using {}", workDir, candidate);
+        return candidate;
+      }
+    }
   }
 
   @Override
   public void close() throws Exception {
-    launcherAndCl.close();
+    lifecycleLock.writeLock().lock();
+    try {
+      stopIfStarted();
+    } finally {
+      try {
+        launcherAndCl.close();
+      } finally {
+        lifecycleLock.writeLock().unlock();
+      }
+    }
+  }
+
+  private synchronized void stopIfStarted() {
+    closed = true;
+    if (started) {
+      started = false;
+      launcherAndCl.getLauncher().stop();
+    }
   }
 }
@@ -24,14 +24,35 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 /**
  * Special {@link java.net.URLClassLoader} to execute batch, which restricts loading from parent.
+ * <p>
+ * The classloader is parallel capable: classes are loaded under a lock per class name, so that the threads of the engine don't
+ * wait on each other when they load different classes.
+ * <p>
+ * When a {@link PackageIndex} of the jars is set, classes and resources of the packages that none of the jars contains are not
+ * searched in the jars. The others are looked up and defined by {@link URLClassLoader}.
  */
 class IsolatedClassloader extends URLClassLoader {
+
+  static {
+    ClassLoader.registerAsParallelCapable();
+  }
+
   private final ClassloadRules rules;
+  @Nullable
+  private volatile Queue<String> definedClasses;
+  private final AtomicInteger definedClassCount = new AtomicInteger();
+  @Nullable
+  private volatile PackageIndex packageIndex;
 
   /**
    * The parent classloader is used only for loading classes and resources in unmasked packages
@@ -51,11 +72,21 @@ class IsolatedClassloader extends URLClassLoader {
     }
   }
 
+  /**
+   * Must be called once all the jars are added.
+   */
+  void setPackageIndex(@Nullable PackageIndex packageIndex) {
+    this.packageIndex = packageIndex;
+  }
+
   /**
    * Same behavior as in {@link java.net.URLClassLoader#loadClass(String, boolean)}, except loading from parent.
+   * <p>
+   * Delegation to the parent or system classloaders doesn't take any lock, as they have their own locking. Only the classes
+   * defined by this classloader are loaded under the lock of their name.
    */
   @Override
-  protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
     // First, check if the class has already been loaded
     Class<?> c = findLoadedClass(name);
     if (c == null) {
@@ -79,7 +110,7 @@ class IsolatedClassloader extends URLClassLoader {
       } catch (ClassNotFoundException e) {
         // If still not found, then invoke findClass in order
         // to find the class.
-        c = findClass(name);
+        c = findClassLocked(name);
       }
     }
     if (resolve) {
@@ -88,6 +119,65 @@ class IsolatedClassloader extends URLClassLoader {
     return c;
   }
 
+  private Class<?> findClassLocked(String name) throws ClassNotFoundException {
+    synchronized (getClassLoadingLock(name)) {
+      // Another thread may have defined the class while this one was waiting for the lock
+      Class<?> c = findLoadedClass(name);
+      if (c == null) {
+        c = findClass(name);
+        record(name);
+      }
+      return c;
+    }
+  }
+
+  @Override
+  protected Class<?> findClass(String name) throws ClassNotFoundException {
+    var index = packageIndex;
+    if (index != null && !index.mayContain(name.replace('.', '/') + ".class")) {
+      throw new ClassNotFoundException(name);
+    }
+    return super.findClass(name);
+  }
+
+  @Override
+  public URL findResource(String name) {
+    var index = packageIndex;
+    if (index != null && !index.mayContain(name)) {
+      return null;
+    }
+    return super.findResource(name);
+  }
+
+  @Override
+  public Enumeration<URL> findResources(String name) throws IOException {
+    var index = packageIndex;
+    if (index != null && !index.mayContain(name)) {
+      return Collections.emptyEnumeration();
+    }
+    return super.findResources(name);
+  }
+
+  /**
+   * Start recording the names of the classes defined by this classloader, in the order they are defined.
+   */
+  void recordDefinedClasses(int maxRecordedClasses) {
+    definedClassCount.set(maxRecordedClasses);
+    definedClasses = new ConcurrentLinkedQueue<>();
+  }
+
+  List<String> getDefinedClasses() {
+    var recorded = definedClasses;
+    return recorded != null ? List.copyOf(recorded) : List.of();
+  }
+
+  private void record(String name) {
+    var recorded = definedClasses;
+    if (recorded != null && definedClassCount.getAndDecrement() > 0) {
+      recorded.add(name);
+    }
+  }
+
   /**
    * Unlike {@link java.net.URLClassLoader#getResource(String)} don't return resource from parent.
    * See http://jira.codehaus.org/browse/SONAR-2276
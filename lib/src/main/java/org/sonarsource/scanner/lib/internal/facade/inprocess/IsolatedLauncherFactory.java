@@ -39,46 +39,61 @@ public class IsolatedLauncherFactory {
   private static final Logger LOG = LoggerFactory.getLogger(IsolatedLauncherFactory.class);
 
   static final String ISOLATED_LAUNCHER_IMPL = "org.sonarsource.scanner.lib.internal.batch.BatchIsolatedLauncher";
-  private final TempCleaning tempCleaning;
   private final String launcherImplClassName;
 
   /**
    * For unit tests
    */
-  IsolatedLauncherFactory(String isolatedLauncherClassName, TempCleaning tempCleaning) {
-    this.tempCleaning = tempCleaning;
+  IsolatedLauncherFactory(String isolatedLauncherClassName) {
     this.launcherImplClassName = isolatedLauncherClassName;
   }
 
   public IsolatedLauncherFactory() {
-    this(ISOLATED_LAUNCHER_IMPL, new TempCleaning());
+    this(ISOLATED_LAUNCHER_IMPL);
   }
 
-  private IsolatedClassloader createClassLoader(List<Path> jarFiles, ClassloadRules maskRules) {
+  private IsolatedClassloader createClassLoader(List<Path> jarFiles, ClassloadRules maskRules, FileCache fileCache) {
     IsolatedClassloader classloader = new IsolatedClassloader(getClass().getClassLoader(), maskRules);
     classloader.addFiles(jarFiles);
+    classloader.setPackageIndex(PackageIndex.loadOrBuild(fileCache, jarFiles));
 
     return classloader;
   }
 
   public IsolatedLauncherAndClassloader createLauncher(ScannerHttpClient scannerHttpClient, FileCache fileCache) {
+    return createLauncher(scannerHttpClient, fileCache, false);
+  }
+
+  /**
+   * @param preloadClasses if true, the classes defined by the first analysis are recorded, and preloaded in background by the next
+   *                       analyses with the same engine jars
+   */
+  public IsolatedLauncherAndClassloader createLauncher(ScannerHttpClient scannerHttpClient, FileCache fileCache, boolean preloadClasses) {
     Set<String> unmaskRules = new HashSet<>();
     unmaskRules.add("org.sonarsource.scanner.lib.internal.batch.");
     ClassloadRules rules = new ClassloadRules(Collections.emptySet(), unmaskRules);
     LegacyScannerEngineDownloader legacyScannerEngineDownloader = new LegacyScannerEngineDownloaderFactory(scannerHttpClient, fileCache).create();
-    return createLauncher(legacyScannerEngineDownloader, rules);
+    return createLauncher(legacyScannerEngineDownloader, rules, fileCache, preloadClasses);
   }
 
-  IsolatedLauncherAndClassloader createLauncher(final LegacyScannerEngineDownloader legacyScannerEngineDownloader, final ClassloadRules rules) {
+  IsolatedLauncherAndClassloader createLauncher(final LegacyScannerEngineDownloader legacyScannerEngineDownloader, final ClassloadRules rules,
+    FileCache fileCache, boolean preloadClasses) {
+    ClassloaderLeakDetector.get().reportLeaks();
+    ClassPreloader preloader = null;
     try {
       List<CachedFile> jarFiles = legacyScannerEngineDownloader.getOrDownload();
       LOG.debug("Create isolated classloader...");
-      var cl = createClassLoader(jarFiles.stream().map(CachedFile::getPathInCache).collect(Collectors.toList()), rules);
+      var jarPaths = jarFiles.stream().map(CachedFile::getPathInCache).collect(Collectors.toList());
+      var cl = createClassLoader(jarPaths, rules, fileCache);
+      if (preloadClasses) {
+        preloader = ClassPreloader.start(fileCache, jarPaths, cl);
+      }
       IsolatedLauncher objProxy = IsolatedLauncherProxy.create(cl, IsolatedLauncher.class, launcherImplClassName);
-      tempCleaning.clean();
-
-      return new IsolatedLauncherAndClassloader(objProxy, cl, jarFiles.stream().allMatch(CachedFile::isCacheHit));
+      return new IsolatedLauncherAndClassloader(objProxy, cl, jarFiles.stream().allMatch(CachedFile::isCacheHit), preloader);
     } catch (Exception e) {
+      if (preloader != null) {
+        preloader.close();
+      }
       // Catch all other exceptions, which relates to reflection
       throw new ScannerException("Unable to execute SonarScanner analysis", e);
     }
@@ -88,11 +103,19 @@ public class IsolatedLauncherFactory {
     private final IsolatedLauncher launcher;
     private final URLClassLoader classloader;
     private final boolean engineCacheHit;
+    @Nullable
+    private final ClassPreloader preloader;
 
     public IsolatedLauncherAndClassloader(IsolatedLauncher launcher, @Nullable URLClassLoader classloader, boolean engineCacheHit) {
+      this(launcher, classloader, engineCacheHit, null);
+    }
+
+    IsolatedLauncherAndClassloader(IsolatedLauncher launcher, @Nullable URLClassLoader classloader, boolean engineCacheHit,
+      @Nullable ClassPreloader preloader) {
       this.launcher = launcher;
       this.classloader = classloader;
       this.engineCacheHit = engineCacheHit;
+      this.preloader = preloader;
     }
 
     public IsolatedLauncher getLauncher() {
@@ -101,8 +124,11 @@ public class IsolatedLauncherFactory {
 
     @Override
     public void close() throws Exception {
+      if (preloader != null) {
+        preloader.close();
+      }
       if (classloader != null) {
-        classloader.close();
+        ClassloaderLeakDetector.get().close(classloader);
       }
     }
 
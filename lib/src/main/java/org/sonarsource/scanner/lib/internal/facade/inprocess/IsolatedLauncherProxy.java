@@ -52,18 +52,28 @@ public class IsolatedLauncherProxy implements InvocationHandler {
     return (T) Proxy.newProxyInstance(cl, c, new IsolatedLauncherProxy(cl, proxied));
   }
 
+  /**
+   * The context classloader is only switched when the calling thread doesn't already use the isolated classloader, for example
+   * when the engine calls back the library.
+   */
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-    ClassLoader initialContextClassLoader = Thread.currentThread().getContextClassLoader();
+    var thread = Thread.currentThread();
+    ClassLoader initialContextClassLoader = thread.getContextClassLoader();
+    boolean switchContextClassLoader = initialContextClassLoader != cl;
 
     try {
-      Thread.currentThread().setContextClassLoader(cl);
+      if (switchContextClassLoader) {
+        thread.setContextClassLoader(cl);
+      }
       LOG.debug("Execution {}", method.getName());
       return method.invoke(proxied, args);
     } catch (UndeclaredThrowableException | InvocationTargetException e) {
       throw unwrapException(e);
     } finally {
-      Thread.currentThread().setContextClassLoader(initialContextClassLoader);
+      if (switchContextClassLoader) {
+        thread.setContextClassLoader(initialContextClassLoader);
+      }
     }
   }
 
@@ -80,8 +90,8 @@ public class IsolatedLauncherProxy implements InvocationHandler {
     return cause;
   }
 
-  private static Object createProxiedObject(ClassLoader cl, String proxiedClassName) throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+  private static Object createProxiedObject(ClassLoader cl, String proxiedClassName) throws ReflectiveOperationException {
     Class<?> proxiedClass = cl.loadClass(proxiedClassName);
-    return proxiedClass.newInstance();
+    return proxiedClass.getDeclaredConstructor().newInstance();
   }
 }
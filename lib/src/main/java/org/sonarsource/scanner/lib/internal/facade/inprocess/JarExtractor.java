@@ -19,26 +19,60 @@
  */
 package org.sonarsource.scanner.lib.internal.facade.inprocess;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.sonarsource.scanner.lib.internal.cache.CachedFile;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.cache.FileHashes;
+import org.sonarsource.scanner.lib.internal.util.IoBuffers;
 
+/**
+ * Jars embedded in the library are stored once in the file cache, under the hash of their content, instead of being copied
+ * to a new temp file at each execution. The content of the embedded jars can't change while the JVM runs, so their hash is only
+ * computed once.
+ */
 public class JarExtractor {
 
-  public Path extractToTemp(String filenameWithoutSuffix) {
+  static final String HASH_ALGORITHM = "SHA-256";
+  private static final Map<String, String> HASHES_BY_URL = new ConcurrentHashMap<>();
+
+  public CachedFile extractToCache(String filenameWithoutSuffix, FileCache fileCache) {
     String filename = filenameWithoutSuffix + ".jar";
     URL url = getClass().getResource("/" + filename);
     try {
-      Path copy = Files.createTempFile(filenameWithoutSuffix, ".jar");
-      copy.toFile().deleteOnExit();
-      try (InputStream in = url.openStream()) {
-        Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+      if (url == null) {
+        throw new IllegalStateException("Resource not found");
       }
-      return copy;
+      var hash = HASHES_BY_URL.computeIfAbsent(url.toString(), u -> hash(url));
+      return fileCache.getOrDownload(filename, hash, HASH_ALGORITHM, (name, toFile) -> {
+        try (InputStream in = url.openStream()) {
+          IoBuffers.copy(in, toFile);
+        }
+      });
     } catch (Exception e) {
       throw new IllegalStateException("Fail to extract " + filename, e);
     }
   }
+
+  private static String hash(URL url) {
+    try {
+      var digest = MessageDigest.getInstance(HASH_ALGORITHM);
+      try (InputStream in = new DigestInputStream(url.openStream(), digest)) {
+        in.transferTo(OutputStream.nullOutputStream());
+      }
+      return FileHashes.toHex(digest.digest());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
 }
@@ -56,8 +56,8 @@ class LegacyScannerEngineDownloader {
 
   List<CachedFile> getOrDownload() {
     List<CachedFile> files = new ArrayList<>();
-    LOG.debug("Extract sonar-scanner-java-library-batch in temp...");
-    files.add(new CachedFile(jarExtractor.extractToTemp("sonar-scanner-java-library-batch"), true));
+    LOG.debug("Extract sonar-scanner-java-library-batch in cache...");
+    files.add(jarExtractor.extractToCache("sonar-scanner-java-library-batch", fileCache));
     files.addAll(getOrDownloadScannerEngineFiles());
     return files;
   }
@@ -0,0 +1,139 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.zip.ZipFile;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+
+/**
+ * Index of the directories of a list of jars, so that looking up a class or a resource in a package that none of the jars contains
+ * fails without searching the jars one by one. It is stored as metadata of the file cache, and reused as long as the jars don't
+ * change.
+ * <p>
+ * Jars referencing other jars with the {@code Class-Path} attribute of their manifest are not indexed.
+ */
+class PackageIndex {
+
+  private static final Logger LOG = LoggerFactory.getLogger(PackageIndex.class);
+
+  static final String FILENAME = "package-index.txt";
+  private static final String HEADER = "package-index-v2";
+
+  private final Set<String> directories;
+
+  PackageIndex(Set<String> directories) {
+    this.directories = directories;
+  }
+
+  /**
+   * @return the index of the jars, or null if it can't be built. Classes and resources are then looked up in all the jars.
+   */
+  @CheckForNull
+  static PackageIndex loadOrBuild(FileCache fileCache, List<Path> jars) {
+    try {
+      var key = fileCache.metadataKey(jars);
+      var file = fileCache.getMetadata(key, FILENAME);
+      if (file != null) {
+        var index = read(file);
+        if (index != null) {
+          LOG.debug("Package index loaded from {}", file);
+          return index;
+        }
+        LOG.debug("Ignoring invalid package index {}", file);
+      }
+      var index = build(jars);
+      if (index != null) {
+        fileCache.putMetadata(key, FILENAME, index::write);
+      }
+      return index;
+    } catch (IOException | RuntimeException e) {
+      LOG.debug("Unable to index packages of the scanner engine: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * @return the index, or null if one of the jars references other jars in its manifest
+   */
+  @CheckForNull
+  static PackageIndex build(List<Path> jars) throws IOException {
+    Set<String> directories = new HashSet<>();
+    for (var jar : jars) {
+      try (var jarFile = new JarFile(jar.toFile(), false, ZipFile.OPEN_READ, JarFile.runtimeVersion())) {
+        var manifest = jarFile.getManifest();
+        if (manifest != null && manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH) != null) {
+          LOG.debug("Not indexing packages, as {} has a Class-Path", jar);
+          return null;
+        }
+        jarFile.versionedStream().forEach(entry -> directories.add(directoryOf(entry.getName())));
+      }
+    }
+    return new PackageIndex(directories);
+  }
+
+  /**
+   * @return the directory of a resource, ignoring its trailing slash if it is itself a directory, so that a resource and the
+   * directory entry with the same name are in the same directory
+   */
+  static String directoryOf(String resourceName) {
+    return resourceName.substring(0, resourceName.lastIndexOf('/', resourceName.length() - 2) + 1);
+  }
+
+  /**
+   * @return false if none of the jars has entries in the directory of the given resource, so that it can't be found in them
+   */
+  boolean mayContain(String resourceName) {
+    // Names that the jar lookup normalizes are not filtered
+    if (resourceName.startsWith("/") || resourceName.contains("./")) {
+      return true;
+    }
+    return directories.contains(directoryOf(resourceName));
+  }
+
+  void write(Path file) throws IOException {
+    try (var writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(HEADER + "\n");
+      for (var directory : directories) {
+        writer.write(directory + "\n");
+      }
+    }
+  }
+
+  @CheckForNull
+  static PackageIndex read(Path file) throws IOException {
+    var lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+    if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+      return null;
+    }
+    return new PackageIndex(new HashSet<>(lines.subList(1, lines.size())));
+  }
+}
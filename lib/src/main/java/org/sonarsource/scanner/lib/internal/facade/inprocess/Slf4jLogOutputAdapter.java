@@ -48,4 +48,34 @@ public class Slf4jLogOutputAdapter implements LogOutput {
         throw new IllegalArgumentException("Unsupported log level: " + level);
     }
   }
+
+  @Override
+  public boolean isEnabled(Level level) {
+    switch (level) {
+      case TRACE:
+        return LOG.isTraceEnabled();
+      case DEBUG:
+        return LOG.isDebugEnabled();
+      case INFO:
+        return LOG.isInfoEnabled();
+      case WARN:
+        return LOG.isWarnEnabled();
+      case ERROR:
+        return LOG.isErrorEnabled();
+      default:
+        throw new IllegalArgumentException("Unsupported log level: " + level);
+    }
+  }
+
+  @Override
+  public void log(String[] formattedMessages, Level[] levels) {
+    if (formattedMessages.length != levels.length) {
+      throw new IllegalArgumentException("Messages and levels must have the same length");
+    }
+    for (int i = 0; i < formattedMessages.length; i++) {
+      if (isEnabled(levels[i])) {
+        log(formattedMessages[i], levels[i]);
+      }
+    }
+  }
 }
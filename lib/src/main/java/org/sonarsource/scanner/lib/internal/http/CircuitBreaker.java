@@ -0,0 +1,80 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Stop calling a host after too many consecutive failures, so that a down server fails fast instead of waiting for a timeout on
+ * every call. Once the open duration has elapsed, one call is let through: it closes the circuit if it succeeds, or opens it again.
+ */
+class CircuitBreaker {
+
+  static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+  private final int threshold;
+  private final Duration openDuration;
+  private final LongSupplier nanoClock;
+  private int consecutiveFailures;
+  private long openUntil;
+
+  CircuitBreaker(int threshold) {
+    this(threshold, DEFAULT_OPEN_DURATION, System::nanoTime);
+  }
+
+  CircuitBreaker(int threshold, Duration openDuration, LongSupplier nanoClock) {
+    this.threshold = threshold;
+    this.openDuration = openDuration;
+    this.nanoClock = nanoClock;
+  }
+
+  synchronized boolean allowRequest() {
+    if (!isOpen()) {
+      return true;
+    }
+    long now = nanoClock.getAsLong();
+    if (now - openUntil >= 0) {
+      // Half-open: let this call through, but not the concurrent ones
+      openUntil = now + openDuration.toNanos();
+      return true;
+    }
+    return false;
+  }
+
+  synchronized boolean isOpen() {
+    return threshold > 0 && consecutiveFailures >= threshold;
+  }
+
+  synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  synchronized void recordSuccess() {
+    consecutiveFailures = 0;
+  }
+
+  synchronized void recordFailure() {
+    consecutiveFailures++;
+    if (isOpen()) {
+      openUntil = nanoClock.getAsLong() + openDuration.toNanos();
+    }
+  }
+}
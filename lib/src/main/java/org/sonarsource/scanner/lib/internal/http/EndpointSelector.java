@@ -0,0 +1,137 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.CheckForNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+/**
+ * Rank equivalent base URLs (server nodes, or mirrors of an artifact repository), so that calls go to the fastest healthy one first.
+ * <p>
+ * When there is more than one base URL, they are all probed in parallel with a HEAD request the first time the ranking is needed,
+ * and sorted by latency. Unreachable ones are ranked last. Base URLs that fail afterward are moved to the end of the ranking.
+ * With a single base URL, nothing is probed.
+ */
+class EndpointSelector {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EndpointSelector.class);
+
+  static final Duration PROBE_TIMEOUT = Duration.ofSeconds(5);
+
+  interface Prober {
+    void probe(String url) throws IOException;
+  }
+
+  private final List<String> baseUrls;
+  private final Prober prober;
+  private List<String> ranking;
+  @CheckForNull
+  private CompletableFuture<Void> probing;
+
+  EndpointSelector(List<String> baseUrls, Prober prober) {
+    this.baseUrls = List.copyOf(baseUrls);
+    this.prober = prober;
+    this.ranking = this.baseUrls;
+  }
+
+  List<String> getBaseUrls() {
+    return baseUrls;
+  }
+
+  /**
+   * Start probing the base URLs in background, if not already done.
+   */
+  synchronized CompletableFuture<Void> probeAsync() {
+    if (baseUrls.size() < 2) {
+      return CompletableFuture.completedFuture(null);
+    }
+    if (probing == null) {
+      var latencies = new LinkedHashMap<String, CompletableFuture<Duration>>();
+      for (var baseUrl : baseUrls) {
+        latencies.put(baseUrl, CompletableFuture.supplyAsync(() -> probe(baseUrl), Utils.daemonExecutor("sonar-scanner-endpoint-probe"))
+          .completeOnTimeout(null, PROBE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+      }
+      probing = CompletableFuture.allOf(latencies.values().toArray(new CompletableFuture<?>[0]))
+        .thenRun(() -> rank(latencies));
+    }
+    return probing;
+  }
+
+  @CheckForNull
+  private Duration probe(String baseUrl) {
+    long start = System.nanoTime();
+    try {
+      prober.probe(baseUrl);
+      return Duration.ofNanos(System.nanoTime() - start);
+    } catch (Exception e) {
+      LOG.debug("Endpoint {} is unreachable: {}", baseUrl, e.getMessage());
+      return null;
+    }
+  }
+
+  private void rank(Map<String, CompletableFuture<Duration>> latencies) {
+    Map<String, Duration> results = new LinkedHashMap<>();
+    latencies.forEach((baseUrl, latency) -> results.put(baseUrl, latency.join()));
+    // The sort is stable, so endpoints with the same latency keep the configured order
+    var sorted = new ArrayList<>(baseUrls);
+    sorted.sort(Comparator.comparing(results::get, Comparator.nullsLast(Comparator.naturalOrder())));
+    LOG.debug("Endpoint latencies: {}", results.entrySet().stream()
+      .map(e -> e.getKey() + "=" + (e.getValue() != null ? (e.getValue().toMillis() + "ms") : "unreachable"))
+      .collect(Collectors.joining(", ")));
+    synchronized (this) {
+      ranking = List.copyOf(sorted);
+    }
+  }
+
+  /**
+   * @return the base URLs, the preferred one first. Wait for the probes to complete if needed.
+   */
+  List<String> getRanking() {
+    probeAsync().join();
+    synchronized (this) {
+      return ranking;
+    }
+  }
+
+  /**
+   * Move the given base URL to the end of the ranking, after a failure.
+   */
+  synchronized void demote(String baseUrl) {
+    if (ranking.size() < 2 || !ranking.contains(baseUrl)) {
+      return;
+    }
+    var newRanking = new ArrayList<>(ranking);
+    newRanking.remove(baseUrl);
+    newRanking.add(baseUrl);
+    ranking = List.copyOf(newRanking);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.sonarsource.scanner.lib.internal.http.TokenBucketRateLimiter.refill;
+import static org.sonarsource.scanner.lib.internal.http.TokenBucketRateLimiter.sleepNanos;
+import static org.sonarsource.scanner.lib.internal.http.TokenBucketRateLimiter.waitNanos;
+
+/**
+ * Token bucket shared by all the processes of the machine. The state of the bucket (time of the last refill and available tokens)
+ * is stored in a small file, that is locked while it is updated. If the file can't be used, the host-wide limit is ignored.
+ * <p>
+ * To avoid locking the file for every chunk that is read, tokens are taken from the file in batches of one second's worth, and
+ * handed out locally until the batch is used up.
+ */
+class FileTokenBucketRateLimiter implements RateLimiter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileTokenBucketRateLimiter.class);
+
+  private static final int STATE_SIZE = Long.BYTES + Double.BYTES;
+  // File locks are held by the whole JVM, so threads of the same process must not try to lock the same file concurrently
+  private static final Map<Path, Object> IN_PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+  private final Path tokenFile;
+  private final long bytesPerSecond;
+  private final LongSupplier epochNanoClock;
+  private final Object inProcessLock;
+  private volatile boolean disabled;
+  // Tokens of the last batch taken from the file that are not handed out yet, and the time at which the batch is available
+  private long localTokens;
+  private long localTokensAvailableAt;
+
+  FileTokenBucketRateLimiter(Path tokenFile, long bytesPerSecond) {
+    this(tokenFile, bytesPerSecond, () -> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+  }
+
+  FileTokenBucketRateLimiter(Path tokenFile, long bytesPerSecond, LongSupplier epochNanoClock) {
+    this.tokenFile = tokenFile;
+    this.bytesPerSecond = bytesPerSecond;
+    this.epochNanoClock = epochNanoClock;
+    this.inProcessLock = IN_PROCESS_LOCKS.computeIfAbsent(tokenFile.toAbsolutePath().normalize(), p -> new Object());
+  }
+
+  @Override
+  public void acquire(int bytes) throws InterruptedIOException {
+    if (disabled) {
+      return;
+    }
+    long waitNanos;
+    synchronized (this) {
+      if (localTokens < bytes) {
+        long batch = Math.max(bytes - localTokens, bytesPerSecond);
+        try {
+          localTokensAvailableAt = epochNanoClock.getAsLong() + reserve(batch);
+        } catch (IOException e) {
+          disabled = true;
+          LOG.warn("Unable to use the file {} to limit the download rate of the machine, this limit will be ignored: {}", tokenFile, e.getMessage());
+          return;
+        }
+        localTokens += batch;
+      }
+      localTokens -= bytes;
+      waitNanos = localTokensAvailableAt - epochNanoClock.getAsLong();
+    }
+    sleepNanos(waitNanos);
+  }
+
+  long reserve(long bytes) throws IOException {
+    synchronized (inProcessLock) {
+      try (var channel = FileChannel.open(tokenFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        // Released when the channel is closed
+        channel.lock();
+        long now = epochNanoClock.getAsLong();
+        var state = ByteBuffer.allocate(STATE_SIZE);
+        double tokens;
+        if (channel.read(state, 0) == STATE_SIZE) {
+          state.flip();
+          long lastRefill = state.getLong();
+          tokens = refill(state.getDouble(), now - lastRefill, bytesPerSecond);
+        } else {
+          tokens = bytesPerSecond;
+        }
+        tokens -= bytes;
+        state.clear();
+        state.putLong(now).putDouble(tokens).flip();
+        channel.write(state, 0);
+        return waitNanos(tokens, bytesPerSecond);
+      }
+    }
+  }
+}
@@ -26,9 +26,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
@@ -45,7 +49,22 @@ import static java.lang.String.format;
 import static org.apache.commons.lang3.StringUtils.defaultIfBlank;
 import static org.sonarsource.scanner.lib.EnvironmentConfig.TOKEN_ENV_VARIABLE;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_LOGIN;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_ALTERNATIVE_API_BASE_URLS;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_ALTERNATIVE_HOST_URLS;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_CONNECTION_KEEP_ALIVE;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_CONNECTION_POOL_SIZE;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_CONNECT_TIMEOUT;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_DOWNLOAD_MIRRORS;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_DOWNLOAD_RATE_LIMIT;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HOST_DOWNLOAD_RATE_LIMIT;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_CIRCUIT_BREAKER_THRESHOLD;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_MAX_RETRIES;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_PROTOCOL;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_RETRY_BUDGET;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_RETRY_INITIAL_BACKOFF;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_RETRY_MAX_BACKOFF;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_TRANSPORT;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_HTTP_VIRTUAL_THREADS;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_KEYSTORE_PASSWORD;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_KEYSTORE_PATH;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_PROXY_HOST;
@@ -56,6 +75,7 @@ import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_RESPON
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SKIP_JVM_SSL_CONFIG;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SOCKET_TIMEOUT;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SYSTEM_TRUSTSTORE_TIMEOUT;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_TRUSTSTORE_PASSWORD;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_TRUSTSTORE_PATH;
 import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_TOKEN;
@@ -73,9 +93,21 @@ public class HttpConfig {
   public static final String READ_TIMEOUT_SEC_PROPERTY = "sonar.ws.timeout";
   static final Duration DEFAULT_READ_TIMEOUT_SEC = Duration.ofSeconds(60);
   static final int DEFAULT_PROXY_PORT = 80;
+  static final Duration DEFAULT_SYSTEM_TRUSTSTORE_TIMEOUT = Duration.ofSeconds(30);
+  static final int DEFAULT_CONNECTION_POOL_SIZE = 5;
+  static final Duration DEFAULT_CONNECTION_KEEP_ALIVE = Duration.ofMinutes(5);
+  static final int DEFAULT_MAX_RETRIES = 3;
+  static final int DEFAULT_RETRY_BUDGET = 10;
+  static final Duration DEFAULT_RETRY_INITIAL_BACKOFF = Duration.ofSeconds(1);
+  static final Duration DEFAULT_RETRY_MAX_BACKOFF = Duration.ofSeconds(30);
+  static final int DEFAULT_CIRCUIT_BREAKER_THRESHOLD = 5;
+  static final String HOST_DOWNLOAD_RATE_LIMIT_FILE = "download-rate-limit.tokens";
 
   private final String webApiBaseUrl;
   private final String restApiBaseUrl;
+  private final List<String> webApiBaseUrls;
+  private final List<String> restApiBaseUrls;
+  private final List<String> downloadMirrors;
   @Nullable
   private final String token;
   @Nullable
@@ -96,10 +128,27 @@ public class HttpConfig {
   private final String proxyPassword;
   private final String userAgent;
   private final boolean skipSystemTrustMaterial;
+  private final Duration systemTrustMaterialTimeout;
+  private final HttpProtocol httpProtocol;
+  private final HttpTransportType httpTransportType;
+  private final boolean virtualThreads;
+  private final int connectionPoolSize;
+  private final Duration connectionKeepAlive;
+  private final int maxRetries;
+  private final int retryBudget;
+  private final Duration retryInitialBackoff;
+  private final Duration retryMaxBackoff;
+  private final int circuitBreakerThreshold;
+  private final long downloadRateLimit;
+  private final long hostDownloadRateLimit;
+  private final Path hostDownloadRateLimitFile;
 
   public HttpConfig(Map<String, String> bootstrapProperties, Path sonarUserHome, System2 system) {
     this.webApiBaseUrl = StringUtils.removeEnd(bootstrapProperties.get(ScannerProperties.HOST_URL), "/");
     this.restApiBaseUrl = StringUtils.removeEnd(bootstrapProperties.get(ScannerProperties.API_BASE_URL), "/");
+    this.webApiBaseUrls = withAlternatives(webApiBaseUrl, bootstrapProperties.get(SONAR_SCANNER_ALTERNATIVE_HOST_URLS));
+    this.restApiBaseUrls = withAlternatives(restApiBaseUrl, bootstrapProperties.get(SONAR_SCANNER_ALTERNATIVE_API_BASE_URLS));
+    this.downloadMirrors = withAlternatives(null, bootstrapProperties.get(SONAR_SCANNER_DOWNLOAD_MIRRORS));
     this.token = bootstrapProperties.get(ScannerProperties.SONAR_TOKEN);
     this.login = bootstrapProperties.get(ScannerProperties.SONAR_LOGIN);
     this.system = system;
@@ -117,6 +166,59 @@ public class HttpConfig {
     this.proxyUser = loadProxyUser(bootstrapProperties);
     this.proxyPassword = loadProxyPassword(bootstrapProperties);
     this.skipSystemTrustMaterial = Boolean.parseBoolean(defaultIfBlank(bootstrapProperties.get(SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE), "false"));
+    this.systemTrustMaterialTimeout = loadDuration(bootstrapProperties, SONAR_SCANNER_SYSTEM_TRUSTSTORE_TIMEOUT, null, DEFAULT_SYSTEM_TRUSTSTORE_TIMEOUT);
+    this.httpProtocol = loadHttpProtocol(bootstrapProperties);
+    this.httpTransportType = loadHttpTransportType(bootstrapProperties);
+    this.virtualThreads = Boolean.parseBoolean(defaultIfBlank(bootstrapProperties.get(SONAR_SCANNER_HTTP_VIRTUAL_THREADS), "false"));
+    this.connectionPoolSize = loadInt(bootstrapProperties, SONAR_SCANNER_CONNECTION_POOL_SIZE, DEFAULT_CONNECTION_POOL_SIZE, 1);
+    this.connectionKeepAlive = loadDuration(bootstrapProperties, SONAR_SCANNER_CONNECTION_KEEP_ALIVE, null, DEFAULT_CONNECTION_KEEP_ALIVE);
+    this.maxRetries = loadInt(bootstrapProperties, SONAR_SCANNER_HTTP_MAX_RETRIES, DEFAULT_MAX_RETRIES, 0);
+    this.retryBudget = loadInt(bootstrapProperties, SONAR_SCANNER_HTTP_RETRY_BUDGET, DEFAULT_RETRY_BUDGET, 0);
+    this.retryInitialBackoff = loadDuration(bootstrapProperties, SONAR_SCANNER_HTTP_RETRY_INITIAL_BACKOFF, null, DEFAULT_RETRY_INITIAL_BACKOFF);
+    this.retryMaxBackoff = loadDuration(bootstrapProperties, SONAR_SCANNER_HTTP_RETRY_MAX_BACKOFF, null, DEFAULT_RETRY_MAX_BACKOFF);
+    this.circuitBreakerThreshold = loadInt(bootstrapProperties, SONAR_SCANNER_HTTP_CIRCUIT_BREAKER_THRESHOLD, DEFAULT_CIRCUIT_BREAKER_THRESHOLD);
+    this.downloadRateLimit = loadInt(bootstrapProperties, SONAR_SCANNER_DOWNLOAD_RATE_LIMIT, 0) * 1024L;
+    this.hostDownloadRateLimit = loadInt(bootstrapProperties, SONAR_SCANNER_HOST_DOWNLOAD_RATE_LIMIT, 0) * 1024L;
+    this.hostDownloadRateLimitFile = sonarUserHome.resolve(HOST_DOWNLOAD_RATE_LIMIT_FILE);
+  }
+
+  private static int loadInt(Map<String, String> bootstrapProperties, String propKey, int defaultValue) {
+    return bootstrapProperties.containsKey(propKey) ? parseIntProperty(bootstrapProperties.get(propKey), propKey) : defaultValue;
+  }
+
+  private static int loadInt(Map<String, String> bootstrapProperties, String propKey, int defaultValue, int minValue) {
+    int value = loadInt(bootstrapProperties, propKey, defaultValue);
+    if (value < minValue) {
+      throw new IllegalArgumentException(propKey + " is not valid: " + value + ". It must be greater than or equal to " + minValue);
+    }
+    return value;
+  }
+
+  private static List<String> withAlternatives(@Nullable String url, @Nullable String alternatives) {
+    var urls = new LinkedHashSet<String>();
+    if (url != null) {
+      urls.add(url);
+    }
+    if (alternatives != null) {
+      Arrays.stream(alternatives.split(","))
+        .map(String::trim)
+        .filter(StringUtils::isNotBlank)
+        .map(alternative -> StringUtils.removeEnd(alternative, "/"))
+        .forEach(urls::add);
+    }
+    return List.copyOf(urls);
+  }
+
+  private static HttpProtocol loadHttpProtocol(Map<String, String> bootstrapProperties) {
+    var value = bootstrapProperties.get(SONAR_SCANNER_HTTP_PROTOCOL);
+    if (StringUtils.isBlank(value)) {
+      return HttpProtocol.HTTP2;
+    }
+    return Arrays.stream(HttpProtocol.values())
+      .filter(p -> p.getKey().equalsIgnoreCase(value.trim()))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(SONAR_SCANNER_HTTP_PROTOCOL + " is not valid: " + value + ". Possible values are: "
+        + Arrays.stream(HttpProtocol.values()).map(HttpProtocol::getKey).collect(Collectors.joining(", "))));
   }
 
   @CheckForNull
@@ -131,6 +233,18 @@ public class HttpConfig {
     return scannerProxyUser != null ? scannerProxyUser : system.getProperty("http.proxyUser");
   }
 
+  private static HttpTransportType loadHttpTransportType(Map<String, String> bootstrapProperties) {
+    var value = bootstrapProperties.get(SONAR_SCANNER_HTTP_TRANSPORT);
+    if (StringUtils.isBlank(value)) {
+      return HttpTransportType.OKHTTP;
+    }
+    return Arrays.stream(HttpTransportType.values())
+      .filter(t -> t.getKey().equalsIgnoreCase(value.trim()))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(SONAR_SCANNER_HTTP_TRANSPORT + " is not valid: " + value + ". Possible values are: "
+        + Arrays.stream(HttpTransportType.values()).map(HttpTransportType::getKey).collect(Collectors.joining(", "))));
+  }
+
   private static Duration loadDuration(Map<String, String> bootstrapProperties, String propKey, @Nullable String deprecatedPropKey, Duration defaultValue) {
     if (bootstrapProperties.containsKey(propKey)) {
       return parseDurationProperty(bootstrapProperties.get(propKey), propKey);
@@ -163,7 +277,7 @@ public class HttpConfig {
    * For testing, we can accept timeouts that are smaller than a second, expressed using ISO-8601 format for durations.
    * If we can't parse as ISO-8601, then fallback to the official format that is simply the number of seconds
    */
-  private static Duration parseDurationProperty(String propValue, String propKey) {
+  public static Duration parseDurationProperty(String propValue, String propKey) {
     try {
       return Duration.parse(propValue);
     } catch (DateTimeParseException e) {
@@ -248,6 +362,24 @@ public class HttpConfig {
     return restApiBaseUrl;
   }
 
+  /**
+   * @return the base URL of the web API, followed by the ones of the equivalent nodes
+   */
+  public List<String> getWebApiBaseUrls() {
+    return webApiBaseUrls;
+  }
+
+  /**
+   * @return the base URL of the REST API, followed by the ones of the equivalent nodes
+   */
+  public List<String> getRestApiBaseUrls() {
+    return restApiBaseUrls;
+  }
+
+  public List<String> getDownloadMirrors() {
+    return downloadMirrors;
+  }
+
   @Nullable
   public String getToken() {
     return token;
@@ -301,4 +433,75 @@ public class HttpConfig {
   public boolean skipSystemTruststore() {
     return skipSystemTrustMaterial;
   }
+
+  public HttpProtocol getHttpProtocol() {
+    return httpProtocol;
+  }
+
+  public HttpTransportType getHttpTransportType() {
+    return httpTransportType;
+  }
+
+  public boolean useVirtualThreads() {
+    return virtualThreads;
+  }
+
+  public int getConnectionPoolSize() {
+    return connectionPoolSize;
+  }
+
+  public Duration getConnectionKeepAlive() {
+    return connectionKeepAlive;
+  }
+
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  public int getRetryBudget() {
+    return retryBudget;
+  }
+
+  public Duration getRetryInitialBackoff() {
+    return retryInitialBackoff;
+  }
+
+  public Duration getRetryMaxBackoff() {
+    return retryMaxBackoff;
+  }
+
+  /**
+   * @return the number of consecutive failures after which a host is considered down. 0 means the circuit breaker is disabled.
+   */
+  public int getCircuitBreakerThreshold() {
+    return circuitBreakerThreshold;
+  }
+
+  /**
+   * @return the maximum download speed of this process, in bytes per second. 0 means no limit.
+   */
+  public long getDownloadRateLimit() {
+    return downloadRateLimit;
+  }
+
+  /**
+   * @return the maximum download speed shared by all processes using the same sonar.userHome, in bytes per second. 0 means no limit.
+   */
+  public long getHostDownloadRateLimit() {
+    return hostDownloadRateLimit;
+  }
+
+  /**
+   * @return the file used to coordinate the host-wide download rate limit between processes
+   */
+  public Path getHostDownloadRateLimitFile() {
+    return hostDownloadRateLimitFile;
+  }
+
+  /**
+   * @return the time budget for loading the OS trusted certificates. {@link Duration#ZERO} means no limit.
+   */
+  public Duration getSystemTruststoreTimeout() {
+    return systemTrustMaterialTimeout;
+  }
 }
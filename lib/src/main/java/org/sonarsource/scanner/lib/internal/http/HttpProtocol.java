@@ -0,0 +1,49 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+/**
+ * HTTP protocol used to talk to the server.
+ */
+public enum HttpProtocol {
+  /**
+   * HTTP/2 when the server agrees during the TLS handshake, HTTP/1.1 otherwise
+   */
+  HTTP2("http2"),
+  /**
+   * Always HTTP/1.1
+   */
+  HTTP1("http1"),
+  /**
+   * HTTP/2 without upgrade for the {@code http://} URLs of the server, known to support HTTP/2 over cleartext. Other URLs, like
+   * external downloads, are called like with {@link #HTTP2}.
+   */
+  H2C("h2c");
+
+  private final String key;
+
+  HttpProtocol(String key) {
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import nl.altindag.ssl.SSLFactory;
+
+/**
+ * Low level HTTP client used by {@link ScannerHttpClient}. Implementations are configured from the {@link HttpConfig} (timeouts,
+ * proxy, authentication, SSL), and only execute a single exchange: redirects are followed, but retries are handled by the caller.
+ */
+public interface HttpTransport {
+
+  static HttpTransport create(HttpConfig httpConfig, SSLFactory sslFactory) {
+    if (httpConfig.getHttpTransportType() == HttpTransportType.JDK) {
+      return new JdkHttpTransport(httpConfig, sslFactory);
+    }
+    return new OkHttpTransport(httpConfig, sslFactory);
+  }
+
+  /**
+   * Send a GET request. Redirects are followed, and the authentication, if requested, is preserved when following them.
+   *
+   * @param url            the URL to call
+   * @param authentication if true, the request is authenticated with the token or login/password of the {@link HttpConfig}
+   * @param acceptHeader   the value of the Accept header
+   * @return the response, whatever its status code. It must be closed by the caller.
+   * @throws IOException if connectivity problem or timeout (network)
+   */
+  Response get(String url, boolean authentication, @Nullable String acceptHeader) throws IOException;
+
+  /**
+   * Send an unauthenticated HEAD request, without following redirects. Only used to open a connection to the host.
+   */
+  void head(String url) throws IOException;
+
+  /**
+   * Release the resources held by the transport (threads, connections). No request can be sent afterward.
+   */
+  default void close() {
+    // nothing to release by default
+  }
+
+  interface Response extends Closeable {
+
+    /**
+     * @return the URL of the last request, after redirects
+     */
+    URL getUrl();
+
+    int getCode();
+
+    /**
+     * @return the reason phrase, or an empty string if the protocol doesn't have one (HTTP/2)
+     */
+    String getMessage();
+
+    @CheckForNull
+    String getHeader(String name);
+
+    InputStream getBody() throws IOException;
+
+    String getBodyAsString() throws IOException;
+
+    default boolean isSuccessful() {
+      return getCode() >= 200 && getCode() < 300;
+    }
+  }
+}
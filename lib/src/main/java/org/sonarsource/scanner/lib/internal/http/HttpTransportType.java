@@ -0,0 +1,44 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+/**
+ * Implementation of {@link HttpTransport} used to talk to the server.
+ */
+public enum HttpTransportType {
+  /**
+   * OkHttp (default)
+   */
+  OKHTTP("okhttp"),
+  /**
+   * The {@link java.net.http.HttpClient} of the JDK, that avoids loading OkHttp, Okio and the Kotlin standard library
+   */
+  JDK("jdk");
+
+  private final String key;
+
+  HttpTransportType(String key) {
+    this.key = key;
+  }
+
+  public String getKey() {
+    return key;
+  }
+}
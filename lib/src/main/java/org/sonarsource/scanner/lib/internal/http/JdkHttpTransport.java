@@ -0,0 +1,259 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Authenticator;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import nl.altindag.ssl.SSLFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * {@link HttpTransport} based on the {@link HttpClient} of the JDK, that supports HTTP/2 natively and doesn't require to load OkHttp.
+ * <p>
+ * Redirects are followed by this class rather than by the client, so that authentication is preserved like with OkHttp, and so
+ * that warming up a connection doesn't follow redirects. Note that the JDK doesn't support HTTP/2 with prior knowledge: {@code h2c}
+ * is negotiated with an upgrade from HTTP/1.1. The JDK also disables Basic authentication when tunneling HTTPS through a proxy,
+ * unless the {@code jdk.http.auth.tunneling.disabledSchemes} system property is changed.
+ */
+class JdkHttpTransport implements HttpTransport {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JdkHttpTransport.class);
+
+  static final int MAX_REDIRECTS = 20;
+  private static final Set<Integer> REDIRECT_CODES = Set.of(301, 302, 303, 307, 308);
+  private static final CookieManager COOKIE_MANAGER = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+
+  private final HttpConfig httpConfig;
+  private final HttpClient httpClient;
+  @Nullable
+  private final ExecutorService executor;
+  @Nullable
+  private final Duration requestTimeout;
+
+  JdkHttpTransport(HttpConfig httpConfig, SSLFactory sslFactory) {
+    this.httpConfig = httpConfig;
+    var builder = HttpClient.newBuilder()
+      .followRedirects(HttpClient.Redirect.NEVER)
+      .version(httpConfig.getHttpProtocol() == HttpProtocol.HTTP1 ? HttpClient.Version.HTTP_1_1 : HttpClient.Version.HTTP_2)
+      .sslContext(sslFactory.getSslContext())
+      .sslParameters(sslFactory.getSslParameters())
+      .cookieHandler(COOKIE_MANAGER);
+    if (!httpConfig.getConnectTimeout().isZero()) {
+      builder.connectTimeout(httpConfig.getConnectTimeout());
+    }
+    var proxy = httpConfig.getProxy();
+    if (proxy != null) {
+      builder.proxy(ProxySelector.of((InetSocketAddress) proxy.address()));
+      if (isNotBlank(httpConfig.getProxyUser())) {
+        builder.authenticator(new ProxyAuthenticator(httpConfig.getProxyUser(), Optional.ofNullable(httpConfig.getProxyPassword()).orElse("")));
+      }
+    }
+    this.executor = httpConfig.useVirtualThreads() ? virtualThreadExecutor() : null;
+    if (executor != null) {
+      builder.executor(executor);
+    }
+    this.httpClient = builder.build();
+    // The JDK client has no timeout between two reads, so use the socket timeout as the overall timeout if there is no response timeout
+    if (!httpConfig.getResponseTimeout().isZero()) {
+      this.requestTimeout = httpConfig.getResponseTimeout();
+    } else if (!httpConfig.getSocketTimeout().isZero()) {
+      this.requestTimeout = httpConfig.getSocketTimeout();
+    } else {
+      this.requestTimeout = null;
+    }
+  }
+
+  /**
+   * Virtual threads are only available starting from Java 21, while this library targets Java 11.
+   */
+  @CheckForNull
+  static ExecutorService virtualThreadExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      LOG.debug("Virtual threads are not supported by this JVM, using the default executor of the HTTP client");
+      return null;
+    }
+  }
+
+  @Override
+  public Response get(String url, boolean authentication, @Nullable String acceptHeader) throws IOException {
+    var uri = URI.create(url);
+    for (int redirects = 0; ; redirects++) {
+      var requestBuilder = newRequest(uri).GET();
+      if (acceptHeader != null) {
+        requestBuilder.header("Accept", acceptHeader);
+      }
+      if (authentication) {
+        authorizationHeader().ifPresent(value -> requestBuilder.header("Authorization", value));
+      }
+      var response = send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+      var location = response.headers().firstValue("Location");
+      if (!REDIRECT_CODES.contains(response.statusCode()) || location.isEmpty() || redirects >= MAX_REDIRECTS) {
+        return new JdkResponse(response);
+      }
+      response.body().close();
+      uri = uri.resolve(location.get());
+    }
+  }
+
+  @Override
+  public void head(String url) throws IOException {
+    send(newRequest(URI.create(url)).method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.discarding());
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdown();
+    }
+  }
+
+  @CheckForNull
+  ExecutorService getExecutor() {
+    return executor;
+  }
+
+  private HttpRequest.Builder newRequest(URI uri) {
+    var builder = HttpRequest.newBuilder(uri)
+      .header("User-Agent", httpConfig.getUserAgent());
+    if (requestTimeout != null) {
+      builder.timeout(requestTimeout);
+    }
+    return builder;
+  }
+
+  private Optional<String> authorizationHeader() {
+    if (httpConfig.getToken() != null) {
+      return Optional.of("Bearer " + httpConfig.getToken());
+    } else if (httpConfig.getLogin() != null) {
+      var credentials = httpConfig.getLogin() + ":" + (httpConfig.getPassword() != null ? httpConfig.getPassword() : "");
+      return Optional.of("Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+    }
+    return Optional.empty();
+  }
+
+  private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) throws IOException {
+    LOG.debug("--> {} {}", request.method(), request.uri());
+    long start = System.nanoTime();
+    try {
+      var response = httpClient.send(request, bodyHandler);
+      LOG.debug("<-- {} {} ({}ms)", response.statusCode(), request.uri(), Duration.ofNanos(System.nanoTime() - start).toMillis());
+      return response;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while calling " + request.uri());
+    }
+  }
+
+  private static class ProxyAuthenticator extends Authenticator {
+    private final String user;
+    private final String password;
+
+    private ProxyAuthenticator(String user, String password) {
+      this.user = user;
+      this.password = password;
+    }
+
+    @CheckForNull
+    @Override
+    protected PasswordAuthentication getPasswordAuthentication() {
+      if (getRequestorType() == RequestorType.PROXY) {
+        return new PasswordAuthentication(user, password.toCharArray());
+      }
+      return null;
+    }
+  }
+
+  private static class JdkResponse implements Response {
+    private final HttpResponse<InputStream> response;
+
+    private JdkResponse(HttpResponse<InputStream> response) {
+      this.response = response;
+    }
+
+    @Override
+    public URL getUrl() {
+      try {
+        return response.uri().toURL();
+      } catch (IOException e) {
+        throw new IllegalStateException("Invalid URL: " + response.uri(), e);
+      }
+    }
+
+    @Override
+    public int getCode() {
+      return response.statusCode();
+    }
+
+    @Override
+    public String getMessage() {
+      // HTTP/2 has no reason phrase, and the JDK client doesn't expose the HTTP/1.1 one
+      return "";
+    }
+
+    @CheckForNull
+    @Override
+    public String getHeader(String name) {
+      return response.headers().firstValue(name).orElse(null);
+    }
+
+    @Override
+    public InputStream getBody() {
+      return response.body();
+    }
+
+    @Override
+    public String getBodyAsString() throws IOException {
+      try (var in = response.body()) {
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      response.body().close();
+    }
+  }
+}
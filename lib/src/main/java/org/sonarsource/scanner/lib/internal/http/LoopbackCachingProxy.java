@@ -0,0 +1,450 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * HTTP server listening on the loopback interface, that forwards the requests of the scanner engine to the server.
+ * <p>
+ * Successful responses to GET requests are cached in memory, so that successive analyses of the same session get them only once,
+ * for an allow-list of endpoints: the downloads of immutable artifacts (plugins, JRE and scanner engine binaries), and the small
+ * web API responses that the engine requests again for each analysis (settings, quality profiles, rules, languages, metrics and
+ * installed plugins). They are kept as long as the server allows it through the {@code Cache-Control} header ({@code no-store},
+ * {@code no-cache} and {@code max-age} are honored), and at most for the lifetime of the proxy. The cache key is made of the URL,
+ * the Accept header and the credentials of the request. The total size of the cache is bounded, the least recently used
+ * responses are evicted first. All the other requests, like the status of the background tasks or the upload of the analysis
+ * report, are streamed as is.
+ * <p>
+ * Each upstream base URL is exposed under its own path, see {@link #localUrlFor(String)}. These paths start with a random secret,
+ * so that other local processes can't use the proxy to reach the server with the proxy settings of the scanner.
+ */
+public class LoopbackCachingProxy implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LoopbackCachingProxy.class);
+
+  static final int MAX_CACHED_BODY_SIZE = 16 * 1024 * 1024;
+  static final long DEFAULT_MAX_CACHE_SIZE = 64L * 1024 * 1024;
+  private static final int BUFFER_SIZE = 8192;
+  // Handled by each side of the proxy. Bodies are transparently decompressed by OkHttp, so encoding is not forwarded either.
+  private static final Set<String> NOT_FORWARDED_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te",
+    "trailer", "transfer-encoding", "upgrade", "host", "content-length", "accept-encoding", "content-encoding");
+  private static final Set<String> NOT_CACHED_HEADERS = Set.of("set-cookie", "date");
+  private static final Set<String> METHODS_WITHOUT_BODY = Set.of("GET", "HEAD");
+  private static final Set<String> METHODS_REQUIRING_BODY = Set.of("POST", "PUT", "PATCH");
+  private static final String OCTET_STREAM = "application/octet-stream";
+  // Relative to the upstream base URLs (web API and REST API)
+  private static final Pattern PLUGIN_DOWNLOAD_PATH = Pattern.compile("/api/plugins/download");
+  private static final Pattern BINARY_DOWNLOAD_PATH = Pattern.compile("/analysis/(jres/[^/]+|engine)");
+  private static final Pattern SESSION_API_PATH = Pattern.compile(
+    "/api/(settings/values|qualityprofiles/search|rules/list|rules/search|languages/list|metrics/search|plugins/installed)(\\.protobuf)?");
+  private static final Pattern MAX_AGE = Pattern.compile("max-age\\s*=\\s*\"?(\\d+)");
+  private static final int MAX_AGE_DIGITS = 9;
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private final OkHttpClient httpClient;
+  private final LongSupplier nanoClock;
+  private final String secret = newSecret();
+  private final HttpServer server;
+  private final Map<String, String> localUrlsByUpstream = new HashMap<>();
+  private final long maxCacheSize;
+  // In access order, for the eviction of the least recently used responses. Guarded by itself.
+  private final LinkedHashMap<String, CachedResponse> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private long cacheSize;
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final AtomicInteger cacheHitCount = new AtomicInteger();
+
+  LoopbackCachingProxy(OkHttpClient httpClient) throws IOException {
+    this(httpClient, System::nanoTime, DEFAULT_MAX_CACHE_SIZE);
+  }
+
+  LoopbackCachingProxy(OkHttpClient httpClient, LongSupplier nanoClock, long maxCacheSize) throws IOException {
+    this.httpClient = httpClient;
+    this.nanoClock = nanoClock;
+    this.maxCacheSize = maxCacheSize;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Utils.daemonExecutor("sonar-scanner-caching-proxy"));
+    startFromDaemonThread(server);
+    LOG.debug("Caching proxy for the scanner engine listening on {}", baseUrl());
+  }
+
+  /**
+   * The dispatcher thread of the server inherits the daemon status of the thread starting it. Starting it from a daemon thread
+   * ensures that a proxy that was not closed never prevents the JVM from exiting.
+   */
+  private static void startFromDaemonThread(HttpServer server) throws IOException {
+    var starter = new Thread(server::start, "sonar-scanner-caching-proxy-starter");
+    starter.setDaemon(true);
+    starter.start();
+    try {
+      starter.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      server.stop(0);
+      throw new IOException("Interrupted while starting the caching proxy", e);
+    }
+  }
+
+  private static String newSecret() {
+    var bytes = new byte[16];
+    RANDOM.nextBytes(bytes);
+    return new BigInteger(1, bytes).toString(16);
+  }
+
+  private String baseUrl() {
+    var address = server.getAddress();
+    var host = address.getAddress() instanceof Inet6Address ? ("[" + address.getAddress().getHostAddress() + "]") : address.getAddress().getHostAddress();
+    return "http://" + host + ":" + address.getPort();
+  }
+
+  /**
+   * Get the URL to use instead of the given one, so that the requests go through this proxy.
+   */
+  public synchronized String localUrlFor(String upstreamBaseUrl) {
+    var upstream = StringUtils.removeEnd(upstreamBaseUrl, "/");
+    return localUrlsByUpstream.computeIfAbsent(upstream, u -> {
+      // The trailing slash prevents a context from matching the paths of another one, like /u1/ and /u10/
+      var contextPath = "/" + secret + "/u" + localUrlsByUpstream.size() + "/";
+      server.createContext(contextPath, exchange -> handle(exchange, contextPath, u));
+      return baseUrl() + StringUtils.removeEnd(contextPath, "/");
+    });
+  }
+
+  int getRequestCount() {
+    return requestCount.get();
+  }
+
+  int getCacheHitCount() {
+    return cacheHitCount.get();
+  }
+
+  private void handle(HttpExchange exchange, String contextPath, String upstreamBaseUrl) {
+    requestCount.incrementAndGet();
+    var requestUri = exchange.getRequestURI();
+    var path = requestUri.getRawPath().substring(contextPath.length() - 1);
+    var url = upstreamBaseUrl + path + (requestUri.getRawQuery() != null ? ("?" + requestUri.getRawQuery()) : "");
+    var method = exchange.getRequestMethod();
+    try {
+      if ("GET".equals(method) && isCacheable(path, exchange.getRequestHeaders().getFirst("Accept"))) {
+        var cacheKey = cacheKey(exchange, url);
+        var cachedResponse = getCached(cacheKey);
+        if (cachedResponse != null) {
+          cacheHitCount.incrementAndGet();
+          cachedResponse.writeTo(exchange);
+        } else {
+          forward(exchange, method, url, cacheKey);
+        }
+      } else {
+        forward(exchange, method, url, null);
+      }
+    } catch (Exception e) {
+      LOG.debug("Caching proxy failed to forward {} {}: {}", method, url, e.getMessage());
+      sendBadGatewayQuietly(exchange);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Plugins are downloaded by key, but a new version can only be installed by restarting the server. The JRE and the scanner engine
+   * are identified by their metadata, that is not cached: only their binaries are. The web API responses of the allow-list only
+   * change when an administrator changes the configuration of the server, which is not expected during a session.
+   */
+  static boolean isCacheable(String path, @Nullable String acceptHeader) {
+    return PLUGIN_DOWNLOAD_PATH.matcher(path).matches()
+      || SESSION_API_PATH.matcher(path).matches()
+      || (BINARY_DOWNLOAD_PATH.matcher(path).matches() && OCTET_STREAM.equals(acceptHeader));
+  }
+
+  @CheckForNull
+  private CachedResponse getCached(String cacheKey) {
+    synchronized (cache) {
+      var cachedResponse = cache.get(cacheKey);
+      if (cachedResponse != null && cachedResponse.isExpired(nanoClock.getAsLong())) {
+        removeCached(cacheKey);
+        return null;
+      }
+      return cachedResponse;
+    }
+  }
+
+  private void putCached(String cacheKey, CachedResponse response) {
+    synchronized (cache) {
+      removeCached(cacheKey);
+      cache.put(cacheKey, response);
+      cacheSize += response.body.length;
+      var eldest = cache.entrySet().iterator();
+      while (cacheSize > maxCacheSize && eldest.hasNext()) {
+        cacheSize -= eldest.next().getValue().body.length;
+        eldest.remove();
+      }
+    }
+  }
+
+  private void removeCached(String cacheKey) {
+    synchronized (cache) {
+      var removed = cache.remove(cacheKey);
+      if (removed != null) {
+        cacheSize -= removed.body.length;
+      }
+    }
+  }
+
+  long getCacheSize() {
+    synchronized (cache) {
+      return cacheSize;
+    }
+  }
+
+  private static String cacheKey(HttpExchange exchange, String url) {
+    var accept = StringUtils.defaultString(exchange.getRequestHeaders().getFirst("Accept"));
+    var authorization = exchange.getRequestHeaders().getFirst("Authorization");
+    return url + "\n" + accept + "\n" + (authorization != null ? sha256(authorization) : "");
+  }
+
+  private static String sha256(String value) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+      return new BigInteger(1, digest).toString(16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private void forward(HttpExchange exchange, String method, String url, @Nullable String cacheKey) throws IOException {
+    var requestBuilder = new Request.Builder().url(url);
+    exchange.getRequestHeaders().forEach((name, values) -> {
+      if (isForwarded(name)) {
+        values.forEach(value -> requestBuilder.addHeader(name, value));
+      }
+    });
+    requestBuilder.method(method, requestBody(exchange, method));
+
+    try (var response = httpClient.newCall(requestBuilder.build()).execute()) {
+      var headers = new HashMap<String, List<String>>();
+      for (var name : response.headers().names()) {
+        if (isForwarded(name)) {
+          headers.put(name, response.headers(name));
+        }
+      }
+      exchange.getResponseHeaders().putAll(headers);
+      var code = response.code();
+      if ("HEAD".equals(method) || code == 204 || code == 304) {
+        exchange.sendResponseHeaders(code, -1);
+        return;
+      }
+      var body = requireNonNull(response.body(), "Response body is empty");
+      var contentLength = body.contentLength();
+      // For the JDK server, 0 means chunked encoding and -1 means no body
+      exchange.sendResponseHeaders(code, contentLength == 0 ? -1 : Math.max(contentLength, 0));
+      var now = nanoClock.getAsLong();
+      var expiresAt = cacheKey != null && code == 200 && contentLength <= MAX_CACHED_BODY_SIZE ? expiresAt(response.header("Cache-Control"), now) : null;
+      var copy = copy(body.byteStream(), exchange, expiresAt != null);
+      if (copy != null) {
+        headers.keySet().removeIf(name -> NOT_CACHED_HEADERS.contains(name.toLowerCase(Locale.ENGLISH)));
+        putCached(cacheKey, new CachedResponse(code, headers, copy, expiresAt));
+      } else if (cacheKey != null) {
+        removeCached(cacheKey);
+      }
+    }
+  }
+
+  /**
+   * @return the {@link #nanoClock} time until which the response can be reused, or null if it must not be cached
+   */
+  @CheckForNull
+  static Long expiresAt(@Nullable String cacheControl, long now) {
+    if (cacheControl == null) {
+      return Long.MAX_VALUE;
+    }
+    var directives = cacheControl.toLowerCase(Locale.ENGLISH);
+    if (directives.contains("no-store") || directives.contains("no-cache")) {
+      return null;
+    }
+    var maxAge = MAX_AGE.matcher(directives);
+    if (!maxAge.find()) {
+      return Long.MAX_VALUE;
+    }
+    var seconds = maxAge.group(1);
+    if (seconds.length() > MAX_AGE_DIGITS) {
+      // More than the lifetime of the proxy anyway, and too big to be compared with the clock
+      return Long.MAX_VALUE;
+    }
+    var maxAgeSeconds = Long.parseLong(seconds);
+    return maxAgeSeconds == 0 ? null : (now + TimeUnit.SECONDS.toNanos(maxAgeSeconds));
+  }
+
+  /**
+   * Stream the body to the client and, if it is cacheable and not too big, keep a copy of it.
+   */
+  @CheckForNull
+  private static byte[] copy(InputStream body, HttpExchange exchange, boolean keepCopy) throws IOException {
+    var copy = keepCopy ? new ByteArrayOutputStream() : null;
+    try (body; var out = exchange.getResponseBody()) {
+      var buffer = new byte[BUFFER_SIZE];
+      int read;
+      while ((read = body.read(buffer)) != -1) {
+        out.write(buffer, 0, read);
+        if (copy != null) {
+          if (copy.size() + read > MAX_CACHED_BODY_SIZE) {
+            copy = null;
+          } else {
+            copy.write(buffer, 0, read);
+          }
+        }
+      }
+    }
+    return copy != null ? copy.toByteArray() : null;
+  }
+
+  @CheckForNull
+  private static RequestBody requestBody(HttpExchange exchange, String method) {
+    if (METHODS_WITHOUT_BODY.contains(method)) {
+      return null;
+    }
+    var contentLengthHeader = exchange.getRequestHeaders().getFirst("Content-Length");
+    var contentLength = contentLengthHeader != null ? Long.parseLong(contentLengthHeader) : -1L;
+    var chunked = exchange.getRequestHeaders().containsKey("Transfer-Encoding");
+    if (!METHODS_REQUIRING_BODY.contains(method) && contentLength <= 0 && !chunked) {
+      return null;
+    }
+    var contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+    return new StreamingRequestBody(contentType != null ? MediaType.parse(contentType) : null, contentLength, exchange.getRequestBody());
+  }
+
+  private static boolean isForwarded(String headerName) {
+    return !NOT_FORWARDED_HEADERS.contains(headerName.toLowerCase(Locale.ENGLISH));
+  }
+
+  private static void sendBadGatewayQuietly(HttpExchange exchange) {
+    try {
+      exchange.sendResponseHeaders(502, -1);
+    } catch (IOException | RuntimeException e) {
+      // Headers were already sent, or the client is gone
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    httpClient.connectionPool().evictAll();
+    LOG.debug("Caching proxy for the scanner engine stopped: {} requests, {} served from cache", requestCount.get(), cacheHitCount.get());
+  }
+
+  /**
+   * Streams the body of the incoming request, without buffering it. Uploads can be big.
+   */
+  private static class StreamingRequestBody extends RequestBody {
+    private final MediaType contentType;
+    private final long contentLength;
+    private final InputStream in;
+
+    private StreamingRequestBody(@Nullable MediaType contentType, long contentLength, InputStream in) {
+      this.contentType = contentType;
+      this.contentLength = contentLength;
+      this.in = in;
+    }
+
+    @CheckForNull
+    @Override
+    public MediaType contentType() {
+      return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+      return contentLength;
+    }
+
+    @Override
+    public boolean isOneShot() {
+      return true;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+      sink.writeAll(Okio.source(in));
+    }
+  }
+
+  private static class CachedResponse {
+    private final int code;
+    private final Map<String, List<String>> headers;
+    private final byte[] body;
+    private final long expiresAt;
+
+    private CachedResponse(int code, Map<String, List<String>> headers, byte[] body, long expiresAt) {
+      this.code = code;
+      this.headers = headers;
+      this.body = body;
+      this.expiresAt = expiresAt;
+    }
+
+    private boolean isExpired(long now) {
+      // Overflow-safe comparison of nanoTime values
+      return expiresAt != Long.MAX_VALUE && now - expiresAt >= 0;
+    }
+
+    private void writeTo(HttpExchange exchange) throws IOException {
+      exchange.getResponseHeaders().putAll(headers);
+      exchange.sendResponseHeaders(code, body.length == 0 ? -1 : body.length);
+      try (var out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    }
+  }
+}
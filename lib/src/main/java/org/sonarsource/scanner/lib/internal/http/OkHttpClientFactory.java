@@ -19,40 +19,26 @@
  */
 package org.sonarsource.scanner.lib.internal.http;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.CookieManager;
 import java.net.CookiePolicy;
 import java.net.HttpURLConnection;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateException;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
-import javax.annotation.Nullable;
 import nl.altindag.ssl.SSLFactory;
-import nl.altindag.ssl.exception.GenericKeyStoreException;
-import nl.altindag.ssl.util.KeyStoreUtils;
+import okhttp3.ConnectionPool;
 import okhttp3.ConnectionSpec;
 import okhttp3.Credentials;
 import okhttp3.JavaNetCookieJar;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.logging.HttpLoggingInterceptor;
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.bouncycastle.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.sonarsource.scanner.lib.internal.http.ssl.CertificateStore;
-import org.sonarsource.scanner.lib.internal.http.ssl.SslConfig;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
-import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE;
 
 public class OkHttpClientFactory {
 
@@ -62,8 +48,6 @@ public class OkHttpClientFactory {
   private static final String PROXY_AUTHORIZATION = "Proxy-Authorization";
   // use the same cookie jar for all instances
   private static final JavaNetCookieJar COOKIE_JAR;
-  // This property tells Bouncycastle to not fail on empty keystore passwords
-  public static final String BC_IGNORE_USELESS_PASSWD = "org.bouncycastle.pkcs12.ignore_useless_passwd";
 
   private OkHttpClientFactory() {
     // only statics
@@ -76,9 +60,10 @@ public class OkHttpClientFactory {
   }
 
   static OkHttpClient create(HttpConfig httpConfig) {
+    return create(httpConfig, SslFactories.configureSsl(httpConfig.getSslConfig(), httpConfig.skipSystemTruststore()));
+  }
 
-    var sslContext = configureSsl(httpConfig.getSslConfig(), httpConfig.skipSystemTruststore());
-
+  static OkHttpClient create(HttpConfig httpConfig, SSLFactory sslContext) {
     OkHttpClient.Builder okHttpClientBuilder = new OkHttpClient.Builder()
       .connectTimeout(httpConfig.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS)
       .readTimeout(httpConfig.getSocketTimeout().toMillis(), TimeUnit.MILLISECONDS)
@@ -91,6 +76,9 @@ public class OkHttpClientFactory {
       .allEnabledCipherSuites()
       .build();
     okHttpClientBuilder.connectionSpecs(asList(tls, ConnectionSpec.CLEARTEXT));
+    okHttpClientBuilder.protocols(protocols(httpConfig.getHttpProtocol()));
+    // All clients derived from this one share the pool, so that concurrent calls can be multiplexed on the same HTTP/2 connection
+    okHttpClientBuilder.connectionPool(new ConnectionPool(httpConfig.getConnectionPoolSize(), httpConfig.getConnectionKeepAlive().toMillis(), TimeUnit.MILLISECONDS));
 
     if (httpConfig.getProxy() != null) {
       okHttpClientBuilder.proxy(httpConfig.getProxy());
@@ -117,73 +105,25 @@ public class OkHttpClientFactory {
     return okHttpClientBuilder.build();
   }
 
-  private static SSLFactory configureSsl(SslConfig sslConfig, boolean skipSystemTrustMaterial) {
-    var sslFactoryBuilder = SSLFactory.builder()
-      .withDefaultTrustMaterial();
-    if (!skipSystemTrustMaterial) {
-      LOG.debug("Loading OS trusted SSL certificates...");
-      LOG.debug("This operation might be slow or even get stuck. You can skip it by passing the scanner property '{}=true'", SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE);
-      sslFactoryBuilder.withSystemTrustMaterial();
-    }
-    var keyStoreConfig = sslConfig.getKeyStore();
-    if (keyStoreConfig != null) {
-      keyStoreConfig.getKeyStorePassword()
-        .ifPresentOrElse(
-          password -> sslFactoryBuilder.withIdentityMaterial(keyStoreConfig.getPath(), password.toCharArray(), keyStoreConfig.getKeyStoreType()),
-          () -> loadIdentityMaterialWithDefaultPassword(sslFactoryBuilder, keyStoreConfig.getPath()));
-    }
-    var trustStoreConfig = sslConfig.getTrustStore();
-    if (trustStoreConfig != null) {
-      KeyStore trustStore;
-      try {
-        trustStore = loadTrustStoreWithBouncyCastle(
-          trustStoreConfig.getPath(),
-          trustStoreConfig.getKeyStorePassword().orElse(null),
-          trustStoreConfig.getKeyStoreType(),
-          trustStoreConfig.isFromJvm());
-        LOG.debug("Loaded truststore from '{}' containing {} certificates", trustStoreConfig.getPath(), trustStore.size());
-      } catch (KeyStoreException | IOException | CertificateException | NoSuchAlgorithmException e) {
-        throw new GenericKeyStoreException("Unable to read truststore from '" + trustStoreConfig.getPath() + "'", e);
-      }
-      sslFactoryBuilder.withTrustMaterial(trustStore);
-    }
-    return sslFactoryBuilder.build();
-  }
-
-  private static void loadIdentityMaterialWithDefaultPassword(SSLFactory.Builder sslFactoryBuilder, Path path) {
-    try {
-      var keystore = KeyStoreUtils.loadKeyStore(path, CertificateStore.DEFAULT_PASSWORD.toCharArray(), CertificateStore.DEFAULT_STORE_TYPE);
-      sslFactoryBuilder.withIdentityMaterial(keystore, CertificateStore.DEFAULT_PASSWORD.toCharArray());
-    } catch (GenericKeyStoreException e) {
-      var keystore = KeyStoreUtils.loadKeyStore(path, CertificateStore.OLD_DEFAULT_PASSWORD.toCharArray(), CertificateStore.DEFAULT_STORE_TYPE);
-      LOG.warn("Using deprecated default password for keystore '{}'.", path);
-      sslFactoryBuilder.withIdentityMaterial(keystore, CertificateStore.OLD_DEFAULT_PASSWORD.toCharArray());
+  /**
+   * Protocols of the shared client, which is also used for external URLs over TLS. HTTP/2 with prior knowledge is only enabled on
+   * the clients returned by {@link #withPriorKnowledge(OkHttpClient)}, as OkHttp doesn't support it over TLS.
+   */
+  static List<Protocol> protocols(HttpProtocol httpProtocol) {
+    if (httpProtocol == HttpProtocol.HTTP1) {
+      return List.of(Protocol.HTTP_1_1);
     }
+    return List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
   }
 
-  static KeyStore loadTrustStoreWithBouncyCastle(Path keystorePath, @Nullable String keystorePassword, String keystoreType, boolean fromJvm) throws IOException,
-    KeyStoreException, CertificateException, NoSuchAlgorithmException {
-    Properties.setThreadOverride(BC_IGNORE_USELESS_PASSWD, true);
-    KeyStore keystore = KeyStore.getInstance(keystoreType, new BouncyCastleProvider());
-    if (keystorePassword != null) {
-      loadKeyStoreWithPassword(keystorePath, keystore, keystorePassword);
-    } else {
-      try {
-        loadKeyStoreWithPassword(keystorePath, keystore, CertificateStore.DEFAULT_PASSWORD);
-      } catch (Exception e) {
-        if (!fromJvm) {
-          loadKeyStoreWithPassword(keystorePath, keystore, CertificateStore.OLD_DEFAULT_PASSWORD);
-          LOG.warn("Using deprecated default password for truststore '{}'.", keystorePath);
-        }
-      }
-    }
-    return keystore;
-  }
-
-  private static void loadKeyStoreWithPassword(Path keystorePath, KeyStore keystore, String oldDefaultPassword) throws IOException, NoSuchAlgorithmException, CertificateException {
-    try (InputStream keystoreInputStream = Files.newInputStream(keystorePath, StandardOpenOption.READ)) {
-      keystore.load(keystoreInputStream, oldDefaultPassword.toCharArray());
-    }
+  /**
+   * Derive a client talking HTTP/2 without upgrade, only for cleartext {@code http://} URLs of the server. It shares the connection
+   * pool of the given client.
+   */
+  static OkHttpClient withPriorKnowledge(OkHttpClient client) {
+    return client.newBuilder()
+      .protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE))
+      .build();
   }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import nl.altindag.ssl.SSLFactory;
+import okhttp3.Credentials;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * {@link HttpTransport} based on OkHttp. All the calls share the connection pool of the client created by {@link OkHttpClientFactory}.
+ */
+class OkHttpTransport implements HttpTransport {
+
+  private final HttpConfig httpConfig;
+  private final OkHttpClient sharedHttpClient;
+  private final OkHttpClient authenticatedHttpClient;
+  private final OkHttpClient noRedirectHttpClient;
+  private final OkHttpClient priorKnowledgeHttpClient;
+  private final OkHttpClient priorKnowledgeAuthenticatedHttpClient;
+  private final Set<String> cleartextServerOrigins;
+
+  OkHttpTransport(HttpConfig httpConfig, SSLFactory sslFactory) {
+    this(httpConfig, OkHttpClientFactory.create(httpConfig, sslFactory));
+  }
+
+  OkHttpTransport(HttpConfig httpConfig, OkHttpClient sharedHttpClient) {
+    this.httpConfig = httpConfig;
+    this.sharedHttpClient = sharedHttpClient;
+    // Network interceptors are applied to each request, including the ones sent to follow redirects
+    this.authenticatedHttpClient = sharedHttpClient.newBuilder()
+      .addNetworkInterceptor(chain -> {
+        Request request = chain.request();
+        if (httpConfig.getToken() != null) {
+          request = request.newBuilder()
+            .header("Authorization", "Bearer " + httpConfig.getToken())
+            .build();
+        } else if (httpConfig.getLogin() != null) {
+          request = request.newBuilder()
+            .header("Authorization", Credentials.basic(httpConfig.getLogin(), httpConfig.getPassword() != null ? httpConfig.getPassword() : ""))
+            .build();
+        }
+        return chain.proceed(request);
+      })
+      .build();
+    this.noRedirectHttpClient = sharedHttpClient.newBuilder().followRedirects(false).build();
+    this.priorKnowledgeHttpClient = OkHttpClientFactory.withPriorKnowledge(sharedHttpClient);
+    this.priorKnowledgeAuthenticatedHttpClient = OkHttpClientFactory.withPriorKnowledge(authenticatedHttpClient);
+    this.cleartextServerOrigins = cleartextServerOrigins(httpConfig);
+  }
+
+  /**
+   * Origins of the server that are called with HTTP/2 prior knowledge, when configured: only the {@code http://} ones.
+   */
+  private static Set<String> cleartextServerOrigins(HttpConfig httpConfig) {
+    if (httpConfig.getHttpProtocol() != HttpProtocol.H2C) {
+      return Set.of();
+    }
+    return Stream.concat(httpConfig.getWebApiBaseUrls().stream(), httpConfig.getRestApiBaseUrls().stream())
+      .map(HttpUrl::parse)
+      .filter(url -> url != null && !url.isHttps())
+      .map(OkHttpTransport::origin)
+      .collect(Collectors.toSet());
+  }
+
+  private static String origin(HttpUrl url) {
+    return url.host() + ":" + url.port();
+  }
+
+  OkHttpClient clientFor(HttpUrl url, boolean authentication) {
+    if (!url.isHttps() && cleartextServerOrigins.contains(origin(url))) {
+      return authentication ? priorKnowledgeAuthenticatedHttpClient : priorKnowledgeHttpClient;
+    }
+    return authentication ? authenticatedHttpClient : sharedHttpClient;
+  }
+
+  @Override
+  public Response get(String url, boolean authentication, @Nullable String acceptHeader) throws IOException {
+    var httpUrl = HttpUrl.get(url);
+    var requestBuilder = new Request.Builder()
+      .get()
+      .url(httpUrl)
+      .addHeader("User-Agent", httpConfig.getUserAgent());
+    if (acceptHeader != null) {
+      requestBuilder.header("Accept", acceptHeader);
+    }
+    return new OkHttpResponse(clientFor(httpUrl, authentication).newCall(requestBuilder.build()).execute());
+  }
+
+  @Override
+  public void head(String url) throws IOException {
+    var request = new Request.Builder()
+      .head()
+      .url(url)
+      .addHeader("User-Agent", httpConfig.getUserAgent())
+      .build();
+    noRedirectHttpClient.newCall(request).execute().close();
+  }
+
+  private static class OkHttpResponse implements Response {
+    private final okhttp3.Response response;
+
+    private OkHttpResponse(okhttp3.Response response) {
+      this.response = response;
+    }
+
+    @Override
+    public URL getUrl() {
+      return response.request().url().url();
+    }
+
+    @Override
+    public int getCode() {
+      return response.code();
+    }
+
+    @Override
+    public String getMessage() {
+      return response.message();
+    }
+
+    @CheckForNull
+    @Override
+    public String getHeader(String name) {
+      return response.header(name);
+    }
+
+    @Override
+    public InputStream getBody() {
+      return body().byteStream();
+    }
+
+    @Override
+    public String getBodyAsString() throws IOException {
+      return body().string();
+    }
+
+    private ResponseBody body() {
+      return requireNonNull(response.body(), "Response body is empty");
+    }
+
+    @Override
+    public void close() {
+      response.close();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Limit the number of bytes downloaded per second.
+ */
+interface RateLimiter {
+
+  RateLimiter UNLIMITED = bytes -> {
+  };
+
+  /**
+   * Called after some bytes were read. Block until reading them is allowed by the rate limit.
+   */
+  void acquire(int bytes) throws InterruptedIOException;
+
+  static RateLimiter of(HttpConfig httpConfig) {
+    List<RateLimiter> limiters = new ArrayList<>();
+    if (httpConfig.getDownloadRateLimit() > 0) {
+      limiters.add(TokenBucketRateLimiter.forProcess(httpConfig.getDownloadRateLimit()));
+    }
+    if (httpConfig.getHostDownloadRateLimit() > 0) {
+      limiters.add(new FileTokenBucketRateLimiter(httpConfig.getHostDownloadRateLimitFile(), httpConfig.getHostDownloadRateLimit()));
+    }
+    if (limiters.isEmpty()) {
+      return UNLIMITED;
+    }
+    if (limiters.size() == 1) {
+      return limiters.get(0);
+    }
+    return bytes -> {
+      for (var limiter : limiters) {
+        limiter.acquire(bytes);
+      }
+    };
+  }
+}
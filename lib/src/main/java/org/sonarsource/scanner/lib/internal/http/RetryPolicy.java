@@ -0,0 +1,123 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decide if and when a failed idempotent call should be retried. Delays grow exponentially, with a random jitter so that many
+ * scanners failing at the same time don't hit the server again all together. The total number of retries is bounded by a budget
+ * shared by all the calls made with the same policy.
+ */
+class RetryPolicy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+
+  private static final Set<Integer> RETRYABLE_STATUS_CODES = Set.of(429, 502, 503, 504);
+
+  private final int maxRetries;
+  private final Duration initialBackoff;
+  private final Duration maxBackoff;
+  private final AtomicInteger remainingBudget;
+
+  RetryPolicy(HttpConfig httpConfig) {
+    this(httpConfig.getMaxRetries(), httpConfig.getRetryBudget(), httpConfig.getRetryInitialBackoff(), httpConfig.getRetryMaxBackoff());
+  }
+
+  RetryPolicy(int maxRetries, int budget, Duration initialBackoff, Duration maxBackoff) {
+    this.maxRetries = maxRetries;
+    this.remainingBudget = new AtomicInteger(budget);
+    this.initialBackoff = initialBackoff;
+    this.maxBackoff = maxBackoff;
+  }
+
+  static boolean isRetryable(int statusCode) {
+    return RETRYABLE_STATUS_CODES.contains(statusCode);
+  }
+
+  int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * @param retry      the number of the retry to come, starting at 1
+   * @param retryAfter the delay requested by the server, if any
+   * @return the delay to wait before retrying, or empty if the call should not be retried
+   */
+  Optional<Duration> nextDelay(int retry, @Nullable Duration retryAfter) {
+    if (retry > maxRetries) {
+      return Optional.empty();
+    }
+    if (retryAfter != null && retryAfter.compareTo(maxBackoff) > 0) {
+      LOG.debug("Server asked to retry after {}s, which is more than the maximum backoff", retryAfter.toSeconds());
+      return Optional.empty();
+    }
+    if (remainingBudget.getAndUpdate(b -> b > 0 ? (b - 1) : b) <= 0) {
+      LOG.debug("HTTP retry budget exhausted");
+      return Optional.empty();
+    }
+    if (retryAfter != null) {
+      return Optional.of(retryAfter);
+    }
+    return Optional.of(backoff(retry));
+  }
+
+  private Duration backoff(int retry) {
+    long exponential = initialBackoff.toMillis() << Math.min(retry - 1, 30);
+    long capped = exponential < 0 ? maxBackoff.toMillis() : Math.min(exponential, maxBackoff.toMillis());
+    // "Equal jitter": wait at least half of the computed delay, and a random part of the other half
+    long half = capped / 2;
+    return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(capped - half + 1));
+  }
+
+  /**
+   * Parse the value of a Retry-After header, that is either a number of seconds, or an HTTP date.
+   */
+  @CheckForNull
+  static Duration parseRetryAfter(@Nullable String value, Instant now) {
+    if (value == null || value.isBlank()) {
+      return null;
+    }
+    try {
+      return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+    } catch (NumberFormatException e) {
+      // Not a number of seconds, try a date
+    }
+    try {
+      var date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+      return date.isAfter(now) ? Duration.between(now, date) : Duration.ZERO;
+    } catch (DateTimeParseException e) {
+      LOG.debug("Ignoring invalid Retry-After header: {}", value);
+      return null;
+    }
+  }
+}
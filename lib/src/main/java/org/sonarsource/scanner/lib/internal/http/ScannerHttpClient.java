@@ -19,19 +19,30 @@
  */
 package org.sonarsource.scanner.lib.internal.http;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.ClosedByInterruptException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
-import okhttp3.Credentials;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import okhttp3.ResponseBody;
+import nl.altindag.ssl.SSLFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.BootstrapMetrics;
+import org.sonarsource.scanner.lib.internal.util.IoBuffers;
 import org.sonarsource.scanner.lib.internal.util.Utils;
 
 import static java.lang.String.format;
@@ -42,144 +53,463 @@ public class ScannerHttpClient {
   private static final Logger LOG = LoggerFactory.getLogger(ScannerHttpClient.class);
 
   private static final String EXCEPTION_MESSAGE_MISSING_SLASH = "URL path must start with slash: %s";
+  private static final String OCTET_STREAM = "application/octet-stream";
 
 
-  private OkHttpClient sharedHttpClient;
+  private final Set<String> warmedUpOrigins = ConcurrentHashMap.newKeySet();
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final Map<String, EndpointSelector> externalEndpoints = new ConcurrentHashMap<>();
+  private HttpTransport transport;
   private HttpConfig httpConfig;
+  private BootstrapMetrics metrics = new BootstrapMetrics();
+  private RetryPolicy retryPolicy;
+  private EndpointSelector webApiEndpoints;
+  private EndpointSelector restApiEndpoints;
+  private RateLimiter downloadRateLimiter = RateLimiter.UNLIMITED;
+  @Nullable
+  private SSLFactory sslFactory;
 
   public void init(HttpConfig httpConfig) {
+    this.sslFactory = SslFactories.configureSsl(httpConfig.getSslConfig(), httpConfig.skipSystemTruststore());
+    init(httpConfig, HttpTransport.create(httpConfig, sslFactory));
+  }
+
+  /**
+   * Same as {@link #init(HttpConfig)}, but reuse the SSL material that was loaded in background, and record the timings of
+   * background operations in the given metrics.
+   */
+  public void init(HttpConfig httpConfig, SslFactoryLoader sslFactoryLoader, BootstrapMetrics metrics) {
+    this.metrics = metrics;
+    var loadedSslFactory = sslFactoryLoader.get();
+    this.sslFactory = loadedSslFactory;
+    init(httpConfig, metrics.time("httpClient", () -> HttpTransport.create(httpConfig, loadedSslFactory)));
+  }
+
+  /**
+   * Use the given transport to execute the HTTP requests.
+   */
+  public void init(HttpConfig httpConfig, HttpTransport transport) {
     this.httpConfig = httpConfig;
-    this.sharedHttpClient = OkHttpClientFactory.create(httpConfig);
+    this.retryPolicy = new RetryPolicy(httpConfig);
+    this.transport = transport;
+    this.webApiEndpoints = new EndpointSelector(httpConfig.getWebApiBaseUrls(), transport::head);
+    this.restApiEndpoints = new EndpointSelector(httpConfig.getRestApiBaseUrls(), transport::head);
+    this.downloadRateLimiter = RateLimiter.of(httpConfig);
   }
 
+  /**
+   * Release the resources of the underlying transport. Must only be called once the client is no longer used.
+   */
+  public void close() {
+    if (transport != null) {
+      transport.close();
+    }
+  }
+
+  /**
+   * Open connections to the server in background, so that DNS resolution, TCP and TLS handshakes, and proxy tunnelling are
+   * already done when the next calls are made.
+   */
+  public void warmUpConnections() {
+    warmUp(httpConfig.getWebApiBaseUrl());
+    warmUp(httpConfig.getRestApiBaseUrl());
+    // Only probes when there are alternative nodes
+    webApiEndpoints.probeAsync();
+    restApiEndpoints.probeAsync();
+  }
+
+  /**
+   * Open a connection to the host of the given URL in background. The connection is kept in the pool shared by all calls.
+   * Each host is only warmed up once.
+   */
+  public CompletableFuture<Void> warmUp(String url) {
+    URI uri;
+    try {
+      uri = new URI(url);
+    } catch (URISyntaxException e) {
+      return CompletableFuture.completedFuture(null);
+    }
+    if (uri.getScheme() == null || uri.getHost() == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    var port = uri.getPort() != -1 ? uri.getPort() : defaultPort(uri.getScheme());
+    var origin = uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    if (!warmedUpOrigins.add(origin)) {
+      return CompletableFuture.completedFuture(null);
+    }
+    var rootUrl = uri.getScheme() + "://" + uri.getRawAuthority() + "/";
+    return CompletableFuture.runAsync(() -> {
+      long start = System.nanoTime();
+      try {
+        transport.head(rootUrl);
+        metrics.record("connectionWarmUp[" + uri.getHost() + "]", Duration.ofNanos(System.nanoTime() - start));
+      } catch (Exception e) {
+        LOG.debug("Failed to warm up connection to {}: {}", origin, e.getMessage());
+      }
+    }, Utils.daemonExecutor("sonar-scanner-warm-up"));
+  }
+
+  /**
+   * Start a {@link LoopbackCachingProxy} that sends the requests to the server with the same HTTP settings (SSL, proxy, timeouts)
+   * as this client.
+   */
+  public LoopbackCachingProxy startCachingProxy() throws IOException {
+    var proxySslFactory = sslFactory != null ? sslFactory : SslFactories.configureSsl(httpConfig.getSslConfig(), httpConfig.skipSystemTruststore());
+    return new LoopbackCachingProxy(OkHttpClientFactory.create(httpConfig, proxySslFactory));
+  }
+
+  private static int defaultPort(String scheme) {
+    return "https".equalsIgnoreCase(scheme) ? 443 : 80;
+  }
 
   public void downloadFromRestApi(String urlPath, Path toFile) {
     if (!urlPath.startsWith("/")) {
       throw new IllegalArgumentException(format(EXCEPTION_MESSAGE_MISSING_SLASH, urlPath));
     }
-    String url = httpConfig.getRestApiBaseUrl() + urlPath;
-    downloadFile(url, toFile, true);
+    downloadFile(restApiEndpoints, urlPath, toFile, true);
   }
 
   public void downloadFromWebApi(String urlPath, Path toFile) {
     if (!urlPath.startsWith("/")) {
       throw new IllegalArgumentException(format(EXCEPTION_MESSAGE_MISSING_SLASH, urlPath));
     }
-    String url = httpConfig.getWebApiBaseUrl() + urlPath;
-    downloadFile(url, toFile, true);
+    downloadFile(webApiEndpoints, urlPath, toFile, true);
   }
 
+  /**
+   * Download a file from an external URL. If download mirrors are configured, they are tried first.
+   */
   public void downloadFromExternalUrl(String url, Path toFile) {
-    downloadFile(url, toFile, false);
+    var mirrors = httpConfig.getDownloadMirrors();
+    var origin = mirrors.isEmpty() ? null : originOf(url);
+    if (origin == null) {
+      downloadFile(new EndpointSelector(List.of(url), transport::head), "", toFile, false);
+      return;
+    }
+    var endpoints = externalEndpoints.computeIfAbsent(origin, o -> {
+      var baseUrls = new ArrayList<>(mirrors);
+      baseUrls.add(o);
+      return new EndpointSelector(baseUrls, transport::head);
+    });
+    downloadFile(endpoints, url.substring(origin.length()), toFile, false);
+  }
+
+  @CheckForNull
+  private static String originOf(String url) {
+    try {
+      var uri = new URI(url);
+      if (uri.getScheme() == null || uri.getRawAuthority() == null) {
+        return null;
+      }
+      var origin = uri.getScheme() + "://" + uri.getRawAuthority();
+      return url.startsWith(origin) ? origin : null;
+    } catch (URISyntaxException e) {
+      return null;
+    }
   }
 
   /**
    * Download file from the given URL.
    *
-   * @param url            the URL of the file to download
+   * @param endpoints      the base URLs to download from
+   * @param urlPath        the path of the file, relative to the base URLs
    * @param toFile         the target file
    * @param authentication if true, the request will be authenticated with the token
    * @throws IOException           if connectivity problem or timeout (network) or IO error (when writing to file)
    * @throws IllegalStateException if HTTP response code is different than 2xx
    */
-  private void downloadFile(String url, Path toFile, boolean authentication) {
-    LOG.debug("Download {} to {}", url, toFile.toAbsolutePath());
+  private void downloadFile(EndpointSelector endpoints, String urlPath, Path toFile, boolean authentication) {
+    callUrl(endpoints, urlPath, authentication, OCTET_STREAM, writeTo(toFile));
+  }
+
+  /**
+   * Download a file from the given URL with a single attempt: no mirror, no failover and no retry. Meant for optional sources of
+   * files, that are expected to fail fast when unavailable, so that the caller can fall back to another source.
+   *
+   * @throws HttpException         if HTTP response code is different than 2xx
+   * @throws IllegalStateException if connectivity problem or timeout (network) or IO error (when writing to file), or if the host
+   *                               is considered unavailable after previous failures
+   */
+  public void downloadOnce(String url, Path toFile) {
+    var host = hostOf(url);
+    var circuitBreaker = circuitBreaker(host);
+    if (!circuitBreaker.allowRequest()) {
+      throw new IllegalStateException(format("Call to URL [%s] failed: %s is considered unavailable after %d consecutive failures", url, host,
+        circuitBreaker.getConsecutiveFailures()));
+    }
+    try {
+      callOnce(url, false, OCTET_STREAM, writeTo(toFile));
+      circuitBreaker.recordSuccess();
+    } catch (TransientFailureException e) {
+      if (e.isServerFailure()) {
+        circuitBreaker.recordFailure();
+      }
+      throw e.getFailure();
+    }
+  }
 
-    callUrl(url, authentication, "application/octet-stream", responseBody -> {
-      try (InputStream in = responseBody.byteStream()) {
-        Files.copy(in, toFile, StandardCopyOption.REPLACE_EXISTING);
+  private ResponseHandler<Void> writeTo(Path toFile) {
+    return response -> {
+      LOG.debug("Download {} to {}", response.getUrl(), toFile.toAbsolutePath());
+      long start = System.nanoTime();
+      var in = new ReadTrackingInputStream(throttle(response.getBody()));
+      try (in) {
+        long size = IoBuffers.copy(in, toFile);
+        logThroughput(response.getUrl().toString(), size, Duration.ofNanos(System.nanoTime() - start));
         return null;
-      } catch (IOException | RuntimeException e) {
+      } catch (IOException e) {
+        Utils.deleteQuietly(toFile);
+        if (in.readFailed || isInterruption(e)) {
+          throw e;
+        }
+        // Failure of the local disk, not of the server: not retried
+        throw new LocalFileException(format("Unable to write file %s: %s", toFile.toAbsolutePath(), e.getMessage()), e);
+      } catch (RuntimeException e) {
         Utils.deleteQuietly(toFile);
         throw e;
       }
-    });
+    };
+  }
+
+  private InputStream throttle(InputStream in) {
+    return downloadRateLimiter == RateLimiter.UNLIMITED ? in : new ThrottledInputStream(in, downloadRateLimiter);
+  }
+
+  private static void logThroughput(String url, long size, Duration duration) {
+    long millis = Math.max(1, duration.toMillis());
+    LOG.debug("Downloaded {} ({} KB) in {}ms ({} KB/s)", url, size / 1024, duration.toMillis(), size * 1000 / 1024 / millis);
   }
 
   public String callRestApi(String urlPath) throws IOException {
     if (!urlPath.startsWith("/")) {
       throw new IllegalArgumentException(format(EXCEPTION_MESSAGE_MISSING_SLASH, urlPath));
     }
-    String url = httpConfig.getRestApiBaseUrl() + urlPath;
-    return callApi(url);
+    return callApi(restApiEndpoints, urlPath);
   }
 
   public String callWebApi(String urlPath) throws IOException {
     if (!urlPath.startsWith("/")) {
       throw new IllegalArgumentException(format(EXCEPTION_MESSAGE_MISSING_SLASH, urlPath));
     }
-    String url = httpConfig.getWebApiBaseUrl() + urlPath;
-    return callApi(url);
+    return callApi(webApiEndpoints, urlPath);
   }
 
   /**
    * Call a server API and get the response as a string.
    *
-   * @param url the url to call
+   * @param endpoints the base URLs of the API
+   * @param urlPath   the path to call
    * @throws IOException           if connectivity problem or timeout (network)
    * @throws IllegalStateException if HTTP response code is different than 2xx
    */
-  private String callApi(String url) {
-    return callUrl(url, true, null, ResponseBody::string);
+  private String callApi(EndpointSelector endpoints, String urlPath) {
+    return callUrl(endpoints, urlPath, true, null, HttpTransport.Response::getBodyAsString);
   }
 
   /**
-   * Call the given URL.
+   * Call the given path on the preferred base URL, and fail over to the next ones on transient failures or 404. Once all base URLs
+   * failed, the whole sequence is retried according to the {@link RetryPolicy}. Base URLs whose {@link CircuitBreaker} is open are
+   * skipped.
    *
-   * @param url            the URL to call
+   * @param endpoints      the equivalent base URLs
+   * @param urlPath        the path to call, relative to the base URLs
    * @param authentication if true, the request will be authenticated with the token
    * @param acceptHeader   the value of the Accept header
    */
-  private <G> G callUrl(String url, boolean authentication, @Nullable String acceptHeader, ResponseHandler<G> responseHandler) {
-    var httpClient = buildHttpClient(authentication);
-    var request = prepareRequest(url, acceptHeader);
-    try (Response response = httpClient.newCall(request).execute()) {
-      var body = response.body();
+  private <G> G callUrl(EndpointSelector endpoints, String urlPath, boolean authentication, @Nullable String acceptHeader,
+    ResponseHandler<G> responseHandler) {
+    for (int retry = 1; ; retry++) {
+      try {
+        return callFirstAvailable(endpoints, urlPath, authentication, acceptHeader, responseHandler);
+      } catch (TransientFailureException e) {
+        var allOpen = endpoints.getBaseUrls().stream().allMatch(baseUrl -> circuitBreaker(hostOf(baseUrl)).isOpen());
+        var delay = allOpen ? Optional.<Duration>empty() : retryPolicy.nextDelay(retry, e.getRetryAfter());
+        if (delay.isEmpty()) {
+          throw e.getFailure();
+        }
+        LOG.warn("Call to URL [{}] failed: {}. Retrying in {}ms ({}/{})", e.getUrl(), e.getMessage(), delay.get().toMillis(), retry, retryPolicy.getMaxRetries());
+        sleep(delay.get(), e);
+      }
+    }
+  }
+
+  private <G> G callFirstAvailable(EndpointSelector endpoints, String urlPath, boolean authentication, @Nullable String acceptHeader,
+    ResponseHandler<G> responseHandler) {
+    var ranking = endpoints.getRanking();
+    RuntimeException lastFailure = null;
+    for (var baseUrl : ranking) {
+      var url = baseUrl + urlPath;
+      var host = hostOf(url);
+      var circuitBreaker = circuitBreaker(host);
+      if (!circuitBreaker.allowRequest()) {
+        if (lastFailure == null) {
+          lastFailure = new IllegalStateException(format("Call to URL [%s] failed: %s is considered unavailable after %d consecutive failures", url, host,
+            circuitBreaker.getConsecutiveFailures()));
+        }
+        continue;
+      }
+      if (lastFailure != null) {
+        LOG.warn("Failing over to {}", url);
+      }
+      try {
+        G result = callOnce(url, authentication, acceptHeader, responseHandler);
+        circuitBreaker.recordSuccess();
+        return result;
+      } catch (TransientFailureException e) {
+        if (e.isServerFailure()) {
+          circuitBreaker.recordFailure();
+        }
+        endpoints.demote(baseUrl);
+        lastFailure = e;
+      } catch (HttpException e) {
+        // A mirror or a node might not have the requested resource yet
+        if (e.getCode() != 404 || ranking.size() < 2) {
+          throw e;
+        }
+        lastFailure = e;
+      }
+    }
+    throw requireNonNull(lastFailure);
+  }
+
+  private CircuitBreaker circuitBreaker(String host) {
+    return circuitBreakers.computeIfAbsent(host, h -> new CircuitBreaker(httpConfig.getCircuitBreakerThreshold()));
+  }
+
+  private static String hostOf(String url) {
+    try {
+      return Optional.ofNullable(new URI(url).getHost()).orElse(url);
+    } catch (URISyntaxException e) {
+      return url;
+    }
+  }
+
+  private <G> G callOnce(String url, boolean authentication, @Nullable String acceptHeader, ResponseHandler<G> responseHandler) {
+    try (var response = transport.get(url, authentication, acceptHeader)) {
       if (!response.isSuccessful()) {
-        throw new HttpException(response.request().url().url(), response.code(), response.message(), body != null ? body.string() : null);
+        var httpException = new HttpException(response.getUrl(), response.getCode(), response.getMessage(), response.getBodyAsString());
+        if (RetryPolicy.isRetryable(response.getCode())) {
+          var retryAfter = RetryPolicy.parseRetryAfter(response.getHeader("Retry-After"), Instant.now());
+          // Rate limiting means the server is up
+          throw new TransientFailureException(url, response.getCode() + " " + response.getMessage(), httpException, retryAfter, response.getCode() != 429);
+        }
+        throw httpException;
       }
-      return responseHandler.apply(requireNonNull(body, "Response body is empty"));
-    } catch (HttpException e) {
+      return responseHandler.apply(response);
+    } catch (HttpException | TransientFailureException | LocalFileException e) {
       throw e;
+    } catch (IOException e) {
+      if (isInterruption(e)) {
+        // Interrupted by the caller, for example while waiting for the download rate limit: not a failure of the server, not retried
+        throw new IllegalStateException(format("Call to URL [%s] was interrupted", url), e);
+      }
+      var failure = new IllegalStateException(format("Call to URL [%s] failed: %s", url, e.getMessage()), e);
+      throw new TransientFailureException(url, String.valueOf(e.getMessage()), failure, null, true);
     } catch (Exception e) {
       throw new IllegalStateException(format("Call to URL [%s] failed: %s", url, e.getMessage()), e);
     }
   }
 
-  private interface ResponseHandler<G> {
-    G apply(ResponseBody responseBody) throws IOException;
-  }
-
-  private Request prepareRequest(String url, @Nullable String acceptHeader) {
-    var requestBuilder = new Request.Builder()
-      .get()
-      .url(url)
-      .addHeader("User-Agent", httpConfig.getUserAgent());
-    if (acceptHeader != null) {
-      requestBuilder.header("Accept", acceptHeader);
-    }
-    return requestBuilder.build();
-  }
-
-  private OkHttpClient buildHttpClient(boolean authentication) {
-    if (authentication) {
-      return sharedHttpClient.newBuilder()
-        .addNetworkInterceptor(chain -> {
-          Request request = chain.request();
-          if (httpConfig.getToken() != null) {
-            request = request.newBuilder()
-              .header("Authorization", "Bearer " + httpConfig.getToken())
-              .build();
-          } else if (httpConfig.getLogin() != null) {
-            request = request.newBuilder()
-              .header("Authorization", Credentials.basic(httpConfig.getLogin(), httpConfig.getPassword() != null ? httpConfig.getPassword() : ""))
-              .build();
-          }
-          return chain.proceed(request);
-        })
-        .build();
-    } else {
-      return sharedHttpClient;
+  /**
+   * Interruptible I/O reports the interruption of the thread either with an {@link InterruptedIOException} or by closing the channel.
+   */
+  private static boolean isInterruption(IOException e) {
+    return (e instanceof InterruptedIOException || e instanceof ClosedByInterruptException) && Thread.currentThread().isInterrupted();
+  }
+
+  private static void sleep(Duration delay, TransientFailureException failure) {
+    try {
+      Thread.sleep(delay.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw failure.getFailure();
+    }
+  }
+
+  private static class TransientFailureException extends RuntimeException {
+    private final String url;
+    private final RuntimeException failure;
+    @Nullable
+    private final Duration retryAfter;
+    private final boolean serverFailure;
+
+    TransientFailureException(String url, String reason, RuntimeException failure, @Nullable Duration retryAfter, boolean serverFailure) {
+      super(reason, failure, false, false);
+      this.url = url;
+      this.failure = failure;
+      this.retryAfter = retryAfter;
+      this.serverFailure = serverFailure;
+    }
+
+    String getUrl() {
+      return url;
+    }
+
+    RuntimeException getFailure() {
+      return failure;
+    }
+
+    @CheckForNull
+    Duration getRetryAfter() {
+      return retryAfter;
     }
+
+    boolean isServerFailure() {
+      return serverFailure;
+    }
+  }
+
+  /**
+   * Failure to write a downloaded file. It surfaces immediately, and doesn't count as a failure of the server.
+   */
+  private static class LocalFileException extends IllegalStateException {
+    LocalFileException(String message, IOException cause) {
+      super(message, cause);
+    }
+  }
+
+  /**
+   * Records whether reading the response failed, to tell network failures from failures of the local target.
+   */
+  private static class ReadTrackingInputStream extends FilterInputStream {
+    private boolean readFailed;
+
+    ReadTrackingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      try {
+        return super.read();
+      } catch (IOException e) {
+        readFailed = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      try {
+        return super.read(b, off, len);
+      } catch (IOException e) {
+        readFailed = true;
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } catch (IOException e) {
+        readFailed = true;
+        throw e;
+      }
+    }
+  }
+
+  private interface ResponseHandler<G> {
+    G apply(HttpTransport.Response response) throws IOException;
   }
 }
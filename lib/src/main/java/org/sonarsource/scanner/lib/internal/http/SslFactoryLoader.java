@@ -0,0 +1,128 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import nl.altindag.ssl.SSLFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonarsource.scanner.lib.internal.util.Utils;
+
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE;
+import static org.sonarsource.scanner.lib.ScannerProperties.SONAR_SCANNER_SYSTEM_TRUSTSTORE_TIMEOUT;
+
+/**
+ * Load the SSL material in a background thread, so that it overlaps with the rest of the bootstrap. Loading the OS trusted
+ * certificates might be slow or even get stuck, so it is abandoned after {@link HttpConfig#getSystemTruststoreTimeout()}
+ * in favor of the JVM/default trust material.
+ */
+public class SslFactoryLoader {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SslFactoryLoader.class);
+
+  private final HttpConfig httpConfig;
+  private final CompletableFuture<SSLFactory> future;
+  private final long startNanos;
+  private volatile Duration loadingTime;
+  private volatile Duration waitingTime = Duration.ZERO;
+
+  /**
+   * For unit tests
+   */
+  SslFactoryLoader(HttpConfig httpConfig, Supplier<SSLFactory> sslFactorySupplier) {
+    this.httpConfig = httpConfig;
+    this.startNanos = System.nanoTime();
+    this.future = CompletableFuture.supplyAsync(() -> load(sslFactorySupplier), Utils.daemonExecutor("sonar-scanner-ssl-loader"));
+  }
+
+  public static SslFactoryLoader start(HttpConfig httpConfig) {
+    return new SslFactoryLoader(httpConfig, () -> SslFactories.configureSsl(httpConfig.getSslConfig(), httpConfig.skipSystemTruststore()));
+  }
+
+  private SSLFactory load(Supplier<SSLFactory> sslFactorySupplier) {
+    var sslFactory = sslFactorySupplier.get();
+    loadingTime = Duration.ofNanos(System.nanoTime() - startNanos);
+    LOG.debug("SSL material loaded in {}ms", loadingTime.toMillis());
+    return sslFactory;
+  }
+
+  /**
+   * Wait for the SSL material to be loaded. Errors happening in the background thread are rethrown as is.
+   */
+  SSLFactory get() {
+    long waitStart = System.nanoTime();
+    try {
+      return await();
+    } finally {
+      waitingTime = Duration.ofNanos(System.nanoTime() - waitStart);
+    }
+  }
+
+  private SSLFactory await() {
+    var timeout = httpConfig.getSystemTruststoreTimeout();
+    try {
+      if (httpConfig.skipSystemTruststore() || timeout.isZero()) {
+        return future.get();
+      }
+      return future.get(remainingBudgetNanos(timeout), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      LOG.warn("Loading OS trusted SSL certificates took more than {}ms and was abandoned, only the JVM truststore will be used. "
+        + "You can change the time budget with the scanner property '{}', or skip this step with '{}=true'",
+        timeout.toMillis(), SONAR_SCANNER_SYSTEM_TRUSTSTORE_TIMEOUT, SONAR_SCANNER_SKIP_SYSTEM_TRUSTSTORE);
+      var sslFactory = SslFactories.configureSsl(httpConfig.getSslConfig(), true);
+      loadingTime = Duration.ofNanos(System.nanoTime() - startNanos);
+      return sslFactory;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to load SSL material", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading SSL material", e);
+    }
+  }
+
+  private long remainingBudgetNanos(Duration timeout) {
+    return Math.max(0, timeout.toNanos() - (System.nanoTime() - startNanos));
+  }
+
+  /**
+   * @return how long it took to get the SSL material, or null if it is not loaded yet
+   */
+  @CheckForNull
+  public Duration getLoadingTime() {
+    return loadingTime;
+  }
+
+  /**
+   * @return how long the bootstrap was blocked waiting for the SSL material
+   */
+  public Duration getWaitingTime() {
+    return waitingTime;
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream that reads in chunks, and waits after each chunk for the {@link RateLimiter}.
+ */
+class ThrottledInputStream extends FilterInputStream {
+
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final RateLimiter rateLimiter;
+
+  ThrottledInputStream(InputStream in, RateLimiter rateLimiter) {
+    super(in);
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = in.read();
+    if (b != -1) {
+      rateLimiter.acquire(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int read = in.read(b, off, Math.min(len, CHUNK_SIZE));
+    if (read > 0) {
+      rateLimiter.acquire(read);
+    }
+    return read;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = in.skip(Math.min(n, CHUNK_SIZE));
+    if (skipped > 0) {
+      rateLimiter.acquire((int) skipped);
+    }
+    return skipped;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * In-process token bucket, where a token is a byte. The bucket holds at most one second worth of tokens. Readers take the tokens
+ * for what they just read, possibly going into debt, and then wait until the debt is paid back. All the downloads of the process
+ * share the same bucket.
+ */
+class TokenBucketRateLimiter implements RateLimiter {
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final Map<Long, TokenBucketRateLimiter> PER_PROCESS = new ConcurrentHashMap<>();
+
+  private final long bytesPerSecond;
+  private final LongSupplier nanoClock;
+  private double tokens;
+  private long lastRefill;
+
+  TokenBucketRateLimiter(long bytesPerSecond, LongSupplier nanoClock) {
+    this.bytesPerSecond = bytesPerSecond;
+    this.nanoClock = nanoClock;
+    this.tokens = bytesPerSecond;
+    this.lastRefill = nanoClock.getAsLong();
+  }
+
+  static TokenBucketRateLimiter forProcess(long bytesPerSecond) {
+    return PER_PROCESS.computeIfAbsent(bytesPerSecond, rate -> new TokenBucketRateLimiter(rate, System::nanoTime));
+  }
+
+  @Override
+  public void acquire(int bytes) throws InterruptedIOException {
+    sleepNanos(reserve(bytes));
+  }
+
+  /**
+   * @return the time to wait before the bytes can be used, in nanoseconds
+   */
+  synchronized long reserve(int bytes) {
+    long now = nanoClock.getAsLong();
+    tokens = refill(tokens, now - lastRefill, bytesPerSecond) - bytes;
+    lastRefill = now;
+    return waitNanos(tokens, bytesPerSecond);
+  }
+
+  static double refill(double tokens, long elapsedNanos, long bytesPerSecond) {
+    return Math.min(bytesPerSecond, tokens + Math.max(0, elapsedNanos) * (double) bytesPerSecond / NANOS_PER_SECOND);
+  }
+
+  static long waitNanos(double tokens, long bytesPerSecond) {
+    return tokens >= 0 ? 0 : (long) (-tokens * NANOS_PER_SECOND / bytesPerSecond);
+  }
+
+  static void sleepNanos(long nanos) throws InterruptedIOException {
+    if (nanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the download rate limit");
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.nio.file.Path;
+import org.sonarsource.scanner.lib.internal.cache.ArtifactSource;
+
+/**
+ * Artifacts served by a generic HTTP repository (Artifactory, Nexus, a plain web server...). The URL of an artifact is computed
+ * from a template, where {@code {filename}} and {@code {hash}} are replaced. If the template contains no {@code {filename}}, the
+ * filename is appended to it.
+ * <p>
+ * Artifacts are downloaded from the computed URL as is, without download mirrors, and with a single attempt: when the repository
+ * is unavailable, the artifact is downloaded from the server instead.
+ */
+public class UrlTemplateArtifactSource implements ArtifactSource {
+
+  private static final String FILENAME_PLACEHOLDER = "{filename}";
+  private static final String HASH_PLACEHOLDER = "{hash}";
+
+  private final String urlTemplate;
+  private final ScannerHttpClient scannerHttpClient;
+
+  public UrlTemplateArtifactSource(String urlTemplate, ScannerHttpClient scannerHttpClient) {
+    this.urlTemplate = urlTemplate;
+    this.scannerHttpClient = scannerHttpClient;
+  }
+
+  String urlOf(String filename, String hash) {
+    var template = urlTemplate.contains(FILENAME_PLACEHOLDER) ? urlTemplate : (urlTemplate.replaceAll("/+$", "") + "/" + FILENAME_PLACEHOLDER);
+    return template.replace(FILENAME_PLACEHOLDER, filename).replace(HASH_PLACEHOLDER, hash);
+  }
+
+  @Override
+  public boolean fetch(String filename, String hash, Path toFile) {
+    try {
+      scannerHttpClient.downloadOnce(urlOf(filename, hash), toFile);
+      return true;
+    } catch (HttpException e) {
+      if (e.getCode() == 404) {
+        return false;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return urlTemplate;
+  }
+}
@@ -22,10 +22,8 @@ package org.sonarsource.scanner.lib.internal.util;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.nio.file.attribute.PosixFilePermission;
 import java.util.EnumSet;
 import java.util.Enumeration;
@@ -37,7 +35,6 @@ import java.util.zip.ZipFile;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
-import org.apache.commons.io.IOUtils;
 
 import static org.apache.commons.lang3.SystemUtils.IS_OS_WINDOWS;
 
@@ -116,9 +113,8 @@ public final class CompressionUtils {
   }
 
   private static void copy(ZipFile zipFile, ZipEntry entry, Path to) throws IOException {
-    try (InputStream input = zipFile.getInputStream(entry);
-      OutputStream fos = Files.newOutputStream(to)) {
-      IOUtils.copy(input, fos);
+    try (InputStream input = zipFile.getInputStream(entry)) {
+      IoBuffers.copy(input, to);
     }
   }
 
@@ -143,7 +139,7 @@ public final class CompressionUtils {
           if (!Files.isDirectory(target.getParent())) {
             Files.createDirectories(target.getParent());
           }
-          Files.copy(tarArchiveInputStream, target, StandardCopyOption.REPLACE_EXISTING);
+          IoBuffers.copy(tarArchiveInputStream, target);
           int mode = targzEntry.getMode();
           if (mode != 0 && !IS_OS_WINDOWS) {
             Set<PosixFilePermission> permissions = fromFileMode(mode);
@@ -0,0 +1,128 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool of large direct buffers, shared by the code paths that move a lot of bytes: hashing, downloads and archive extraction.
+ * Copies to files go through NIO channels, and copies between files are delegated to the OS with {@link FileChannel#transferTo}.
+ */
+public final class IoBuffers {
+
+  public static final int BUFFER_SIZE = 256 * 1024;
+  private static final int MAX_POOLED_BUFFERS = Math.max(4, Runtime.getRuntime().availableProcessors());
+  private static final BlockingQueue<ByteBuffer> POOL = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+  private IoBuffers() {
+    // only static methods
+  }
+
+  /**
+   * Get a cleared buffer of {@link #BUFFER_SIZE} bytes. It must be given back with {@link #release(ByteBuffer)} once used.
+   */
+  public static ByteBuffer acquire() {
+    var buffer = POOL.poll();
+    return buffer != null ? buffer.clear() : ByteBuffer.allocateDirect(BUFFER_SIZE);
+  }
+
+  public static void release(ByteBuffer buffer) {
+    if (buffer.isDirect() && buffer.capacity() == BUFFER_SIZE) {
+      // Dropped when the pool is full
+      POOL.offer(buffer);
+    }
+  }
+
+  /**
+   * Write the content of the stream to the target file, replacing it if it exists. The stream is not closed.
+   *
+   * @return the number of bytes copied
+   */
+  public static long copy(InputStream in, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try (var out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      return copy(Channels.newChannel(in), out);
+    }
+  }
+
+  /**
+   * Copy a file, replacing the target if it exists.
+   *
+   * @return the number of bytes copied
+   */
+  public static long copy(Path source, Path target) throws IOException {
+    Files.deleteIfExists(target);
+    try (var in = FileChannel.open(source, StandardOpenOption.READ);
+      var out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      return copy(in, out);
+    }
+  }
+
+  /**
+   * Copy all the remaining bytes of a channel to another one. Neither channel is closed.
+   *
+   * @return the number of bytes copied
+   */
+  public static long copy(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+    if (in instanceof FileChannel) {
+      return transfer((FileChannel) in, out);
+    }
+    var buffer = acquire();
+    try {
+      long total = 0;
+      while (in.read(buffer) != -1) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          total += out.write(buffer);
+        }
+        buffer.clear();
+      }
+      return total;
+    } finally {
+      release(buffer);
+    }
+  }
+
+  private static long transfer(FileChannel in, WritableByteChannel out) throws IOException {
+    long position = in.position();
+    long size = in.size();
+    long total = 0;
+    while (position + total < size) {
+      long transferred = in.transferTo(position + total, size - position - total, out);
+      if (transferred <= 0) {
+        break;
+      }
+      total += transferred;
+    }
+    in.position(position + total);
+    return total;
+  }
+}
@@ -25,6 +25,8 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
 
 public class Utils {
 
@@ -40,6 +42,25 @@ public class Utils {
     }
   }
 
+  /**
+   * An {@link Executor} running each task in a new daemon thread, so that background work never prevents the JVM from exiting.
+   */
+  public static Executor daemonExecutor(String threadName) {
+    var threadFactory = daemonThreadFactory(threadName);
+    return runnable -> threadFactory.newThread(runnable).start();
+  }
+
+  /**
+   * A {@link ThreadFactory} creating daemon threads, for the thread pools of background work.
+   */
+  public static ThreadFactory daemonThreadFactory(String threadName) {
+    return runnable -> {
+      var thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
   private static class DeleteQuietlyFileVisitor extends SimpleFileVisitor<Path> {
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
@@ -42,6 +42,7 @@ import org.junitpioneer.jupiter.RestoreSystemProperties;
 import org.mockito.Mockito;
 import org.slf4j.event.Level;
 import org.sonarsource.scanner.lib.internal.InternalProperties;
+import org.sonarsource.scanner.lib.internal.cache.DirectoryArtifactSource;
 import org.sonarsource.scanner.lib.internal.cache.FileCache;
 import org.sonarsource.scanner.lib.internal.facade.forked.ScannerEngineLauncher;
 import org.sonarsource.scanner.lib.internal.facade.forked.ScannerEngineLauncherFactory;
@@ -49,6 +50,7 @@ import org.sonarsource.scanner.lib.internal.facade.inprocess.IsolatedLauncherFac
 import org.sonarsource.scanner.lib.internal.http.HttpConfig;
 import org.sonarsource.scanner.lib.internal.http.HttpException;
 import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
+import org.sonarsource.scanner.lib.internal.http.UrlTemplateArtifactSource;
 import org.sonarsource.scanner.lib.internal.http.ssl.CertificateStore;
 import org.sonarsource.scanner.lib.internal.http.ssl.SslConfig;
 import org.sonarsource.scanner.lib.internal.util.System2;
@@ -152,7 +154,7 @@ class ScannerEngineBootstrapperTest {
   @Test
   void should_issue_deprecation_warning_for_sonar_login_property_sonarqube_10_0() throws Exception {
     IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
-    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class)))
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false)))
       .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
 
     ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
@@ -162,7 +164,7 @@ class ScannerEngineBootstrapperTest {
 
     try (var bootstrapResult = bootstrapper.setBootstrapProperty(ScannerProperties.HOST_URL, "http://localhost").setBootstrapProperty(ScannerProperties.SONAR_LOGIN,
       "mockTokenValue").bootstrap()) {
-      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class));
+      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false));
       assertThat(bootstrapResult.getEngineFacade().isSonarCloud()).isFalse();
       assertThat(logTester.logs(Level.WARN)).contains("Use of 'sonar.login' property has been deprecated in favor of 'sonar.token' (or the env variable alternative " +
         "'SONAR_TOKEN'). Please use the latter when passing a token.");
@@ -186,7 +188,7 @@ class ScannerEngineBootstrapperTest {
   @Test
   void should_use_old_bootstrapping_with_sonarqube_9_9() throws Exception {
     IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
-    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class)))
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false)))
       .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
 
     ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
@@ -195,7 +197,7 @@ class ScannerEngineBootstrapperTest {
     when(scannerHttpClient.callWebApi("/api/server/version")).thenReturn("9.9");
 
     try (var bootstrapResult = bootstrapper.setBootstrapProperty(ScannerProperties.HOST_URL, "http://myserver").bootstrap()) {
-      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class));
+      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false));
       assertThat(bootstrapResult.getEngineFacade().isSonarCloud()).isFalse();
       assertThat(bootstrapResult.getEngineFacade().getServerVersion()).isEqualTo("9.9");
       verifySonarQubeServerTypeLogged("9.9");
@@ -205,7 +207,7 @@ class ScannerEngineBootstrapperTest {
   @Test
   void should_use_old_bootstrapping_with_sonarqube_10_5() throws Exception {
     IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
-    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class)))
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false)))
       .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
 
     ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
@@ -214,17 +216,35 @@ class ScannerEngineBootstrapperTest {
     when(scannerHttpClient.callWebApi("/api/server/version")).thenReturn("10.5");
 
     try (var bootstrapResult = bootstrapper.setBootstrapProperty(ScannerProperties.HOST_URL, "http://myserver").bootstrap()) {
-      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class));
+      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false));
       assertThat(bootstrapResult.getEngineFacade().isSonarCloud()).isFalse();
       assertThat(bootstrapResult.getEngineFacade().getServerVersion()).isEqualTo("10.5");
       verifySonarQubeServerTypeLogged("10.5");
     }
   }
 
+  @Test
+  void should_preload_engine_classes_with_old_bootstrapping_if_enabled() throws Exception {
+    IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(true)))
+      .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
+
+    ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
+      launcherFactory, scannerEngineLauncherFactory);
+    when(scannerHttpClient.callRestApi("/analysis/version")).thenThrow(new HttpException(URI.create("http://myserver").toURL(), 404, "Not Found", null));
+    when(scannerHttpClient.callWebApi("/api/server/version")).thenReturn("10.5");
+
+    try (var bootstrapResult = bootstrapper.setBootstrapProperty(ScannerProperties.HOST_URL, "http://myserver")
+      .setBootstrapProperty(ScannerProperties.SCANNER_PRELOAD_ENGINE_CLASSES, "true").bootstrap()) {
+      verify(launcherFactory).createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(true));
+      assertThat(bootstrapResult.getEngineFacade().getServerVersion()).isEqualTo("10.5");
+    }
+  }
+
   @Test
   void should_show_help_on_proxy_auth_error() throws Exception {
     IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
-    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class)))
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false)))
       .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
 
     ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
@@ -246,7 +266,7 @@ class ScannerEngineBootstrapperTest {
   @Test
   void should_preserve_both_exceptions_when_checking_version() throws Exception {
     IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
-    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class)))
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false)))
       .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
 
     ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
@@ -275,7 +295,7 @@ class ScannerEngineBootstrapperTest {
   @ValueSource(ints = {401, 403})
   void should_log_user_friendly_message_when_auth_error(int code) throws Exception {
     IsolatedLauncherFactory launcherFactory = mock(IsolatedLauncherFactory.class);
-    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class)))
+    when(launcherFactory.createLauncher(eq(scannerHttpClient), any(FileCache.class), eq(false)))
       .thenReturn(mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class));
 
     ScannerEngineBootstrapper bootstrapper = new ScannerEngineBootstrapper("Gradle", "3.1", system, scannerHttpClient,
@@ -503,6 +523,26 @@ class ScannerEngineBootstrapperTest {
       entry("sonar.scanner.truststorePassword", "truststorePass"));
   }
 
+  @Test
+  void should_create_artifact_refresher_only_when_enabled() {
+    var fileCache = mock(FileCache.class);
+
+    assertThat(ScannerEngineBootstrapper.createArtifactRefresher(Map.of(), scannerHttpClient, fileCache)).isNull();
+    assertThat(ScannerEngineBootstrapper.createArtifactRefresher(Map.of("sonar.scanner.backgroundRefresh", "true",
+      "sonar.scanner.backgroundRefreshTimeout", "5"), scannerHttpClient, fileCache)).isNotNull();
+  }
+
+  @Test
+  void should_create_artifact_sources_in_declared_order() {
+    var sources = ScannerEngineBootstrapper.createArtifactSources(
+      Map.of("sonar.scanner.artifactSources", " /opt/sonar-artifacts , https://repo.example.com/sonar/{filename},, "), mock(ScannerHttpClient.class));
+
+    assertThat(sources).hasSize(2);
+    assertThat(sources.get(0)).isInstanceOf(DirectoryArtifactSource.class).hasToString(Paths.get("/opt/sonar-artifacts").toString());
+    assertThat(sources.get(1)).isInstanceOf(UrlTemplateArtifactSource.class).hasToString("https://repo.example.com/sonar/{filename}");
+    assertThat(ScannerEngineBootstrapper.createArtifactSources(Map.of(), mock(ScannerHttpClient.class))).isEmpty();
+  }
+
   private void verifyCloudServerTypeLogged() {
     assertThat(logTester.logs(Level.INFO)).contains("Communicating with SonarQube Cloud");
   }
@@ -0,0 +1,66 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import testutils.LogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BootstrapMetricsTest {
+
+  @RegisterExtension
+  private final LogTester logTester = new LogTester();
+
+  private final BootstrapMetrics underTest = new BootstrapMetrics();
+
+  @Test
+  void should_accumulate_durations_per_step() {
+    underTest.record("step1", Duration.ofMillis(10));
+    underTest.record("step2", Duration.ofMillis(5));
+    underTest.record("step1", Duration.ofMillis(20));
+
+    assertThat(underTest.getDurations())
+      .containsEntry("step1", Duration.ofMillis(30))
+      .containsEntry("step2", Duration.ofMillis(5));
+  }
+
+  @Test
+  void should_time_steps() {
+    var result = underTest.time("step", () -> "result");
+
+    assertThat(result).isEqualTo("result");
+    assertThat(underTest.getDurations()).containsKey("step");
+  }
+
+  @Test
+  void should_log_timings_in_debug() {
+    logTester.setLevel(Level.DEBUG);
+    underTest.record("step1", Duration.ofMillis(10));
+    underTest.record("step2", Duration.ofMillis(5));
+
+    underTest.log();
+
+    assertThat(logTester.logs(Level.DEBUG)).contains("Bootstrap timings: step1=10ms, step2=5ms");
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.cache;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheVerifierTest {
+
+  @TempDir
+  private Path cacheDir;
+
+  private final FileHashes fileHashes = new FileHashes();
+
+  @Test
+  void should_quarantine_corrupted_files_of_both_layouts() throws IOException {
+    var md5 = DigestUtils.md5Hex("plugin");
+    var sha256 = DigestUtils.sha256Hex("engine");
+    var jreSha256 = DigestUtils.sha256Hex("jre");
+    // Flat layout
+    write(cacheDir.resolve(md5).resolve("sonar-java-plugin.jar"), "plugin");
+    // Sharded layout, truncated during a previous download
+    var corrupted = cacheDir.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2)).resolve("scanner-engine.jar");
+    write(corrupted, "eng");
+    var jreDir = cacheDir.resolve(jreSha256.substring(0, 2)).resolve(jreSha256.substring(2));
+    write(jreDir.resolve("jre.tar.gz"), "jre");
+    write(jreDir.resolve("jre.tar.gz_extracted.lock"), "");
+    write(jreDir.resolve("jre.tar.gz_extracted/bin/java"), "java");
+    // Not a known hash algorithm
+    write(cacheDir.resolve("ABCDE/legacy.jar"), "legacy");
+    write(cacheDir.resolve("_tmp/fileCache123.tmp"), "partial");
+
+    var result = new CacheVerifier(cacheDir, fileHashes).verifyAll(2);
+
+    assertThat(result.getVerifiedCount()).isEqualTo(3);
+    assertThat(result.getSkippedCount()).isEqualTo(1);
+    assertThat(result.getQuarantinedFiles()).containsOnly(corrupted);
+    assertThat(corrupted).doesNotExist();
+    assertThat(cacheDir.resolve("_quarantine").resolve(sha256).resolve("scanner-engine.jar")).hasContent("eng");
+    assertThat(cacheDir.resolve(md5).resolve("sonar-java-plugin.jar")).exists();
+    assertThat(jreDir.resolve("jre.tar.gz")).exists();
+  }
+
+  @Test
+  void should_deduce_hash_algorithm_from_hash_length() {
+    assertThat(CacheVerifier.hashAlgorithmOf(DigestUtils.md5Hex("a"))).hasValue("MD5");
+    assertThat(CacheVerifier.hashAlgorithmOf(DigestUtils.sha1Hex("a"))).hasValue("SHA-1");
+    assertThat(CacheVerifier.hashAlgorithmOf(DigestUtils.sha256Hex("a"))).hasValue("SHA-256");
+    assertThat(CacheVerifier.hashAlgorithmOf(DigestUtils.sha512Hex("a"))).hasValue("SHA-512");
+    assertThat(CacheVerifier.hashAlgorithmOf("ABCDE")).isEmpty();
+  }
+
+  private static void write(Path file, String content) throws IOException {
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
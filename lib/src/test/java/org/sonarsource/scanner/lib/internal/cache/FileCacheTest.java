@@ -24,6 +24,9 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -33,6 +36,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class FileCacheTest {
@@ -172,6 +177,189 @@ class FileCacheTest {
     assertThat(read(cachedFile.getPathInCache())).contains("downloaded by");
   }
 
+  @Test
+  void download_to_sharded_layout() throws IOException {
+    when(fileHashes.of(any(File.class), eq(HASH_ALGO))).thenReturn("ABCDE");
+    var shardedCache = new FileCache(temp, fileHashes, true);
+
+    var cachedFile = shardedCache.getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, (filename, toFile) -> write(toFile, "body"));
+
+    assertThat(cachedFile.getPathInCache()).isEqualTo(temp.resolve("AB/CDE/sonar-foo-plugin-1.5.jar"));
+    assertThat(cachedFile.isCacheHit()).isFalse();
+    assertThat(shardedCache.get("sonar-foo-plugin-1.5.jar", "ABCDE")).isEqualTo(cachedFile.getPathInCache());
+    assertThat(temp.resolve("ABCDE")).doesNotExist();
+  }
+
+  @Test
+  void use_files_of_flat_layout_in_place() throws IOException {
+    var legacyFile = temp.resolve("ABCDE/sonar-foo-plugin-1.5.jar");
+    write(legacyFile, "body");
+    write(temp.resolve("ABCDE/jre.tar.gz_extracted/bin/java"), "java");
+    write(temp.resolve("VWXYZ/scanner-engine.jar"), "engine");
+    var shardedCache = new FileCache(temp, fileHashes, true);
+
+    var cachedFile = shardedCache.getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, mock(FileCache.Downloader.class));
+    var otherCachedFile = shardedCache.get("scanner-engine.jar", "VWXYZ");
+
+    assertThat(cachedFile.isCacheHit()).isTrue();
+    // Shared with older scanners, that only know the flat layout
+    assertThat(cachedFile.getPathInCache()).isEqualTo(legacyFile);
+    assertThat(read(cachedFile.getPathInCache())).isEqualTo("body");
+    assertThat(temp.resolve("ABCDE/jre.tar.gz_extracted/bin/java")).exists();
+    assertThat(temp.resolve("AB")).doesNotExist();
+    assertThat(otherCachedFile).isEqualTo(temp.resolve("VWXYZ/scanner-engine.jar"));
+    assertThat(temp.resolve("VW")).doesNotExist();
+  }
+
+  @Test
+  void flat_layout_is_kept_for_files_read_by_the_scanner_engine() throws IOException {
+    when(fileHashes.of(any(File.class), eq(HASH_ALGO))).thenReturn("ABCDE");
+    var flatCache = new FileCache(temp, fileHashes, true).withFlatLayout();
+    write(temp.resolve("VWXYZ/sonar-bar-plugin-1.0.jar"), "bar");
+
+    var cachedFile = flatCache.getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, (filename, toFile) -> write(toFile, "body"));
+
+    assertThat(cachedFile.getPathInCache()).isEqualTo(temp.resolve("ABCDE/sonar-foo-plugin-1.5.jar"));
+    assertThat(flatCache.get("sonar-bar-plugin-1.0.jar", "VWXYZ")).isEqualTo(temp.resolve("VWXYZ/sonar-bar-plugin-1.0.jar"));
+    assertThat(flatCache.withFlatLayout()).isSameAs(flatCache);
+  }
+
+  @Test
+  void get_from_artifact_sources_before_downloading() throws IOException {
+    hashIsABCDEOnlyFor("from mirror");
+    var notFound = mock(ArtifactSource.class);
+    var failing = mock(ArtifactSource.class);
+    when(failing.fetch(any(), any(), any())).thenThrow(new IOException("unreachable"));
+    ArtifactSource corrupted = (filename, hash, toFile) -> {
+      write(toFile, "corrupted");
+      return true;
+    };
+    ArtifactSource mirror = (filename, hash, toFile) -> {
+      write(toFile, "from mirror");
+      return true;
+    };
+    var downloader = mock(FileCache.Downloader.class);
+
+    var cachedFile = cache.withArtifactSources(List.of(notFound, failing, corrupted, mirror))
+      .getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, downloader);
+
+    assertThat(read(cachedFile.getPathInCache())).isEqualTo("from mirror");
+    assertThat(cachedFile.getPathInCache().getParent()).hasParent(cache.getDir());
+    verify(notFound).fetch(eq("sonar-foo-plugin-1.5.jar"), eq("ABCDE"), any(Path.class));
+    verifyNoInteractions(downloader);
+  }
+
+  @Test
+  void download_when_no_artifact_source_has_the_file() throws IOException {
+    hashIsABCDEOnlyFor("from server");
+    ArtifactSource corrupted = (filename, hash, toFile) -> {
+      write(toFile, "corrupted");
+      return true;
+    };
+
+    var cachedFile = cache.withArtifactSources(List.of(corrupted))
+      .getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, (filename, toFile) -> write(toFile, "from server"));
+
+    assertThat(read(cachedFile.getPathInCache())).isEqualTo("from server");
+  }
+
+  @Test
+  void get_from_directory_artifact_source(@TempDir Path mirrorDir) throws IOException {
+    hashIsABCDEOnlyFor("from directory");
+    write(mirrorDir.resolve("ABCDE/sonar-foo-plugin-1.5.jar"), "from directory");
+    write(mirrorDir.resolve("other.jar"), "other");
+    var source = new DirectoryArtifactSource(mirrorDir);
+
+    var cachedFile = cache.withArtifactSources(List.of(source))
+      .getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, mock(FileCache.Downloader.class));
+
+    assertThat(read(cachedFile.getPathInCache())).isEqualTo("from directory");
+    var toFile = temp.resolve("other.jar");
+    assertThat(source.fetch("other.jar", "ANY", toFile)).isTrue();
+    assertThat(read(toFile)).isEqualTo("other");
+    assertThat(source.fetch("missing.jar", "ANY", toFile)).isFalse();
+  }
+
+  @Test
+  void download_again_corrupted_files_when_verified_on_hit() throws IOException {
+    hashIsABCDEOnlyFor("body");
+    write(temp.resolve("ABCDE/sonar-foo-plugin-1.5.jar"), "truncated");
+    var verifyingCache = cache.withVerifyOnHit(1);
+
+    var cachedFile = verifyingCache.getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, (filename, toFile) -> write(toFile, "body"));
+
+    assertThat(cachedFile.isCacheHit()).isFalse();
+    assertThat(read(cachedFile.getPathInCache())).isEqualTo("body");
+    assertThat(temp.resolve("_quarantine/ABCDE/sonar-foo-plugin-1.5.jar")).exists();
+    assertThat(verifyingCache.getOrDownload("sonar-foo-plugin-1.5.jar", "ABCDE", HASH_ALGO, mock(FileCache.Downloader.class)).isCacheHit()).isTrue();
+  }
+
+  @Test
+  void fail_if_verification_rate_is_invalid() {
+    assertThatThrownBy(() -> cache.withVerifyOnHit(1.5))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("Rate of verification of cached files must be between 0 and 1: 1.5");
+  }
+
+  @Test
+  void store_and_replace_metadata() throws IOException {
+    var key = cache.metadataKey(List.of(cache.getDir().resolve("ABCDE/a.jar"), cache.getDir().resolve("FGHIJ/b.jar")));
+    assertThat(cache.getMetadata(key, "index.txt")).isNull();
+
+    cache.putMetadata(key, "index.txt", toFile -> write(toFile, "v1"));
+    var stored = cache.putMetadata(key, "index.txt", toFile -> write(toFile, "v2"));
+
+    assertThat(stored).isEqualTo(temp.resolve("_metadata").resolve(key).resolve("index.txt"));
+    assertThat(cache.getMetadata(key, "index.txt")).isEqualTo(stored);
+    assertThat(read(stored)).isEqualTo("v2");
+    assertThat(temp.resolve("_tmp")).isEmptyDirectory();
+  }
+
+  @Test
+  void delete_stale_metadata() throws IOException {
+    var staleKey = temp.resolve("_metadata/stale");
+    write(staleKey.resolve("index.txt"), "old");
+    Files.setLastModifiedTime(staleKey, FileTime.from(Instant.now().minus(FileCache.METADATA_MAX_AGE).minusSeconds(60)));
+    var usedKey = temp.resolve("_metadata/used");
+    write(usedKey.resolve("index.txt"), "used");
+    Files.setLastModifiedTime(usedKey, FileTime.from(Instant.now().minus(FileCache.METADATA_MAX_AGE).minusSeconds(60)));
+
+    assertThat(cache.getMetadata("used", "index.txt")).isNotNull();
+    cache.putMetadata("new", "index.txt", toFile -> write(toFile, "new"));
+
+    assertThat(staleKey).doesNotExist();
+    assertThat(usedKey.resolve("index.txt")).exists();
+    assertThat(temp.resolve("_metadata/new/index.txt")).exists();
+  }
+
+  @Test
+  void metadata_key_depends_on_files_and_their_order() {
+    var a = cache.getDir().resolve("ABCDE/a.jar");
+    var b = cache.getDir().resolve("FGHIJ/b.jar");
+    var otherA = cache.getDir().resolve("VWXYZ/a.jar");
+
+    assertThat(cache.metadataKey(List.of(a, b)))
+      .hasSize(64)
+      .isEqualTo(cache.metadataKey(List.of(a, b)))
+      .isNotEqualTo(cache.metadataKey(List.of(b, a)))
+      .isNotEqualTo(cache.metadataKey(List.of(otherA, b)));
+  }
+
+  @Test
+  void fail_to_store_metadata() {
+    assertThatThrownBy(() -> cache.putMetadata("key", "index.txt", toFile -> {
+      throw new IOException("fail");
+    })).isInstanceOf(IllegalStateException.class)
+      .hasMessageStartingWith("Fail to store ");
+    assertThat(cache.getMetadata("key", "index.txt")).isNull();
+    assertThat(temp.resolve("_tmp")).isEmptyDirectory();
+  }
+
+  private void hashIsABCDEOnlyFor(String content) {
+    when(fileHashes.of(any(File.class), eq(HASH_ALGO)))
+      .thenAnswer(invocation -> content.equals(read(invocation.<File>getArgument(0).toPath())) ? "ABCDE" : "VWXYZ");
+  }
+
   private static void write(Path f, String txt) throws IOException {
     Files.createDirectories(f.getParent());
     Files.write(f, txt.getBytes(StandardCharsets.UTF_8));
@@ -23,6 +23,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.SecureRandom;
 import org.apache.commons.codec.binary.Hex;
@@ -80,6 +81,18 @@ class FileHashesTest {
     }
   }
 
+  @Test
+  void hash_large_files_through_memory_mapping(@TempDir Path tmpDir) throws IOException {
+    var content = new byte[(int) FileHashes.MEMORY_MAPPING_THRESHOLD + 1];
+    secureRandom.nextBytes(content);
+    var file = tmpDir.resolve("large.bin");
+    Files.write(file, content);
+
+    assertThat(FileHashes.ofMapped(file, "SHA-256")).isEqualTo(DigestUtils.sha256Hex(content));
+    assertThat(underTest.of(file.toFile(), "SHA-256")).isEqualTo(DigestUtils.sha256Hex(content));
+    assertThat(underTest.of(file.toFile(), "MD5")).isEqualTo(DigestUtils.md5Hex(content));
+  }
+
   @Test
   void fail_if_file_does_not_exist(@TempDir Path tmpDir) {
     var doesNotExist = tmpDir.resolve("does_not_exist").toFile();
@@ -0,0 +1,108 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.forked;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.ScannerProperties;
+import org.sonarsource.scanner.lib.internal.cache.CachedFile;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonarsource.scanner.lib.internal.facade.forked.ScannerEngineLauncherFactory.API_PATH_ENGINE;
+
+class ArtifactRefresherTest {
+
+  private final ScannerHttpClient scannerHttpClient = mock(ScannerHttpClient.class);
+  private final FileCache fileCache = mock(FileCache.class);
+
+  @TempDir
+  private Path temp;
+
+  @Test
+  void should_refresh_engine_and_jre() throws Exception {
+    when(scannerHttpClient.callRestApi(API_PATH_ENGINE)).thenReturn("{\"filename\":\"scanner-engine.jar\",\"sha256\":\"123456\"}");
+    when(fileCache.getOrDownload(eq("scanner-engine.jar"), eq("123456"), eq("SHA-256"), any())).thenReturn(new CachedFile(temp.resolve("scanner-engine.jar"), false));
+    when(scannerHttpClient.callRestApi("/analysis/jres?os=linux&arch=x64")).thenReturn("[]");
+    var underTest = new ArtifactRefresher(scannerHttpClient, fileCache,
+      Map.of(ScannerProperties.SCANNER_OS, "linux", ScannerProperties.SCANNER_ARCH, "x64"), Duration.ofSeconds(10));
+
+    underTest.start();
+    underTest.awaitOrCancel();
+
+    verify(fileCache).getOrDownload(eq("scanner-engine.jar"), eq("123456"), eq("SHA-256"), any(ScannerEngineLauncherFactory.ScannerEngineDownloader.class));
+    verify(scannerHttpClient).callRestApi("/analysis/jres?os=linux&arch=x64");
+  }
+
+  @Test
+  void should_not_refresh_jre_when_not_provisioned() throws Exception {
+    when(scannerHttpClient.callRestApi(API_PATH_ENGINE)).thenThrow(new IllegalStateException("Server is down"));
+    var underTest = new ArtifactRefresher(scannerHttpClient, fileCache, Map.of(ScannerProperties.SKIP_JRE_PROVISIONING, "true"), Duration.ofSeconds(10));
+
+    underTest.refresh();
+
+    verify(scannerHttpClient).callRestApi(API_PATH_ENGINE);
+    verify(scannerHttpClient, never()).callRestApi(startsWith(JavaRunnerFactory.API_PATH_JRE));
+  }
+
+  @Test
+  void should_cancel_refresh_taking_too_long() throws Exception {
+    var interrupted = new CountDownLatch(1);
+    when(scannerHttpClient.callRestApi(API_PATH_ENGINE)).thenAnswer(invocation -> {
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        throw e;
+      }
+      return null;
+    });
+    var underTest = new ArtifactRefresher(scannerHttpClient, fileCache, Map.of(ScannerProperties.SKIP_JRE_PROVISIONING, "true"), Duration.ofMillis(100));
+
+    underTest.start();
+    underTest.awaitOrCancel();
+
+    assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    verify(fileCache, never()).getOrDownload(anyString(), anyString(), anyString(), any());
+  }
+
+  @Test
+  void should_not_wait_when_not_started() {
+    var underTest = new ArtifactRefresher(scannerHttpClient, fileCache, Map.of(), Duration.ofMinutes(10));
+
+    underTest.awaitOrCancel();
+
+    verify(fileCache, never()).getOrDownload(anyString(), anyString(), anyString(), any());
+  }
+}
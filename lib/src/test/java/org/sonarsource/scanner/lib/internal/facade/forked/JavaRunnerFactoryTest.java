@@ -40,6 +40,7 @@ import org.sonarsource.scanner.lib.internal.util.System2;
 
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.matches;
@@ -84,6 +85,22 @@ class JavaRunnerFactoryTest {
     assertThat(runner.getJavaExecutable()).exists();
   }
 
+  @Test
+  void provisionJre_should_delete_temporary_directory_when_extraction_fails() throws IOException {
+    var jre = temp.resolve("fake-jre.rar");
+    Files.writeString(jre, "not an archive");
+    when(scannerHttpClient.callRestApi(matches(API_PATH_JRE + ".*")))
+      .thenReturn("[{\"id\":\"1\",\"filename\":\"fake-jre.rar\",\"sha256\":\"123456\",\"javaPath\":\"bin/java\"}]");
+    when(fileCache.getOrDownload(eq("fake-jre.rar"), eq("123456"), eq("SHA-256"), any(JavaRunnerFactory.JreDownloader.class))).thenReturn(new CachedFile(jre, true));
+
+    assertThatThrownBy(() -> JavaRunnerFactory.provisionJre(scannerHttpClient, fileCache, "linux", "x64", true))
+      .isInstanceOf(IllegalArgumentException.class);
+
+    try (var files = Files.list(temp)) {
+      assertThat(files).containsExactly(jre);
+    }
+  }
+
   @Test
   void createRunner_jreProvisioning_noMatch_fallback_to_local() throws IOException {
     when(scannerHttpClient.callRestApi(matches(API_PATH_JRE + ".*"))).thenReturn("[]");
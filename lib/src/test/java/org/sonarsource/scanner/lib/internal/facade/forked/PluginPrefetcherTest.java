@@ -0,0 +1,135 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.forked;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PluginPrefetcherTest {
+
+  @TempDir
+  private Path sonarUserHome;
+
+  private final ScannerHttpClient scannerHttpClient = mock(ScannerHttpClient.class);
+
+  @Test
+  void should_download_missing_plugins_into_cache() throws Exception {
+    var fileCache = FileCache.create(sonarUserHome);
+    var javaHash = md5("java");
+    var jsHash = md5("javascript");
+    when(scannerHttpClient.callWebApi("/api/plugins/installed")).thenReturn("{\"plugins\":["
+      + "{\"key\":\"java\",\"hash\":\"" + javaHash + "\",\"filename\":\"sonar-java-plugin.jar\"},"
+      + "{\"key\":\"javascript\",\"hash\":\"" + jsHash + "\",\"filename\":\"sonar-javascript-plugin.jar\"}]}");
+    mockDownload("java", "java");
+    mockDownload("javascript", "javascript");
+
+    new PluginPrefetcher(scannerHttpClient, fileCache).prefetchAsync().join();
+
+    assertThat(fileCache.get("sonar-java-plugin.jar", javaHash)).hasContent("java");
+    assertThat(fileCache.get("sonar-javascript-plugin.jar", jsHash)).hasContent("javascript");
+    // Same layout as the scanner engine
+    assertThat(sonarUserHome.resolve("cache").resolve(javaHash).resolve("sonar-java-plugin.jar")).exists();
+  }
+
+  @Test
+  void should_not_download_plugins_already_in_cache() throws Exception {
+    var fileCache = FileCache.create(sonarUserHome);
+    var javaHash = md5("java");
+    var cached = sonarUserHome.resolve("cache").resolve(javaHash).resolve("sonar-java-plugin.jar");
+    Files.createDirectories(cached.getParent());
+    Files.writeString(cached, "java");
+    when(scannerHttpClient.callWebApi("/api/plugins/installed"))
+      .thenReturn("{\"plugins\":[{\"key\":\"java\",\"hash\":\"" + javaHash + "\",\"filename\":\"sonar-java-plugin.jar\"}]}");
+
+    new PluginPrefetcher(scannerHttpClient, fileCache).prefetch();
+
+    verify(scannerHttpClient, never()).downloadFromWebApi(anyString(), any());
+  }
+
+  @Test
+  void should_only_download_plugins_required_for_all_languages() throws Exception {
+    var fileCache = FileCache.create(sonarUserHome);
+    var javaHash = md5("java");
+    var scmHash = md5("scm");
+    when(scannerHttpClient.callWebApi("/api/plugins/installed")).thenReturn("{\"plugins\":["
+      + "{\"key\":\"java\",\"hash\":\"" + javaHash + "\",\"filename\":\"sonar-java-plugin.jar\",\"requiredForLanguages\":[\"java\",\"jsp\"]},"
+      + "{\"key\":\"scmgit\",\"hash\":\"" + scmHash + "\",\"filename\":\"sonar-scm-git-plugin.jar\",\"requiredForLanguages\":[]}]}");
+    mockDownload("scmgit", "scm");
+
+    new PluginPrefetcher(scannerHttpClient, fileCache).prefetch();
+
+    assertThat(fileCache.get("sonar-scm-git-plugin.jar", scmHash)).hasContent("scm");
+    verify(scannerHttpClient, never()).downloadFromWebApi(eq("/api/plugins/download?plugin=java"), any());
+  }
+
+  @Test
+  void should_ignore_failures() throws Exception {
+    var fileCache = FileCache.create(sonarUserHome);
+    var jsHash = md5("javascript");
+    when(scannerHttpClient.callWebApi("/api/plugins/installed")).thenReturn("{\"plugins\":["
+      + "{\"key\":\"java\",\"hash\":\"" + md5("java") + "\",\"filename\":\"sonar-java-plugin.jar\"},"
+      + "{\"key\":\"javascript\",\"hash\":\"" + jsHash + "\",\"filename\":\"sonar-javascript-plugin.jar\"}]}");
+    doThrow(new IllegalStateException("Connection reset")).when(scannerHttpClient).downloadFromWebApi(eq("/api/plugins/download?plugin=java"), any());
+    mockDownload("javascript", "javascript");
+
+    new PluginPrefetcher(scannerHttpClient, fileCache).prefetch();
+
+    assertThat(fileCache.get("sonar-java-plugin.jar", md5("java"))).isNull();
+    assertThat(fileCache.get("sonar-javascript-plugin.jar", jsHash)).hasContent("javascript");
+  }
+
+  @Test
+  void should_ignore_failure_to_list_plugins() throws Exception {
+    when(scannerHttpClient.callWebApi("/api/plugins/installed")).thenThrow(new IOException("Unauthorized"));
+
+    new PluginPrefetcher(scannerHttpClient, FileCache.create(sonarUserHome)).prefetch();
+
+    verify(scannerHttpClient, never()).downloadFromWebApi(anyString(), any());
+  }
+
+  private void mockDownload(String pluginKey, String content) {
+    doAnswer(invocation -> Files.writeString(invocation.<Path>getArgument(1), content))
+      .when(scannerHttpClient).downloadFromWebApi(eq("/api/plugins/download?plugin=" + pluginKey), any());
+  }
+
+  private static String md5(String content) throws Exception {
+    var digest = MessageDigest.getInstance("MD5").digest(content.getBytes(StandardCharsets.UTF_8));
+    return String.format("%032x", new BigInteger(1, digest));
+  }
+}
@@ -24,13 +24,17 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.sonarsource.scanner.lib.internal.cache.FileCache;
 import org.sonarsource.scanner.lib.internal.http.ScannerHttpClient;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonarsource.scanner.lib.internal.facade.forked.ScannerEngineLauncherFactory.API_PATH_ENGINE;
@@ -56,6 +60,33 @@ class ScannerEngineLauncherFactoryTest {
       any(ScannerEngineLauncherFactory.ScannerEngineDownloader.class));
   }
 
+  @Test
+  void createLauncher_should_warm_up_download_host_when_engine_is_not_cached() throws IOException {
+    when(scannerHttpClient.callRestApi(API_PATH_ENGINE))
+      .thenReturn("{\"filename\":\"scanner-engine.jar\",\"sha256\":\"123456\",\"downloadUrl\":\"https://cdn.example.com/scanner-engine.jar\"}");
+    when(javaRunnerFactory.createRunner(eq(scannerHttpClient), eq(fileCache), anyMap())).thenReturn(mock(JavaRunner.class));
+
+    ScannerEngineLauncherFactory factory = new ScannerEngineLauncherFactory(javaRunnerFactory);
+    factory.createLauncher(scannerHttpClient, fileCache, new HashMap<>());
+
+    InOrder inOrder = inOrder(scannerHttpClient, javaRunnerFactory);
+    inOrder.verify(scannerHttpClient).warmUp("https://cdn.example.com/scanner-engine.jar");
+    inOrder.verify(javaRunnerFactory).createRunner(eq(scannerHttpClient), eq(fileCache), anyMap());
+  }
+
+  @Test
+  void createLauncher_should_not_warm_up_download_host_when_engine_is_cached() throws IOException {
+    when(scannerHttpClient.callRestApi(API_PATH_ENGINE))
+      .thenReturn("{\"filename\":\"scanner-engine.jar\",\"sha256\":\"123456\",\"downloadUrl\":\"https://cdn.example.com/scanner-engine.jar\"}");
+    when(fileCache.get("scanner-engine.jar", "123456")).thenReturn(temp.resolve("scanner-engine.jar"));
+    when(javaRunnerFactory.createRunner(eq(scannerHttpClient), eq(fileCache), anyMap())).thenReturn(mock(JavaRunner.class));
+
+    ScannerEngineLauncherFactory factory = new ScannerEngineLauncherFactory(javaRunnerFactory);
+    factory.createLauncher(scannerHttpClient, fileCache, new HashMap<>());
+
+    verify(scannerHttpClient, never()).warmUp(anyString());
+  }
+
   @Test
   void scannerEngineDownloader_download() throws IOException {
     String filename = "scanner-engine.jar";
@@ -29,6 +29,7 @@ import org.junit.jupiter.api.io.TempDir;
 import org.slf4j.event.Level;
 import org.sonarsource.scanner.lib.ScannerProperties;
 import org.sonarsource.scanner.lib.internal.cache.CachedFile;
+import org.sonarsource.scanner.lib.internal.http.LoopbackCachingProxy;
 import testutils.LogTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -36,6 +37,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class ScannerEngineLauncherTest {
 
@@ -80,6 +82,32 @@ class ScannerEngineLauncherTest {
     assertThat(logTester.logs(Level.INFO)).containsOnly("SONAR_SCANNER_JAVA_OPTS=-Xmx4g -Xms1g -Dsonar.login=* -Dsonar.password=* -Dsonar.token=* -Djava.net.ssl.trustStorePassword=*");
   }
 
+  @Test
+  void execute_through_caching_proxy() {
+    var scannerEngine = temp.resolve("scanner-engine.jar");
+    var cachingProxy = mock(LoopbackCachingProxy.class);
+    when(cachingProxy.localUrlFor("https://sonar.example.com")).thenReturn("http://127.0.0.1:1234/u0");
+    when(cachingProxy.localUrlFor("https://sonar.example.com/api/v2")).thenReturn("http://127.0.0.1:1234/u1");
+
+    ScannerEngineLauncher launcher = new ScannerEngineLauncher(javaRunner, new CachedFile(scannerEngine, true), cachingProxy);
+
+    Map<String, String> properties = Map.of(
+      ScannerProperties.HOST_URL, "https://sonar.example.com",
+      ScannerProperties.API_BASE_URL, "https://sonar.example.com/api/v2",
+      ScannerProperties.SONAR_SCANNER_PROXY_HOST, "proxy.example.com",
+      ScannerProperties.SONAR_SCANNER_PROXY_PORT, "3128");
+    launcher.execute(properties);
+    launcher.close();
+
+    verify(javaRunner).execute(
+      eq(List.of("-Dorg.bouncycastle.pkcs12.ignore_useless_passwd=true", "-jar", scannerEngine.toAbsolutePath().toString())),
+      eq("{\"scannerProperties\":[{\"key\":\"sonar.core.serverBaseURL\",\"value\":\"https://sonar.example.com\"},"
+        + "{\"key\":\"sonar.host.url\",\"value\":\"http://127.0.0.1:1234/u0\"},"
+        + "{\"key\":\"sonar.scanner.apiBaseUrl\",\"value\":\"http://127.0.0.1:1234/u1\"}]}"),
+      any());
+    verify(cachingProxy).close();
+  }
+
   @Test
   void replace_null_values_by_empty_in_json_and_ignore_null_key() {
     var scannerEngine = temp.resolve("scanner-engine.jar");
@@ -0,0 +1,129 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClassPreloaderTest {
+
+  private static final String CLASS_NAME = Preloaded.class.getName();
+
+  @TempDir
+  private Path temp;
+  private FileCache fileCache;
+  private List<Path> jars;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    fileCache = FileCache.create(temp);
+    var jar = fileCache.getDir().resolve("ABCDE/engine.jar");
+    Files.createDirectories(jar.getParent());
+    var classEntry = CLASS_NAME.replace('.', '/') + ".class";
+    try (var in = getClass().getClassLoader().getResourceAsStream(classEntry);
+      var out = new JarOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new JarEntry(classEntry));
+      in.transferTo(out);
+      out.closeEntry();
+    }
+    jars = List.of(jar);
+  }
+
+  @Test
+  void should_record_classes_defined_during_first_analysis() throws Exception {
+    try (var classloader = newClassloader()) {
+      var preloader = ClassPreloader.start(fileCache, jars, classloader);
+      classloader.loadClass(CLASS_NAME);
+      classloader.loadClass(CLASS_NAME);
+      preloader.close();
+    }
+
+    var recorded = fileCache.getMetadata(fileCache.metadataKey(jars), ClassPreloader.FILENAME);
+    assertThat(recorded).isNotNull();
+    assertThat(Files.readAllLines(recorded, StandardCharsets.UTF_8)).containsExactly(CLASS_NAME);
+  }
+
+  @Test
+  void should_preload_recorded_classes_and_ignore_missing_ones() throws Exception {
+    var recorded = fileCache.putMetadata(fileCache.metadataKey(jars), ClassPreloader.FILENAME,
+      toFile -> Files.write(toFile, List.of("org.missing.Foo", CLASS_NAME), StandardCharsets.UTF_8));
+
+    try (var classloader = newClassloader()) {
+      var preloader = ClassPreloader.start(fileCache, jars, classloader, 2);
+      waitUntilPreloaded(preloader, 1);
+
+      assertThat(Class.forName(CLASS_NAME, false, classloader).getClassLoader()).isSameAs(classloader);
+      assertThat(classloader.getDefinedClasses()).isEmpty();
+      preloader.close();
+    }
+    // The list is not recorded again
+    assertThat(Files.readAllLines(recorded, StandardCharsets.UTF_8)).containsExactly("org.missing.Foo", CLASS_NAME);
+  }
+
+  @Test
+  void should_not_preload_without_spare_processor() throws Exception {
+    fileCache.putMetadata(fileCache.metadataKey(jars), ClassPreloader.FILENAME,
+      toFile -> Files.write(toFile, List.of(CLASS_NAME), StandardCharsets.UTF_8));
+
+    try (var classloader = newClassloader()) {
+      var preloader = ClassPreloader.start(fileCache, jars, classloader, 0);
+      preloader.close();
+      assertThat(preloader.getPreloadedCount()).isZero();
+    }
+  }
+
+  @Test
+  void should_not_record_anything_if_no_class_was_defined() throws Exception {
+    try (var classloader = newClassloader()) {
+      ClassPreloader.start(fileCache, jars, classloader).close();
+    }
+
+    assertThat(fileCache.getMetadata(fileCache.metadataKey(jars), ClassPreloader.FILENAME)).isNull();
+  }
+
+  private IsolatedClassloader newClassloader() {
+    var classloader = new IsolatedClassloader(getClass().getClassLoader(), new ClassloadRules(Set.of(), Set.of()));
+    classloader.addFiles(jars);
+    return classloader;
+  }
+
+  private static void waitUntilPreloaded(ClassPreloader preloader, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (preloader.getPreloadedCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(preloader.getPreloadedCount()).isEqualTo(count);
+  }
+
+  static class Preloaded {
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonarsource.scanner.lib.internal.facade.inprocess;
 
 import java.util.HashSet;
+import java.util.Random;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -102,4 +103,65 @@ class ClassloadRulesTest {
 
     assertThat(rules.canLoad("org.sonar.runner.batch.IsolatedLauncher")).isTrue();
   }
+
+  @Test
+  void should_match_rules_ending_in_class_names() {
+    maskRules.add("org.slf4j.LoggerFactory");
+    unmaskRules.add("org.slf4j.");
+    rules = new ClassloadRules(maskRules, unmaskRules);
+
+    assertThat(rules.canLoad("org.slf4j.Logger")).isTrue();
+    assertThat(rules.canLoad("org.slf4j.LoggerFactory")).isFalse();
+    assertThat(rules.canLoad("org.slf4j.LoggerFactoryFriend")).isFalse();
+    assertThat(rules.canLoad("org.slf4j.Logger")).isTrue();
+    assertThat(rules.canLoad("org.slf4j.event.Level")).isTrue();
+  }
+
+  @Test
+  void should_block_on_tie() {
+    maskRules.add("org.foo.");
+    unmaskRules.add("org.foo.");
+    rules = new ClassloadRules(maskRules, unmaskRules);
+
+    assertThat(rules.canLoad("org.foo.Bar")).isFalse();
+    assertThat(rules.canLoad("org.foo.Bar")).isFalse();
+  }
+
+  @Test
+  void should_take_same_decisions_as_linear_scan_of_rules() {
+    var random = new Random(42);
+    String[] parts = {"", "a", "b", ".", "ab", "a.", "b.a"};
+    for (int round = 0; round < 200; round++) {
+      maskRules = new HashSet<>();
+      unmaskRules = new HashSet<>();
+      int maskCount = random.nextInt(6);
+      for (int i = 0; i < maskCount; i++) {
+        maskRules.add(randomName(random, parts, 3));
+      }
+      int unmaskCount = random.nextInt(6);
+      for (int i = 0; i < unmaskCount; i++) {
+        unmaskRules.add(randomName(random, parts, 3));
+      }
+      rules = new ClassloadRules(maskRules, unmaskRules);
+      for (int i = 0; i < 100; i++) {
+        var className = randomName(random, parts, 5);
+        assertThat(rules.canLoad(className))
+          .as("%s with mask %s and unmask %s", className, maskRules, unmaskRules)
+          .isEqualTo(bestMatch(unmaskRules, className) > bestMatch(maskRules, className));
+      }
+    }
+  }
+
+  private static String randomName(Random random, String[] parts, int maxParts) {
+    var name = new StringBuilder();
+    int count = random.nextInt(maxParts + 1);
+    for (int i = 0; i < count; i++) {
+      name.append(parts[random.nextInt(parts.length)]);
+    }
+    return name.toString();
+  }
+
+  private static int bestMatch(Set<String> rules, String className) {
+    return rules.stream().filter(className::startsWith).mapToInt(String::length).max().orElse(-1);
+  }
 }
@@ -0,0 +1,162 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.event.Level;
+import testutils.LogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClassloaderLeakDetectorTest {
+
+  @RegisterExtension
+  LogTester logTester = new LogTester();
+
+  private final ClassloaderLeakDetector underTest = new ClassloaderLeakDetector(Duration.ofMillis(500));
+
+  @Test
+  void report_closed_classloader_not_collected_once() throws Exception {
+    logTester.setLevel(Level.DEBUG);
+    var classloader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    underTest.close(classloader);
+
+    assertThat(underTest.reportLeaks()).isOne();
+    assertThat(underTest.reportLeaks()).isOne();
+    assertThat(logTester.logs(Level.DEBUG)).hasSize(1);
+    assertThat(logTester.logs(Level.DEBUG).get(0)).contains("classloader #1 is not garbage collected yet");
+    // Keep the classloader reachable until the end of the test
+    assertThat(classloader.getURLs()).isEmpty();
+  }
+
+  @Test
+  void do_not_log_closed_classloaders_without_debug_logs() throws Exception {
+    var classloader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    underTest.close(classloader);
+
+    assertThat(underTest.reportLeaks()).isOne();
+    assertThat(logTester.logs()).isEmpty();
+    assertThat(classloader.getURLs()).isEmpty();
+  }
+
+  @Test
+  void forget_garbage_collected_classloaders() throws Exception {
+    underTest.close(new URLClassLoader(new URL[0], getClass().getClassLoader()));
+
+    int leaks = 1;
+    for (int i = 0; i < 10 && leaks > 0; i++) {
+      System.gc();
+      leaks = underTest.reportLeaks();
+    }
+    assertThat(leaks).isZero();
+  }
+
+  @Test
+  void interrupt_threads_defined_by_classloader() throws Exception {
+    var classloader = classloaderOf(SleepingThread.class);
+    var thread = (Thread) classloader.loadClass(SleepingThread.class.getName()).getDeclaredConstructor().newInstance();
+    thread.start();
+
+    underTest.close(classloader);
+
+    assertThat(thread.isAlive()).isFalse();
+  }
+
+  @Test
+  void do_not_wait_forever_for_threads_not_ending() throws Exception {
+    var classloader = classloaderOf(StubbornThread.class);
+    var thread = (Thread) classloader.loadClass(StubbornThread.class.getName()).getDeclaredConstructor().newInstance();
+    thread.start();
+
+    try {
+      underTest.close(classloader);
+
+      assertThat(thread.isAlive()).isTrue();
+    } finally {
+      thread.getClass().getMethod("stopRunning").invoke(thread);
+      thread.join();
+    }
+  }
+
+  @Test
+  void interrupt_threads_using_classloader_as_context_classloader() throws Exception {
+    var classloader = new URLClassLoader(new URL[0], getClass().getClassLoader());
+    var started = new CountDownLatch(1);
+    var interrupted = new CountDownLatch(1);
+    var thread = new Thread(() -> {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+      }
+    });
+    thread.setContextClassLoader(classloader);
+    thread.start();
+    started.await();
+
+    underTest.close(classloader);
+
+    assertThat(interrupted.getCount()).isZero();
+    assertThat(thread.isAlive()).isFalse();
+  }
+
+  /**
+   * Classloader defining again the given class, which must only depend on the JDK.
+   */
+  private static URLClassLoader classloaderOf(Class<?> clazz) {
+    return new URLClassLoader(new URL[] {clazz.getProtectionDomain().getCodeSource().getLocation()}, null);
+  }
+
+  public static class SleepingThread extends Thread {
+    @Override
+    public void run() {
+      try {
+        Thread.sleep(60_000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public static class StubbornThread extends Thread {
+    private volatile boolean running = true;
+
+    public void stopRunning() {
+      running = false;
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        try {
+          Thread.sleep(10);
+        } catch (InterruptedException e) {
+          // ignored on purpose
+        }
+      }
+    }
+  }
+}
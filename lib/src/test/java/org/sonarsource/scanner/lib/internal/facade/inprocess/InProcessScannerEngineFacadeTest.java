@@ -0,0 +1,207 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.sonarsource.scanner.lib.ScannerProperties;
+import org.sonarsource.scanner.lib.internal.batch.ExecutionResult;
+import org.sonarsource.scanner.lib.internal.batch.IsolatedLauncher;
+import org.sonarsource.scanner.lib.internal.batch.LogOutput;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InProcessScannerEngineFacadeTest {
+
+  private static final ExecutionResult SUCCESS = new ExecutionResult(null, 10, 5, 1024, Map.of("analysis", 10L));
+
+  private final IsolatedLauncher launcher = mock(IsolatedLauncher.class);
+  private final IsolatedLauncherFactory.IsolatedLauncherAndClassloader launcherAndCl = mock(IsolatedLauncherFactory.IsolatedLauncherAndClassloader.class);
+
+  @Test
+  void analyses_share_one_engine_session() throws Exception {
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    when(launcher.execute(anyMap())).thenReturn(SUCCESS);
+    var underTest = new InProcessScannerEngineFacade(Map.of("sonar.host.url", "http://localhost"), launcherAndCl, false, "9.9");
+
+    assertThat(underTest.analyze(Map.of("sonar.projectKey", "p1"))).isTrue();
+    assertThat(underTest.analyze(Map.of("sonar.projectKey", "p2"))).isTrue();
+    underTest.close();
+
+    InOrder inOrder = inOrder(launcher, launcherAndCl);
+    inOrder.verify(launcher).start(eq(Map.of("sonar.host.url", "http://localhost", "sonar.scanner.wasEngineCacheHit", "false")), any(LogOutput.class));
+    inOrder.verify(launcher).execute(argThat(props -> "p1".equals(props.get("sonar.projectKey"))));
+    inOrder.verify(launcher).execute(argThat(props -> "p2".equals(props.get("sonar.projectKey"))));
+    inOrder.verify(launcher).stop();
+    inOrder.verify(launcherAndCl).close();
+    verify(launcher, never()).execute(anyMap(), any(LogOutput.class));
+  }
+
+  @Test
+  void analysis_properties_are_not_shared_with_next_analyses() throws Exception {
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    when(launcher.execute(anyMap())).thenReturn(SUCCESS);
+    var underTest = new InProcessScannerEngineFacade(Map.of("sonar.host.url", "http://localhost"), launcherAndCl, false, "9.9");
+
+    underTest.analyze(Map.of("sonar.projectKey", "p1", "sonar.exclusions", "**/generated/**"));
+    underTest.analyze(Map.of("sonar.projectKey", "p2"));
+    underTest.close();
+
+    verify(launcher).start(argThat(props -> !props.containsKey("sonar.exclusions") && !props.containsKey("sonar.projectKey")), any(LogOutput.class));
+    verify(launcher).execute(argThat(props -> "p1".equals(props.get("sonar.projectKey")) && props.containsKey("sonar.exclusions")));
+    verify(launcher).execute(argThat(props -> "p2".equals(props.get("sonar.projectKey")) && !props.containsKey("sonar.exclusions")));
+  }
+
+  @Test
+  void close_without_analysis_does_not_stop_engine() throws Exception {
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    var underTest = new InProcessScannerEngineFacade(Map.of(), launcherAndCl, false, "9.9");
+
+    underTest.close();
+
+    verify(launcher, never()).stop();
+    verify(launcherAndCl).close();
+  }
+
+  @Test
+  void concurrent_analyses_get_their_own_work_dir(@TempDir Path baseDir) throws Exception {
+    int threads = 8;
+    int rounds = 20;
+    // All the analyses of a round must be running at the same time to pass the barrier
+    var barrier = new CyclicBarrier(threads);
+    Set<String> runningWorkDirs = ConcurrentHashMap.newKeySet();
+    List<String> errors = new ArrayList<>();
+    doAnswer(invocation -> {
+      Map<String, String> props = invocation.getArgument(0);
+      var workDir = props.get(ScannerProperties.WORK_DIR);
+      if (!runningWorkDirs.add(workDir)) {
+        synchronized (errors) {
+          errors.add("Work directory used concurrently: " + workDir);
+        }
+      }
+      barrier.await(10, TimeUnit.SECONDS);
+      runningWorkDirs.remove(workDir);
+      return SUCCESS;
+    }).when(launcher).execute(anyMap());
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    var underTest = new InProcessScannerEngineFacade(Map.of(), launcherAndCl, false, "9.9");
+
+    var executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for (int i = 0; i < threads * rounds; i++) {
+        results.add(executor.submit(() -> underTest.analyze(Map.of("sonar.projectBaseDir", baseDir.toString()))));
+      }
+      for (var result : results) {
+        assertThat(result.get(30, TimeUnit.SECONDS)).isTrue();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    underTest.close();
+
+    assertThat(errors).isEmpty();
+    verify(launcher).start(anyMap(), any(LogOutput.class));
+    verify(launcher, times(threads * rounds)).execute(anyMap());
+    verify(launcher).stop();
+  }
+
+  @Test
+  void concurrent_analysis_uses_suffixed_work_dir(@TempDir Path baseDir) throws Exception {
+    var workDirs = new ArrayList<String>();
+    var underTest = new InProcessScannerEngineFacade(Map.of(), launcherAndCl, false, "9.9");
+    doAnswer(invocation -> {
+      Map<String, String> props = invocation.getArgument(0);
+      workDirs.add(props.get(ScannerProperties.WORK_DIR));
+      if (workDirs.size() == 1) {
+        // Nested analysis while the first one is running
+        underTest.analyze(Map.of("sonar.projectBaseDir", baseDir.toString()));
+      }
+      return SUCCESS;
+    }).when(launcher).execute(anyMap());
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+
+    underTest.analyze(Map.of("sonar.projectBaseDir", baseDir.toString()));
+    underTest.analyze(Map.of("sonar.projectBaseDir", baseDir.toString()));
+
+    var workDir = baseDir.resolve(".scannerwork").toString();
+    assertThat(workDirs).containsExactly(workDir, workDir + "-2", workDir);
+  }
+
+  @Test
+  void expose_execution_result() {
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    when(launcher.execute(anyMap())).thenReturn(SUCCESS);
+    var underTest = new InProcessScannerEngineFacade(Map.of(), launcherAndCl, false, "9.9");
+    assertThat(underTest.getLastExecutionResult()).isNull();
+
+    underTest.analyze(Map.of());
+
+    assertThat(underTest.getLastExecutionResult()).isSameAs(SUCCESS);
+  }
+
+  @Test
+  void rethrow_failure_of_engine() {
+    var failure = new IllegalStateException("Analysis failed");
+    var failed = new ExecutionResult(failure, 10, 5, 1024, Map.of("analysis", 10L));
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    when(launcher.execute(anyMap())).thenReturn(failed);
+    var underTest = new InProcessScannerEngineFacade(Map.of(), launcherAndCl, false, "9.9");
+
+    Map<String, String> props = Map.of();
+    assertThatThrownBy(() -> underTest.analyze(props)).isSameAs(failure);
+    assertThat(underTest.getLastExecutionResult()).isSameAs(failed);
+  }
+
+  @Test
+  void fail_to_analyze_when_closed() throws Exception {
+    when(launcherAndCl.getLauncher()).thenReturn(launcher);
+    var underTest = new InProcessScannerEngineFacade(Map.of(), launcherAndCl, false, "9.9");
+    underTest.close();
+
+    Map<String, String> props = Map.of();
+    assertThatThrownBy(() -> underTest.analyze(props))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("Scanner engine is closed");
+  }
+}
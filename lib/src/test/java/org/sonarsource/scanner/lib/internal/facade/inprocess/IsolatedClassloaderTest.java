@@ -24,9 +24,16 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -62,6 +69,57 @@ class IsolatedClassloaderTest {
     assertThat(classLoader.loadClass("org.junit.jupiter.api.Test", false)).isNotNull();
   }
 
+  @Test
+  void should_be_parallel_capable() {
+    assertThat(classLoader.isRegisteredAsParallelCapable()).isTrue();
+  }
+
+  @Test
+  void should_define_class_once_when_loaded_concurrently() throws Exception {
+    classLoader.addFiles(List.of(Paths.get(getClass().getProtectionDomain().getCodeSource().getLocation().toURI())));
+    var threads = 8;
+    var executor = Executors.newFixedThreadPool(threads);
+    var start = new CountDownLatch(1);
+    try {
+      var futures = new ArrayList<Future<Class<?>>>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          return classLoader.loadClass(LoadedByIsolatedClassloader.class.getName());
+        }));
+      }
+      start.countDown();
+
+      var loaded = new HashSet<Class<?>>();
+      for (var future : futures) {
+        loaded.add(future.get(10, TimeUnit.SECONDS));
+      }
+      assertThat(loaded).hasSize(1);
+      var loadedClass = loaded.iterator().next();
+      assertThat(loadedClass.getClassLoader()).isSameAs(classLoader);
+      assertThat(loadedClass).isNotSameAs(LoadedByIsolatedClassloader.class);
+    } finally {
+      executor.shutdownNow();
+      classLoader.close();
+    }
+  }
+
+  @Test
+  void should_not_look_up_packages_missing_from_index() throws Exception {
+    classLoader.addFiles(List.of(Paths.get(getClass().getProtectionDomain().getCodeSource().getLocation().toURI())));
+    var resource = "testutils/LogTester.class";
+    assertThat(classLoader.getResource(resource)).isNotNull();
+
+    var indexedClass = LoadedByIsolatedClassloader.class.getName();
+    classLoader.setPackageIndex(new PackageIndex(Set.of(PackageIndex.directoryOf(indexedClass.replace('.', '/')))));
+
+    assertThat(classLoader.getResource(resource)).isNull();
+    assertThat(classLoader.getResources(resource).hasMoreElements()).isFalse();
+    assertThatThrownBy(() -> classLoader.loadClass("testutils.LogTester")).isInstanceOf(ClassNotFoundException.class);
+    assertThat(classLoader.loadClass(indexedClass).getClassLoader()).isSameAs(classLoader);
+    classLoader.close();
+  }
+
   @Test
   void add_jars() throws MalformedURLException {
     var f = Paths.get("dummy");
@@ -90,4 +148,7 @@ class IsolatedClassloaderTest {
     Enumeration<URL> resource = classLoader.getResources("fake.jar");
     assertThat(resource.hasMoreElements()).isFalse();
   }
+
+  static class LoadedByIsolatedClassloader {
+  }
 }
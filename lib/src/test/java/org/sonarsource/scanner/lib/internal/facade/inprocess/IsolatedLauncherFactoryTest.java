@@ -19,27 +19,38 @@
  */
 package org.sonarsource.scanner.lib.internal.facade.inprocess;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.internal.batch.ExecutionResult;
 import org.sonarsource.scanner.lib.internal.batch.IsolatedLauncher;
 import org.sonarsource.scanner.lib.internal.batch.LogOutput;
+import org.sonarsource.scanner.lib.internal.cache.CachedFile;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class IsolatedLauncherFactoryTest {
   IsolatedLauncherFactory factory;
   Properties props;
-  TempCleaning tempCleaning;
   LegacyScannerEngineDownloader legacyScannerEngineDownloader;
 
   @BeforeEach
   public void setUp() {
-    tempCleaning = mock(TempCleaning.class);
-    factory = new IsolatedLauncherFactory(FakeIsolatedLauncher.class.getName(), tempCleaning);
+    factory = new IsolatedLauncherFactory(FakeIsolatedLauncher.class.getName());
     props = new Properties();
     legacyScannerEngineDownloader = mock(LegacyScannerEngineDownloader.class);
   }
@@ -48,10 +59,34 @@ class IsolatedLauncherFactoryTest {
   void should_use_isolated_classloader() {
     var rules = new ClassloadRules(new HashSet<String>(), new HashSet<String>());
     assertThrows(ScannerException.class, () -> {
-      factory.createLauncher(legacyScannerEngineDownloader, rules);
+      factory.createLauncher(legacyScannerEngineDownloader, rules, mock(FileCache.class), false);
     });
   }
 
+  @Test
+  void should_record_classes_defined_by_engine_when_preloading_classes(@TempDir Path temp) throws Exception {
+    var fileCache = FileCache.create(temp);
+    var jar = fileCache.getDir().resolve("ABCDE/engine.jar");
+    Files.createDirectories(jar.getParent());
+    var classEntry = FakeIsolatedLauncher.class.getName().replace('.', '/') + ".class";
+    try (var in = getClass().getClassLoader().getResourceAsStream(classEntry);
+      var out = new JarOutputStream(Files.newOutputStream(jar))) {
+      out.putNextEntry(new JarEntry(classEntry));
+      in.transferTo(out);
+      out.closeEntry();
+    }
+    when(legacyScannerEngineDownloader.getOrDownload()).thenReturn(List.of(new CachedFile(jar, true)));
+    var rules = new ClassloadRules(Set.of(), Set.of("org.sonarsource.scanner.lib.internal.batch."));
+
+    try (var launcherAndCl = factory.createLauncher(legacyScannerEngineDownloader, rules, fileCache, true)) {
+      launcherAndCl.getLauncher().execute(Map.of());
+    }
+
+    var recorded = fileCache.getMetadata(fileCache.metadataKey(List.of(jar)), ClassPreloader.FILENAME);
+    assertThat(recorded).isNotNull();
+    assertThat(Files.readAllLines(recorded, StandardCharsets.UTF_8)).containsExactly(FakeIsolatedLauncher.class.getName());
+  }
+
   public static class FakeIsolatedLauncher implements IsolatedLauncher {
     public static Map<String, String> props = null;
 
@@ -59,5 +94,19 @@ class IsolatedLauncherFactoryTest {
     public void execute(Map<String, String> properties, LogOutput logOutput) {
       FakeIsolatedLauncher.props = properties;
     }
+
+    @Override
+    public void start(Map<String, String> globalProperties, LogOutput logOutput) {
+    }
+
+    @Override
+    public ExecutionResult execute(Map<String, String> properties) {
+      FakeIsolatedLauncher.props = properties;
+      return new ExecutionResult(null, 0, 0, 0, Map.of());
+    }
+
+    @Override
+    public void stop() {
+    }
   }
 }
@@ -59,6 +59,43 @@ class IsolatedLauncherProxyTest {
     assertThat(c.call()).isEqualTo(URLClassLoader.class.getSimpleName());
   }
 
+  @Test
+  void restore_context_classloader() throws Exception {
+    Callable<?> c = IsolatedLauncherProxy.create(cl, Callable.class, SimpleClass.class.getName());
+    ClassLoader initial = Thread.currentThread().getContextClassLoader();
+
+    c.call();
+    assertThat(Thread.currentThread().getContextClassLoader()).isSameAs(initial);
+
+    Thread.currentThread().setContextClassLoader(cl);
+    try {
+      assertThat(c.call()).isEqualTo(URLClassLoader.class.getSimpleName());
+      assertThat(Thread.currentThread().getContextClassLoader()).isSameAs(cl);
+    } finally {
+      Thread.currentThread().setContextClassLoader(initial);
+    }
+  }
+
+  @Test
+  void delegate_arguments_and_primitive_results() {
+    String str = "test";
+    CharSequence s = IsolatedLauncherProxy.create(cl, str, CharSequence.class);
+
+    assertThat(s.length()).isEqualTo(4);
+    assertThat(s.charAt(1)).isEqualTo('e');
+    assertThat(s.subSequence(1, 3)).isEqualTo("es");
+    assertThat(s.hashCode()).isEqualTo(str.hashCode());
+    assertThat(s).hasToString(str);
+  }
+
+  @Test
+  void exceptions_of_arguments_unwrapped() {
+    CharSequence s = IsolatedLauncherProxy.create(cl, "test", CharSequence.class);
+
+    assertThatThrownBy(() -> s.charAt(10))
+      .isInstanceOf(StringIndexOutOfBoundsException.class);
+  }
+
   static class ExceptionThrower implements Runnable {
     @Override
     public void run() {
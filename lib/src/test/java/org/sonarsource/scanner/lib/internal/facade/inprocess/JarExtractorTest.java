@@ -22,6 +22,8 @@ package org.sonarsource.scanner.lib.internal.facade.inprocess;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,17 +32,48 @@ class JarExtractorTest {
 
   private final JarExtractor underTest = new JarExtractor();
 
+  @TempDir
+  private Path sonarUserHome;
+
   @Test
   void test_extract() throws Exception {
-    Path jarFile = underTest.extractToTemp("fake");
-    assertThat(jarFile).exists();
+    var fileCache = FileCache.create(sonarUserHome);
+    var cachedFile = underTest.extractToCache("fake", fileCache);
+    Path jarFile = cachedFile.getPathInCache();
+    assertThat(cachedFile.isCacheHit()).isFalse();
+    assertThat(jarFile).exists().startsWith(fileCache.getDir());
     assertThat(Files.readString(jarFile)).isEqualTo("Fake jar for unit tests");
     assertThat(jarFile.toUri().toURL().toString()).doesNotContain("jar:file");
   }
 
+  @Test
+  void should_reuse_jar_extracted_in_cache() {
+    var fileCache = FileCache.create(sonarUserHome);
+    var first = underTest.extractToCache("fake", fileCache);
+
+    var second = underTest.extractToCache("fake", fileCache);
+
+    assertThat(second.isCacheHit()).isTrue();
+    assertThat(second.getPathInCache()).isEqualTo(first.getPathInCache());
+  }
+
+  @Test
+  void should_extract_again_when_removed_from_cache() throws Exception {
+    var fileCache = FileCache.create(sonarUserHome);
+    var first = underTest.extractToCache("fake", fileCache);
+    Files.delete(first.getPathInCache());
+
+    var second = new JarExtractor().extractToCache("fake", fileCache);
+
+    assertThat(second.isCacheHit()).isFalse();
+    assertThat(second.getPathInCache()).isEqualTo(first.getPathInCache());
+    assertThat(Files.readString(second.getPathInCache())).isEqualTo("Fake jar for unit tests");
+  }
+
   @Test
   void should_fail_to_extract() {
-    assertThatThrownBy(() -> underTest.extractToTemp("unknown"))
+    var fileCache = FileCache.create(sonarUserHome);
+    assertThatThrownBy(() -> underTest.extractToCache("unknown", fileCache))
       .isInstanceOf(IllegalStateException.class)
       .hasMessage("Fail to extract unknown.jar");
   }
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.internal.cache.CachedFile;
 import org.sonarsource.scanner.lib.internal.cache.FileCache;
 import org.sonarsource.scanner.lib.internal.facade.inprocess.BootstrapIndexDownloader.JarEntry;
 import org.sonarsource.scanner.lib.internal.facade.inprocess.LegacyScannerEngineDownloader.ScannerFileDownloader;
@@ -48,7 +49,7 @@ class LegacyScannerEngineDownloaderTest {
   @Test
   void should_download_jar_files(@TempDir Path tmpDir) {
     var batchJar = tmpDir.resolve("sonar-scanner-java-library-batch.jar");
-    when(jarExtractor.extractToTemp("sonar-scanner-java-library-batch")).thenReturn(batchJar);
+    when(jarExtractor.extractToCache("sonar-scanner-java-library-batch", fileCache)).thenReturn(new CachedFile(batchJar, true));
 
     Collection<JarEntry> jars = new ArrayList<>();
     jars.add(new JarEntry("cpd.jar", "CA124VADFSDS"));
@@ -61,6 +62,7 @@ class LegacyScannerEngineDownloaderTest {
     var files = legacyScannerEngineDownloader.getOrDownload();
 
     assertThat(files).isNotNull();
+    assertThat(files.get(0).getPathInCache()).isEqualTo(batchJar);
     verify(bootstrapIndexDownloader).getIndex();
     verify(fileCache, times(1)).getOrDownload(eq("cpd.jar"), eq("CA124VADFSDS"), eq("MD5"), any(FileCache.Downloader.class));
     verify(fileCache, times(1)).getOrDownload(eq("squid.jar"), eq("34535FSFSDF"), eq("MD5"), any(FileCache.Downloader.class));
@@ -0,0 +1,152 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.facade.inprocess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.internal.cache.FileCache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PackageIndexTest {
+
+  @TempDir
+  private Path temp;
+
+  @Test
+  void should_index_directories_of_jars() throws IOException {
+    var first = jar("first.jar", "org/foo/A.class", "org/foo/bar/", "root.txt");
+    var second = jar("second.jar", "org/baz/C.class");
+
+    var index = PackageIndex.build(List.of(first, second));
+
+    assertThat(index).isNotNull();
+    assertThat(index.mayContain("org/foo/A.class")).isTrue();
+    assertThat(index.mayContain("org/foo/Missing.class")).isTrue();
+    assertThat(index.mayContain("org/baz/C.class")).isTrue();
+    assertThat(index.mayContain("org/foo/bar/")).isTrue();
+    assertThat(index.mayContain("other.txt")).isTrue();
+    assertThat(index.mayContain("com/other/D.class")).isFalse();
+    assertThat(index.mayContain("org/baz/qux/E.class")).isFalse();
+    // Not filtered, as the jar lookup normalizes them
+    assertThat(index.mayContain("/com/other/D.class")).isTrue();
+    assertThat(index.mayContain("com/other/../D.class")).isTrue();
+  }
+
+  @Test
+  void should_compute_directory_of_resources() {
+    assertThat(PackageIndex.directoryOf("org/foo/A.class")).isEqualTo("org/foo/");
+    assertThat(PackageIndex.directoryOf("org/foo/")).isEqualTo("org/");
+    assertThat(PackageIndex.directoryOf("org/foo")).isEqualTo("org/");
+    assertThat(PackageIndex.directoryOf("A.class")).isEmpty();
+    assertThat(PackageIndex.directoryOf("")).isEmpty();
+  }
+
+  @Test
+  void should_not_index_jars_with_class_path() throws IOException {
+    var manifest = new Manifest();
+    manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, "other.jar");
+    var jar = temp.resolve("with-class-path.jar");
+    try (var out = new JarOutputStream(Files.newOutputStream(jar), manifest)) {
+      out.putNextEntry(new JarEntry("org/foo/A.class"));
+      out.closeEntry();
+    }
+
+    assertThat(PackageIndex.build(List.of(jar))).isNull();
+  }
+
+  @Test
+  void should_write_and_read_index() throws IOException {
+    var index = PackageIndex.build(List.of(jar("first.jar", "org/foo/A.class", "root.txt")));
+    var file = temp.resolve("index.txt");
+
+    index.write(file);
+    var read = PackageIndex.read(file);
+
+    assertThat(read).isNotNull();
+    assertThat(read.mayContain("org/foo/B.class")).isTrue();
+    assertThat(read.mayContain("other.txt")).isTrue();
+    assertThat(read.mayContain("org/bar/B.class")).isFalse();
+  }
+
+  @Test
+  void should_ignore_invalid_index() throws IOException {
+    var file = temp.resolve("index.txt");
+
+    Files.writeString(file, "package-index-v1\t1\norg/foo/\t0\n");
+    assertThat(PackageIndex.read(file)).isNull();
+
+    Files.writeString(file, "");
+    assertThat(PackageIndex.read(file)).isNull();
+  }
+
+  @Test
+  void should_store_index_in_cache_and_reuse_it() throws IOException {
+    var fileCache = FileCache.create(temp.resolve("home"));
+    var jars = List.of(jar("home/cache/ABCDE/first.jar", "org/foo/A.class"));
+
+    var built = PackageIndex.loadOrBuild(fileCache, jars);
+    var stored = fileCache.getMetadata(fileCache.metadataKey(jars), PackageIndex.FILENAME);
+    assertThat(built).isNotNull();
+    assertThat(stored).exists();
+
+    // The jar is not read anymore
+    Files.delete(jars.get(0));
+    var reused = PackageIndex.loadOrBuild(fileCache, jars);
+    assertThat(reused).isNotNull();
+    assertThat(reused.mayContain("org/foo/A.class")).isTrue();
+    assertThat(reused.mayContain("org/bar/A.class")).isFalse();
+  }
+
+  @Test
+  void should_not_fail_if_index_cannot_be_built() {
+    var fileCache = mock(FileCache.class);
+    when(fileCache.metadataKey(anyList())).thenReturn("key");
+    when(fileCache.putMetadata(anyString(), anyString(), any())).thenThrow(new IllegalStateException("read-only"));
+
+    assertThat(PackageIndex.loadOrBuild(fileCache, List.of(temp.resolve("missing.jar")))).isNull();
+  }
+
+  private Path jar(String name, String... entries) throws IOException {
+    var jar = temp.resolve(name);
+    Files.createDirectories(jar.getParent());
+    try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+      for (var entry : entries) {
+        out.putNextEntry(new JarEntry(entry));
+        out.closeEntry();
+      }
+    }
+    return jar;
+  }
+}
@@ -26,6 +26,7 @@ import org.sonarsource.scanner.lib.internal.batch.LogOutput;
 import testutils.LogTester;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class Slf4jLogOutputAdapterTest {
 
@@ -48,4 +49,27 @@ class Slf4jLogOutputAdapterTest {
     assertThat(logTester.logs(Level.ERROR)).containsOnly("error");
   }
 
+  @Test
+  void log_batch_of_messages() {
+    var underTest = new Slf4jLogOutputAdapter();
+    underTest.log(new String[] {"info", "debug", "error"}, new LogOutput.Level[] {LogOutput.Level.INFO, LogOutput.Level.DEBUG, LogOutput.Level.ERROR});
+
+    assertThat(logTester.logs()).containsExactly("info", "debug", "error");
+    assertThatThrownBy(() -> underTest.log(new String[] {"info"}, new LogOutput.Level[0]))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void levels_enabled_by_logger() {
+    var underTest = new Slf4jLogOutputAdapter();
+    assertThat(LogOutput.Level.values()).allMatch(underTest::isEnabled);
+
+    logTester.setLevel(Level.INFO);
+    assertThat(underTest.isEnabled(LogOutput.Level.TRACE)).isFalse();
+    assertThat(underTest.isEnabled(LogOutput.Level.DEBUG)).isFalse();
+    assertThat(underTest.isEnabled(LogOutput.Level.INFO)).isTrue();
+    assertThat(underTest.isEnabled(LogOutput.Level.WARN)).isTrue();
+    assertThat(underTest.isEnabled(LogOutput.Level.ERROR)).isTrue();
+  }
+
 }
@@ -0,0 +1,74 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+  private final CircuitBreaker underTest = new CircuitBreaker(2, Duration.ofNanos(100), clock::get);
+
+  @Test
+  void should_open_after_consecutive_failures() {
+    underTest.recordFailure();
+    assertThat(underTest.allowRequest()).isTrue();
+    underTest.recordFailure();
+
+    assertThat(underTest.isOpen()).isTrue();
+    assertThat(underTest.allowRequest()).isFalse();
+  }
+
+  @Test
+  void should_reset_failures_on_success() {
+    underTest.recordFailure();
+    underTest.recordSuccess();
+    underTest.recordFailure();
+
+    assertThat(underTest.isOpen()).isFalse();
+  }
+
+  @Test
+  void should_let_one_call_through_after_open_duration() {
+    underTest.recordFailure();
+    underTest.recordFailure();
+
+    clock.set(100);
+    assertThat(underTest.allowRequest()).isTrue();
+    assertThat(underTest.allowRequest()).isFalse();
+
+    underTest.recordSuccess();
+    assertThat(underTest.allowRequest()).isTrue();
+  }
+
+  @Test
+  void should_never_open_when_disabled() {
+    var disabled = new CircuitBreaker(0, Duration.ofNanos(100), clock::get);
+    for (int i = 0; i < 10; i++) {
+      disabled.recordFailure();
+    }
+
+    assertThat(disabled.allowRequest()).isTrue();
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EndpointSelectorTest {
+
+  @Test
+  void should_not_probe_single_endpoint() {
+    var probes = new AtomicInteger();
+    var underTest = new EndpointSelector(List.of("http://a"), url -> probes.incrementAndGet());
+
+    assertThat(underTest.getRanking()).containsExactly("http://a");
+    assertThat(probes).hasValue(0);
+  }
+
+  @Test
+  void should_rank_by_latency_and_unreachable_last() {
+    var underTest = new EndpointSelector(List.of("http://slow", "http://down", "http://fast"), url -> {
+      switch (url) {
+        case "http://slow":
+          sleep(300);
+          break;
+        case "http://down":
+          throw new IOException("Connection refused");
+        default:
+          break;
+      }
+    });
+
+    assertThat(underTest.getRanking()).containsExactly("http://fast", "http://slow", "http://down");
+  }
+
+  @Test
+  void should_probe_only_once() {
+    var probes = new AtomicInteger();
+    var underTest = new EndpointSelector(List.of("http://a", "http://b"), url -> probes.incrementAndGet());
+
+    underTest.getRanking();
+    underTest.getRanking();
+
+    assertThat(probes).hasValue(2);
+  }
+
+  @Test
+  void should_demote_failing_endpoint() {
+    // Distinct latencies, so that the initial ranking is deterministic
+    var underTest = new EndpointSelector(List.of("http://a", "http://b", "http://c"), url -> {
+      if ("http://b".equals(url)) {
+        sleep(200);
+      } else if ("http://c".equals(url)) {
+        sleep(400);
+      }
+    });
+    assertThat(underTest.getRanking()).containsExactly("http://a", "http://b", "http://c");
+
+    underTest.demote("http://a");
+
+    assertThat(underTest.getRanking()).containsExactly("http://b", "http://c", "http://a");
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
+
+class FileTokenBucketRateLimiterTest {
+
+  @TempDir
+  private Path sonarUserHome;
+
+  private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toNanos(20000));
+
+  @Test
+  void should_share_tokens_through_the_file() throws Exception {
+    var tokenFile = sonarUserHome.resolve("download-rate-limit.tokens");
+    var process1 = new FileTokenBucketRateLimiter(tokenFile, 1000, clock::get);
+    var process2 = new FileTokenBucketRateLimiter(tokenFile, 1000, clock::get);
+
+    assertThat(process1.reserve(1000)).isZero();
+    assertThat(process2.reserve(500)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat(tokenFile).exists();
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+    assertThat(process1.reserve(500)).isZero();
+  }
+
+  @Test
+  void should_take_tokens_from_the_file_in_batches_of_one_second() throws Exception {
+    var tokenFile = sonarUserHome.resolve("download-rate-limit.tokens");
+    var process1 = new FileTokenBucketRateLimiter(tokenFile, 1000, clock::get);
+    var process2 = new FileTokenBucketRateLimiter(tokenFile, 1000, clock::get);
+
+    process1.acquire(100);
+    // The whole second's worth of tokens is taken by the first process
+    assertThat(process2.reserve(500)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+    Files.delete(tokenFile);
+    for (int i = 0; i < 9; i++) {
+      process1.acquire(100);
+    }
+    // Handed out locally, without using the file
+    assertThat(tokenFile).doesNotExist();
+
+    process1.acquire(100);
+    assertThat(tokenFile).exists();
+  }
+
+  @Test
+  void should_ignore_limit_if_file_cannot_be_used() throws Exception {
+    var tokenFile = sonarUserHome.resolve("missing").resolve("download-rate-limit.tokens");
+    var underTest = new FileTokenBucketRateLimiter(tokenFile, 1, clock::get);
+
+    assertThatNoException().isThrownBy(() -> underTest.acquire(1_000_000));
+    assertThatNoException().isThrownBy(() -> underTest.acquire(1_000_000));
+    assertThat(Files.exists(tokenFile)).isFalse();
+  }
+}
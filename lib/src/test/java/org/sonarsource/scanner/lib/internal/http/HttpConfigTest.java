@@ -31,6 +31,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.slf4j.event.Level;
 import org.sonarsource.scanner.lib.internal.util.System2;
 import testutils.LogTester;
@@ -62,6 +64,127 @@ class HttpConfigTest {
     when(system.getProperty("java.home")).thenReturn(System.getProperty("java.home"));
   }
 
+  @Test
+  void system_truststore_timeout_defaults_and_can_be_customized() {
+    assertThat(new HttpConfig(Map.of(), sonarUserHome, system).getSystemTruststoreTimeout()).isEqualTo(HttpConfig.DEFAULT_SYSTEM_TRUSTSTORE_TIMEOUT);
+    assertThat(new HttpConfig(Map.of("sonar.scanner.systemTruststoreTimeout", "3"), sonarUserHome, system).getSystemTruststoreTimeout())
+      .isEqualTo(Duration.ofSeconds(3));
+    assertThat(new HttpConfig(Map.of("sonar.scanner.systemTruststoreTimeout", "PT0.5S"), sonarUserHome, system).getSystemTruststoreTimeout())
+      .isEqualTo(Duration.ofMillis(500));
+  }
+
+  @Test
+  void http_protocol_and_connection_pool_defaults() {
+    var underTest = new HttpConfig(Map.of(), sonarUserHome, system);
+
+    assertThat(underTest.getHttpProtocol()).isEqualTo(HttpProtocol.HTTP2);
+    assertThat(underTest.getConnectionPoolSize()).isEqualTo(HttpConfig.DEFAULT_CONNECTION_POOL_SIZE);
+    assertThat(underTest.getConnectionKeepAlive()).isEqualTo(HttpConfig.DEFAULT_CONNECTION_KEEP_ALIVE);
+  }
+
+  @Test
+  void support_custom_http_protocol_and_connection_pool() {
+    var underTest = new HttpConfig(Map.of(
+      "sonar.scanner.httpProtocol", "H2C",
+      "sonar.scanner.connectionPoolSize", "10",
+      "sonar.scanner.connectionKeepAlive", "30"), sonarUserHome, system);
+
+    assertThat(underTest.getHttpProtocol()).isEqualTo(HttpProtocol.H2C);
+    assertThat(underTest.getConnectionPoolSize()).isEqualTo(10);
+    assertThat(underTest.getConnectionKeepAlive()).isEqualTo(Duration.ofSeconds(30));
+  }
+
+  @Test
+  void should_list_alternative_urls_and_mirrors() {
+    var underTest = new HttpConfig(Map.of(
+      "sonar.host.url", "https://sq.eu/",
+      "sonar.scanner.apiBaseUrl", "https://sq.eu/api/v2",
+      "sonar.scanner.alternativeHostUrls", " https://sq.us/ , ,https://sq.eu",
+      "sonar.scanner.downloadMirrors", "https://mirror.eu/binaries/"), sonarUserHome, system);
+
+    assertThat(underTest.getWebApiBaseUrls()).containsExactly("https://sq.eu", "https://sq.us");
+    assertThat(underTest.getRestApiBaseUrls()).containsExactly("https://sq.eu/api/v2");
+    assertThat(underTest.getDownloadMirrors()).containsExactly("https://mirror.eu/binaries");
+    assertThat(new HttpConfig(Map.of(), sonarUserHome, system).getDownloadMirrors()).isEmpty();
+  }
+
+  @Test
+  void download_rate_limits_are_disabled_by_default_and_expressed_in_kb() {
+    var defaults = new HttpConfig(Map.of(), sonarUserHome, system);
+    assertThat(defaults.getDownloadRateLimit()).isZero();
+    assertThat(defaults.getHostDownloadRateLimit()).isZero();
+
+    var underTest = new HttpConfig(Map.of("sonar.scanner.downloadRateLimit", "100", "sonar.scanner.hostDownloadRateLimit", "2048"), sonarUserHome, system);
+    assertThat(underTest.getDownloadRateLimit()).isEqualTo(100 * 1024);
+    assertThat(underTest.getHostDownloadRateLimit()).isEqualTo(2048 * 1024);
+    assertThat(underTest.getHostDownloadRateLimitFile()).isEqualTo(sonarUserHome.resolve("download-rate-limit.tokens"));
+  }
+
+  @Test
+  void http_transport_defaults_and_can_be_customized() {
+    var defaults = new HttpConfig(Map.of(), sonarUserHome, system);
+    assertThat(defaults.getHttpTransportType()).isEqualTo(HttpTransportType.OKHTTP);
+    assertThat(defaults.useVirtualThreads()).isFalse();
+
+    var underTest = new HttpConfig(Map.of("sonar.scanner.httpTransport", "JDK", "sonar.scanner.httpVirtualThreads", "true"), sonarUserHome, system);
+    assertThat(underTest.getHttpTransportType()).isEqualTo(HttpTransportType.JDK);
+    assertThat(underTest.useVirtualThreads()).isTrue();
+  }
+
+  @Test
+  void fail_on_invalid_http_transport() {
+    var props = Map.of("sonar.scanner.httpTransport", "curl");
+
+    assertThatThrownBy(() -> new HttpConfig(props, sonarUserHome, system))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("sonar.scanner.httpTransport is not valid: curl. Possible values are: okhttp, jdk");
+  }
+
+  @Test
+  void retry_settings_defaults_and_can_be_customized() {
+    var defaults = new HttpConfig(Map.of(), sonarUserHome, system);
+    assertThat(defaults.getMaxRetries()).isEqualTo(HttpConfig.DEFAULT_MAX_RETRIES);
+    assertThat(defaults.getRetryBudget()).isEqualTo(HttpConfig.DEFAULT_RETRY_BUDGET);
+    assertThat(defaults.getRetryInitialBackoff()).isEqualTo(HttpConfig.DEFAULT_RETRY_INITIAL_BACKOFF);
+    assertThat(defaults.getRetryMaxBackoff()).isEqualTo(HttpConfig.DEFAULT_RETRY_MAX_BACKOFF);
+    assertThat(defaults.getCircuitBreakerThreshold()).isEqualTo(HttpConfig.DEFAULT_CIRCUIT_BREAKER_THRESHOLD);
+
+    var underTest = new HttpConfig(Map.of(
+      "sonar.scanner.httpMaxRetries", "1",
+      "sonar.scanner.httpRetryBudget", "2",
+      "sonar.scanner.httpRetryInitialBackoff", "PT0.1S",
+      "sonar.scanner.httpRetryMaxBackoff", "5",
+      "sonar.scanner.httpCircuitBreakerThreshold", "0"), sonarUserHome, system);
+    assertThat(underTest.getMaxRetries()).isEqualTo(1);
+    assertThat(underTest.getRetryBudget()).isEqualTo(2);
+    assertThat(underTest.getRetryInitialBackoff()).isEqualTo(Duration.ofMillis(100));
+    assertThat(underTest.getRetryMaxBackoff()).isEqualTo(Duration.ofSeconds(5));
+    assertThat(underTest.getCircuitBreakerThreshold()).isZero();
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "sonar.scanner.connectionPoolSize, 0, 1",
+    "sonar.scanner.httpMaxRetries, -1, 0",
+    "sonar.scanner.httpRetryBudget, -1, 0"
+  })
+  void fail_on_out_of_range_connection_and_retry_settings(String property, String value, int minValue) {
+    var props = Map.of(property, value);
+
+    assertThatThrownBy(() -> new HttpConfig(props, sonarUserHome, system))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage(property + " is not valid: " + value + ". It must be greater than or equal to " + minValue);
+  }
+
+  @Test
+  void fail_on_invalid_http_protocol() {
+    var props = Map.of("sonar.scanner.httpProtocol", "spdy");
+
+    assertThatThrownBy(() -> new HttpConfig(props, sonarUserHome, system))
+      .isInstanceOf(IllegalArgumentException.class)
+      .hasMessage("sonar.scanner.httpProtocol is not valid: spdy. Possible values are: http2, http1, h2c");
+  }
+
   @Test
   void support_custom_timeouts() {
     int readTimeoutSec = 2000;
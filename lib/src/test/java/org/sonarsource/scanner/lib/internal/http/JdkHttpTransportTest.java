@@ -0,0 +1,163 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import nl.altindag.ssl.SSLFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.sonarsource.scanner.lib.ScannerProperties;
+import org.sonarsource.scanner.lib.internal.InternalProperties;
+import org.sonarsource.scanner.lib.internal.util.System2;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
+import static com.github.tomakehurst.wiremock.client.WireMock.headRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JdkHttpTransportTest {
+
+  @RegisterExtension
+  static WireMockExtension sonarqube = WireMockExtension.newInstance()
+    .options(wireMockConfig().dynamicPort())
+    .build();
+
+  @RegisterExtension
+  static WireMockExtension redirectProxy = WireMockExtension.newInstance()
+    .options(wireMockConfig().dynamicPort())
+    .build();
+
+  @TempDir
+  private Path sonarUserHome;
+
+  @Test
+  void should_get_with_authentication() throws Exception {
+    var underTest = create(Map.of("sonar.token", "some_token"));
+    sonarqube.stubFor(get("/api/foo").willReturn(aResponse().withBody("hello").withHeader("X-Foo", "bar")));
+
+    try (var response = underTest.get(sonarqube.url("/api/foo"), true, "application/json")) {
+      assertThat(response.isSuccessful()).isTrue();
+      assertThat(response.getHeader("X-Foo")).isEqualTo("bar");
+      assertThat(response.getBodyAsString()).isEqualTo("hello");
+    }
+
+    sonarqube.verify(getRequestedFor(urlEqualTo("/api/foo"))
+      .withHeader("Authorization", equalTo("Bearer some_token"))
+      .withHeader("Accept", equalTo("application/json"))
+      .withHeader("User-Agent", equalTo("user/agent")));
+  }
+
+  @Test
+  void should_not_authenticate_when_not_requested() throws Exception {
+    var underTest = create(Map.of("sonar.token", "some_token"));
+    sonarqube.stubFor(get("/api/foo").willReturn(aResponse().withBody("hello")));
+
+    underTest.get(sonarqube.url("/api/foo"), false, null).close();
+
+    sonarqube.verify(getRequestedFor(urlEqualTo("/api/foo")).withoutHeader("Authorization"));
+  }
+
+  @Test
+  void should_return_unsuccessful_responses() throws Exception {
+    var underTest = create(Map.of());
+    sonarqube.stubFor(get("/api/foo").willReturn(aResponse().withStatus(503).withHeader("Retry-After", "5").withBody("down")));
+
+    try (var response = underTest.get(sonarqube.url("/api/foo"), true, null)) {
+      assertThat(response.isSuccessful()).isFalse();
+      assertThat(response.getCode()).isEqualTo(503);
+      assertThat(response.getHeader("Retry-After")).isEqualTo("5");
+      assertThat(response.getBodyAsString()).isEqualTo("down");
+      assertThat(response.getUrl()).hasToString(sonarqube.url("/api/foo"));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {301, 302, 303, 307, 308})
+  void should_follow_redirects_and_preserve_authentication(int code) throws Exception {
+    var underTest = create(Map.of("sonar.login", "some_username", "sonar.password", "some_password"));
+    redirectProxy.stubFor(get("/batch/index.txt")
+      .willReturn(aResponse()
+        .withHeader("Location", sonarqube.baseUrl() + "/batch/index.txt")
+        .withStatus(code)));
+    sonarqube.stubFor(get("/batch/index.txt").willReturn(aResponse().withBody("hello")));
+
+    try (var response = underTest.get(redirectProxy.url("/batch/index.txt"), true, null)) {
+      assertThat(response.getBodyAsString()).isEqualTo("hello");
+      assertThat(response.getUrl()).hasToString(sonarqube.url("/batch/index.txt"));
+    }
+
+    sonarqube.verify(getRequestedFor(urlEqualTo("/batch/index.txt"))
+      .withHeader("Authorization",
+        equalTo("Basic " + Base64.getEncoder().encodeToString("some_username:some_password".getBytes(StandardCharsets.UTF_8)))));
+  }
+
+  @Test
+  void head_should_not_follow_redirects() throws Exception {
+    var underTest = create(Map.of("sonar.token", "some_token"));
+    redirectProxy.stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(302).withHeader("Location", sonarqube.baseUrl() + "/")));
+
+    underTest.head(redirectProxy.url("/"));
+
+    redirectProxy.verify(1, headRequestedFor(urlEqualTo("/")).withoutHeader("Authorization"));
+    sonarqube.verify(0, headRequestedFor(urlEqualTo("/")));
+  }
+
+  @Test
+  void close_should_shutdown_virtual_thread_executor() {
+    var underTest = create(Map.of(ScannerProperties.SONAR_SCANNER_HTTP_VIRTUAL_THREADS, "true"));
+    var executor = underTest.getExecutor();
+    assumeTrue(executor != null, "Virtual threads are not supported by this JVM");
+
+    underTest.close();
+
+    assertThat(executor.isShutdown()).isTrue();
+  }
+
+  @Test
+  void close_should_do_nothing_without_virtual_threads() {
+    var underTest = create(Map.of());
+
+    assertThat(underTest.getExecutor()).isNull();
+    underTest.close();
+  }
+
+  private JdkHttpTransport create(Map<String, String> additionalProps) {
+    Map<String, String> props = new HashMap<>();
+    props.put(ScannerProperties.HOST_URL, sonarqube.baseUrl());
+    props.put(InternalProperties.SCANNER_APP, "user");
+    props.put(InternalProperties.SCANNER_APP_VERSION, "agent");
+    props.putAll(additionalProps);
+    return new JdkHttpTransport(new HttpConfig(props, sonarUserHome, new System2()), SSLFactory.builder().withDefaultTrustMaterial().build());
+  }
+}
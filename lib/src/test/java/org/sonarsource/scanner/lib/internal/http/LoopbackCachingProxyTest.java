@@ -0,0 +1,277 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonarsource.scanner.lib.ScannerProperties;
+import org.sonarsource.scanner.lib.internal.util.System2;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoopbackCachingProxyTest {
+
+  @RegisterExtension
+  static WireMockExtension sonarqube = WireMockExtension.newInstance()
+    .options(wireMockConfig().dynamicPort())
+    .build();
+
+  @TempDir
+  private Path sonarUserHome;
+
+  private final HttpClient engineClient = HttpClient.newHttpClient();
+  private final AtomicLong clock = new AtomicLong();
+  private LoopbackCachingProxy underTest;
+
+  @BeforeEach
+  void start() throws Exception {
+    underTest = newProxy(LoopbackCachingProxy.DEFAULT_MAX_CACHE_SIZE);
+  }
+
+  private LoopbackCachingProxy newProxy(long maxCacheSize) throws IOException {
+    var httpConfig = new HttpConfig(Map.of(ScannerProperties.HOST_URL, sonarqube.baseUrl()), sonarUserHome, new System2());
+    return new LoopbackCachingProxy(OkHttpClientFactory.create(httpConfig), clock::get, maxCacheSize);
+  }
+
+  @AfterEach
+  void stop() {
+    underTest.close();
+  }
+
+  @Test
+  void should_cache_plugin_downloads() throws Exception {
+    sonarqube.stubFor(get("/sonarqube/api/plugins/download?plugin=java")
+      .willReturn(aResponse().withBody("jar").withHeader("Content-Type", "application/java-archive")));
+    var localUrl = underTest.localUrlFor(sonarqube.url("/sonarqube/"));
+
+    var first = send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=java")).header("Authorization", "Bearer token"));
+    var second = send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=java")).header("Authorization", "Bearer token"));
+
+    assertThat(first.statusCode()).isEqualTo(200);
+    assertThat(first.body()).isEqualTo("jar");
+    assertThat(second.statusCode()).isEqualTo(200);
+    assertThat(second.body()).isEqualTo("jar");
+    assertThat(second.headers().firstValue("Content-Type")).hasValue("application/java-archive");
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/sonarqube/api/plugins/download?plugin=java"))
+      .withHeader("Authorization", equalTo("Bearer token")));
+    assertThat(underTest.getRequestCount()).isEqualTo(2);
+    assertThat(underTest.getCacheHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void should_not_cache_other_get_responses() throws Exception {
+    sonarqube.stubFor(get("/api/ce/task?id=1").willReturn(aResponse().withBody("{\"task\":{\"status\":\"PENDING\"}}")));
+    sonarqube.stubFor(get("/api/v2/analysis/engine").willReturn(aResponse().withBody("{\"filename\":\"engine.jar\"}")));
+    var localUrl = underTest.localUrlFor(sonarqube.baseUrl());
+    var apiUrl = underTest.localUrlFor(sonarqube.url("/api/v2"));
+
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/ce/task?id=1")));
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/ce/task?id=1")));
+    send(HttpRequest.newBuilder(URI.create(apiUrl + "/analysis/engine")).header("Accept", "application/json"));
+    send(HttpRequest.newBuilder(URI.create(apiUrl + "/analysis/engine")).header("Accept", "application/json"));
+
+    sonarqube.verify(2, getRequestedFor(urlEqualTo("/api/ce/task?id=1")));
+    sonarqube.verify(2, getRequestedFor(urlEqualTo("/api/v2/analysis/engine")));
+    assertThat(underTest.getCacheHitCount()).isZero();
+  }
+
+  @Test
+  void should_cache_session_api_responses() throws Exception {
+    sonarqube.stubFor(get("/api/settings/values.protobuf?component=p1").willReturn(aResponse().withBody("settings")));
+    sonarqube.stubFor(get("/api/qualityprofiles/search.protobuf?project=p1").willReturn(aResponse().withBody("profiles")));
+    var localUrl = underTest.localUrlFor(sonarqube.baseUrl());
+
+    for (int i = 0; i < 3; i++) {
+      assertThat(send(HttpRequest.newBuilder(URI.create(localUrl + "/api/settings/values.protobuf?component=p1"))).body()).isEqualTo("settings");
+      assertThat(send(HttpRequest.newBuilder(URI.create(localUrl + "/api/qualityprofiles/search.protobuf?project=p1"))).body()).isEqualTo("profiles");
+    }
+
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/api/settings/values.protobuf?component=p1")));
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/api/qualityprofiles/search.protobuf?project=p1")));
+    assertThat(underTest.getCacheHitCount()).isEqualTo(4);
+  }
+
+  @Test
+  void should_only_cache_allowed_endpoints() {
+    assertThat(LoopbackCachingProxy.isCacheable("/analysis/jres/123", "application/octet-stream")).isTrue();
+    assertThat(LoopbackCachingProxy.isCacheable("/analysis/engine", "application/octet-stream")).isTrue();
+    assertThat(LoopbackCachingProxy.isCacheable("/analysis/jres/123", "application/json")).isFalse();
+    assertThat(LoopbackCachingProxy.isCacheable("/analysis/jres", "application/octet-stream")).isFalse();
+    assertThat(LoopbackCachingProxy.isCacheable("/api/plugins/download", null)).isTrue();
+    assertThat(LoopbackCachingProxy.isCacheable("/api/plugins/installed", null)).isTrue();
+    assertThat(LoopbackCachingProxy.isCacheable("/api/rules/list.protobuf", null)).isTrue();
+    assertThat(LoopbackCachingProxy.isCacheable("/api/ce/task", null)).isFalse();
+    assertThat(LoopbackCachingProxy.isCacheable("/batch/issues", null)).isFalse();
+  }
+
+  @Test
+  void should_evict_least_recently_used_responses_beyond_max_size() throws Exception {
+    try (var proxy = newProxy(10)) {
+      for (var plugin : List.of("a", "b", "c")) {
+        sonarqube.stubFor(get("/api/plugins/download?plugin=" + plugin).willReturn(aResponse().withBody(plugin.repeat(4))));
+      }
+      var localUrl = proxy.localUrlFor(sonarqube.baseUrl()) + "/api/plugins/download?plugin=";
+
+      send(HttpRequest.newBuilder(URI.create(localUrl + "a")));
+      send(HttpRequest.newBuilder(URI.create(localUrl + "b")));
+      send(HttpRequest.newBuilder(URI.create(localUrl + "a")));
+      // Evicts b, the least recently used
+      send(HttpRequest.newBuilder(URI.create(localUrl + "c")));
+      send(HttpRequest.newBuilder(URI.create(localUrl + "a")));
+      assertThat(send(HttpRequest.newBuilder(URI.create(localUrl + "b"))).body()).isEqualTo("bbbb");
+
+      sonarqube.verify(1, getRequestedFor(urlEqualTo("/api/plugins/download?plugin=a")));
+      sonarqube.verify(2, getRequestedFor(urlEqualTo("/api/plugins/download?plugin=b")));
+      assertThat(proxy.getCacheHitCount()).isEqualTo(2);
+      assertThat(proxy.getCacheSize()).isLessThanOrEqualTo(10);
+    }
+  }
+
+  @Test
+  void should_honor_cache_control() throws Exception {
+    sonarqube.stubFor(get("/api/plugins/download?plugin=java").willReturn(aResponse().withBody("java").withHeader("Cache-Control", "no-store")));
+    sonarqube.stubFor(get("/api/plugins/download?plugin=xoo").willReturn(aResponse().withBody("xoo").withHeader("Cache-Control", "public, max-age=60")));
+    var localUrl = underTest.localUrlFor(sonarqube.baseUrl());
+
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=java")));
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=java")));
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=xoo")));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(59));
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=xoo")));
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    var expired = send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=xoo")));
+
+    assertThat(expired.body()).isEqualTo("xoo");
+    sonarqube.verify(2, getRequestedFor(urlEqualTo("/api/plugins/download?plugin=java")));
+    sonarqube.verify(2, getRequestedFor(urlEqualTo("/api/plugins/download?plugin=xoo")));
+    assertThat(underTest.getCacheHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void should_compute_expiration_from_cache_control() {
+    assertThat(LoopbackCachingProxy.expiresAt(null, 10)).isEqualTo(Long.MAX_VALUE);
+    assertThat(LoopbackCachingProxy.expiresAt("public", 10)).isEqualTo(Long.MAX_VALUE);
+    assertThat(LoopbackCachingProxy.expiresAt("max-age=2", 10)).isEqualTo(10 + TimeUnit.SECONDS.toNanos(2));
+    assertThat(LoopbackCachingProxy.expiresAt("max-age=99999999999999999999", 10)).isEqualTo(Long.MAX_VALUE);
+    assertThat(LoopbackCachingProxy.expiresAt("max-age=0", 10)).isNull();
+    assertThat(LoopbackCachingProxy.expiresAt("No-Cache", 10)).isNull();
+    assertThat(LoopbackCachingProxy.expiresAt("private, no-store", 10)).isNull();
+  }
+
+  @Test
+  void should_not_share_cached_responses_between_credentials_or_media_types() throws Exception {
+    sonarqube.stubFor(get("/api/plugins/download?plugin=java").willReturn(aResponse().withBody("jar")));
+    var localUrl = underTest.localUrlFor(sonarqube.baseUrl()) + "/api/plugins/download?plugin=java";
+
+    send(HttpRequest.newBuilder(URI.create(localUrl)).header("Authorization", "Bearer token1"));
+    send(HttpRequest.newBuilder(URI.create(localUrl)).header("Authorization", "Bearer token2"));
+    send(HttpRequest.newBuilder(URI.create(localUrl)).header("Authorization", "Bearer token2").header("Accept", "application/x-protobuf"));
+    send(HttpRequest.newBuilder(URI.create(localUrl)));
+
+    sonarqube.verify(4, getRequestedFor(urlEqualTo("/api/plugins/download?plugin=java")));
+    assertThat(underTest.getCacheHitCount()).isZero();
+  }
+
+  @Test
+  void should_never_cache_uploads() throws Exception {
+    sonarqube.stubFor(post("/api/ce/submit").willReturn(aResponse().withBody("task")));
+    var localUrl = underTest.localUrlFor(sonarqube.baseUrl());
+
+    for (int i = 0; i < 2; i++) {
+      var response = send(HttpRequest.newBuilder(URI.create(localUrl + "/api/ce/submit"))
+        .header("Content-Type", "application/octet-stream")
+        .POST(HttpRequest.BodyPublishers.ofString("report")));
+      assertThat(response.body()).isEqualTo("task");
+    }
+
+    sonarqube.verify(2, postRequestedFor(urlEqualTo("/api/ce/submit")).withRequestBody(equalTo("report")));
+    assertThat(underTest.getCacheHitCount()).isZero();
+  }
+
+  @Test
+  void should_not_cache_errors() throws Exception {
+    sonarqube.stubFor(get("/api/plugins/download?plugin=java").willReturn(aResponse().withStatus(503).withBody("down")));
+    var localUrl = underTest.localUrlFor(sonarqube.baseUrl());
+
+    var response = send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=java")));
+    send(HttpRequest.newBuilder(URI.create(localUrl + "/api/plugins/download?plugin=java")));
+
+    assertThat(response.statusCode()).isEqualTo(503);
+    assertThat(response.body()).isEqualTo("down");
+    sonarqube.verify(2, getRequestedFor(urlEqualTo("/api/plugins/download?plugin=java")));
+  }
+
+  @Test
+  void should_expose_each_upstream_under_its_own_path() {
+    var hostUrl = underTest.localUrlFor(sonarqube.baseUrl());
+    var apiUrl = underTest.localUrlFor(sonarqube.url("/api/v2"));
+
+    assertThat(hostUrl).startsWith("http://").isNotEqualTo(apiUrl);
+    assertThat(underTest.localUrlFor(sonarqube.baseUrl() + "/")).isEqualTo(hostUrl);
+  }
+
+  @Test
+  void should_only_serve_requests_knowing_the_secret_path() throws Exception {
+    sonarqube.stubFor(get("/api/server/version").willReturn(aResponse().withBody("10.0")));
+    var localUrl = URI.create(underTest.localUrlFor(sonarqube.baseUrl()));
+    var guessedUrl = localUrl.resolve("/u0/api/server/version");
+
+    var response = send(HttpRequest.newBuilder(guessedUrl));
+
+    assertThat(response.statusCode()).isEqualTo(404);
+    sonarqube.verify(0, getRequestedFor(urlEqualTo("/api/server/version")));
+    assertThat(send(HttpRequest.newBuilder(URI.create(localUrl + "/api/server/version"))).body()).isEqualTo("10.0");
+  }
+
+  @Test
+  void should_return_bad_gateway_when_server_is_unreachable() throws Exception {
+    var localUrl = underTest.localUrlFor("http://localhost:1");
+
+    var response = send(HttpRequest.newBuilder(URI.create(localUrl + "/api/server/version")));
+
+    assertThat(response.statusCode()).isEqualTo(502);
+  }
+
+  private HttpResponse<String> send(HttpRequest.Builder request) throws Exception {
+    return engineClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -33,6 +33,8 @@ import javax.annotation.Nullable;
 import javax.net.ssl.SSLHandshakeException;
 import nl.altindag.ssl.exception.GenericKeyStoreException;
 import nl.altindag.ssl.exception.GenericSecurityException;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.junit.jupiter.api.BeforeEach;
@@ -147,6 +149,35 @@ class OkHttpClientFactoryTest {
     }
   }
 
+  @Test
+  void should_prefer_http2_by_default() {
+    var client = OkHttpClientFactory.create(new HttpConfig(bootstrapProperties, sonarUserHome, system2));
+
+    assertThat(client.protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+  }
+
+  @Test
+  void should_configure_protocols() {
+    bootstrapProperties.put("sonar.scanner.httpProtocol", "h2c");
+    var client = OkHttpClientFactory.create(new HttpConfig(bootstrapProperties, sonarUserHome, system2));
+    assertThat(client.protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    assertThat(OkHttpClientFactory.withPriorKnowledge(client).protocols()).containsExactly(Protocol.H2_PRIOR_KNOWLEDGE);
+    assertThat(OkHttpClientFactory.withPriorKnowledge(client).connectionPool()).isSameAs(client.connectionPool());
+
+    bootstrapProperties.put("sonar.scanner.httpProtocol", "http1");
+    assertThat(OkHttpClientFactory.create(new HttpConfig(bootstrapProperties, sonarUserHome, system2)).protocols())
+      .containsExactly(Protocol.HTTP_1_1);
+  }
+
+  @Test
+  void derived_clients_should_share_the_connection_pool() {
+    bootstrapProperties.put("sonar.scanner.connectionPoolSize", "2");
+    bootstrapProperties.put("sonar.scanner.connectionKeepAlive", "PT10S");
+    var client = OkHttpClientFactory.create(new HttpConfig(bootstrapProperties, sonarUserHome, system2));
+
+    assertThat(client.newBuilder().build().connectionPool()).isSameAs(client.connectionPool());
+  }
+
   @Test
   void should_load_os_certificates_by_default() {
     logTester.setLevel(Level.DEBUG);
@@ -374,6 +405,24 @@ class OkHttpClientFactoryTest {
         .hasStackTraceContaining("CertificateException");
     }
 
+    @Test
+    void it_should_call_https_urls_when_h2c_is_configured() throws IOException {
+      bootstrapProperties.put("sonar.host.url", "http://localhost:9000");
+      bootstrapProperties.put("sonar.scanner.httpProtocol", "h2c");
+      bootstrapProperties.put("sonar.scanner.truststorePath", toPath(requireNonNull(OkHttpClientFactoryTest.class.getResource("/ssl/client-truststore.p12"))).toString());
+      bootstrapProperties.put("sonar.scanner.truststorePassword", "pwdClientWithServerCA");
+      var httpConfig = new HttpConfig(bootstrapProperties, sonarUserHome, system2);
+      var transport = new OkHttpTransport(httpConfig, OkHttpClientFactory.create(httpConfig));
+
+      try (var response = transport.get(sonarqubeMock.url("/batch/index"), false, null)) {
+        assertThat(response.getCode()).isEqualTo(200);
+        assertThat(response.getBodyAsString()).contains("Success");
+      }
+      assertThat(transport.clientFor(HttpUrl.get("http://localhost:9000/api/foo"), true).protocols()).containsExactly(Protocol.H2_PRIOR_KNOWLEDGE);
+      assertThat(transport.clientFor(HttpUrl.get("http://localhost:9001/api/foo"), true).protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+      assertThat(transport.clientFor(HttpUrl.get(sonarqubeMock.url("/batch/index")), false).protocols()).containsExactly(Protocol.HTTP_2, Protocol.HTTP_1_1);
+    }
+
     @Test
     void it_should_trust_server_self_signed_certificate_when_certificate_is_in_truststore() throws IOException {
       bootstrapProperties.put("sonar.host.url", sonarqubeMock.baseUrl());
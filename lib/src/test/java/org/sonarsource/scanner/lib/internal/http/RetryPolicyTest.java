@@ -0,0 +1,79 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+
+  @Test
+  void should_only_retry_transient_status_codes() {
+    assertThat(RetryPolicy.isRetryable(429)).isTrue();
+    assertThat(RetryPolicy.isRetryable(502)).isTrue();
+    assertThat(RetryPolicy.isRetryable(503)).isTrue();
+    assertThat(RetryPolicy.isRetryable(504)).isTrue();
+    assertThat(RetryPolicy.isRetryable(500)).isFalse();
+    assertThat(RetryPolicy.isRetryable(404)).isFalse();
+  }
+
+  @Test
+  void should_backoff_exponentially_with_jitter() {
+    var underTest = new RetryPolicy(5, 100, Duration.ofMillis(100), Duration.ofMillis(350));
+
+    assertThat(underTest.nextDelay(1, null)).hasValueSatisfying(d -> assertThat(d.toMillis()).isBetween(50L, 100L));
+    assertThat(underTest.nextDelay(2, null)).hasValueSatisfying(d -> assertThat(d.toMillis()).isBetween(100L, 200L));
+    assertThat(underTest.nextDelay(3, null)).hasValueSatisfying(d -> assertThat(d.toMillis()).isBetween(175L, 350L));
+    assertThat(underTest.nextDelay(5, null)).hasValueSatisfying(d -> assertThat(d.toMillis()).isBetween(175L, 350L));
+    assertThat(underTest.nextDelay(6, null)).isEmpty();
+  }
+
+  @Test
+  void should_honor_retry_after_unless_greater_than_max_backoff() {
+    var underTest = new RetryPolicy(5, 100, Duration.ofMillis(100), Duration.ofSeconds(10));
+
+    assertThat(underTest.nextDelay(1, Duration.ofSeconds(3))).contains(Duration.ofSeconds(3));
+    assertThat(underTest.nextDelay(1, Duration.ofSeconds(11))).isEmpty();
+  }
+
+  @Test
+  void should_stop_retrying_when_budget_is_exhausted() {
+    var underTest = new RetryPolicy(5, 2, Duration.ofMillis(1), Duration.ofMillis(1));
+
+    assertThat(underTest.nextDelay(1, null)).isPresent();
+    assertThat(underTest.nextDelay(1, null)).isPresent();
+    assertThat(underTest.nextDelay(1, null)).isEmpty();
+  }
+
+  @Test
+  void should_parse_retry_after() {
+    var now = Instant.parse("2025-01-01T10:00:00Z");
+
+    assertThat(RetryPolicy.parseRetryAfter("120", now)).isEqualTo(Duration.ofSeconds(120));
+    assertThat(RetryPolicy.parseRetryAfter("Wed, 01 Jan 2025 10:00:30 GMT", now)).isEqualTo(Duration.ofSeconds(30));
+    assertThat(RetryPolicy.parseRetryAfter("Wed, 01 Jan 2025 09:00:00 GMT", now)).isEqualTo(Duration.ZERO);
+    assertThat(RetryPolicy.parseRetryAfter("-1", now)).isEqualTo(Duration.ZERO);
+    assertThat(RetryPolicy.parseRetryAfter("soon", now)).isNull();
+    assertThat(RetryPolicy.parseRetryAfter(null, now)).isNull();
+  }
+}
@@ -26,6 +26,9 @@ import java.nio.file.Path;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.api.io.TempDir;
@@ -40,8 +43,13 @@ import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
 import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
+import static com.github.tomakehurst.wiremock.client.WireMock.headRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatNoException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class ScannerHttpClientTest {
@@ -197,6 +205,225 @@ class ScannerHttpClientTest {
         equalTo("Basic " + Base64.getEncoder().encodeToString("some_username:some_password".getBytes(StandardCharsets.UTF_8)))));
   }
 
+  @Test
+  void warmUp_should_open_connection_once_per_host_without_authentication() {
+    Map<String, String> props = new HashMap<>();
+    props.put("sonar.token", "some_token");
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), props);
+    sonarqube.stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(200)));
+
+    underTest.warmUp(sonarqube.baseUrl() + "/api/v2").join();
+    underTest.warmUp(sonarqube.baseUrl() + "/some/other/path").join();
+
+    sonarqube.verify(1, headRequestedFor(urlEqualTo("/")).withoutHeader("Authorization"));
+  }
+
+  @Test
+  void warmUp_should_ignore_failures() {
+    ScannerHttpClient underTest = create();
+
+    assertThatNoException().isThrownBy(() -> underTest.warmUp("http://localhost:1/").join());
+    assertThatNoException().isThrownBy(() -> underTest.warmUp("not an url").join());
+  }
+
+  @Test
+  void should_use_jdk_transport(@TempDir Path tmpFolder) throws Exception {
+    var toFile = tmpFolder.resolve("index.txt");
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of("sonar.scanner.httpTransport", "jdk", "sonar.token", "some_token"));
+    answer(HELLO_WORLD);
+
+    assertThat(underTest.callWebApi("/batch/index.txt")).isEqualTo(HELLO_WORLD);
+    underTest.downloadFromWebApi("/batch/index.txt", toFile);
+    assertThat(Files.readString(toFile)).isEqualTo(HELLO_WORLD);
+
+    sonarqube.verify(2, getRequestedFor(anyUrl())
+      .withHeader("Authorization", equalTo("Bearer some_token")));
+  }
+
+  @Test
+  void should_throw_HttpException_with_jdk_transport() {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of("sonar.scanner.httpTransport", "jdk"));
+    answer(HELLO_WORLD, 403);
+
+    assertThatThrownBy(() -> underTest.callWebApi("/batch/index.txt"))
+      .isInstanceOf(HttpException.class)
+      .extracting(e -> ((HttpException) e).getCode()).isEqualTo(403);
+  }
+
+  @Test
+  void should_retry_transient_failures() throws Exception {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of("sonar.scanner.httpRetryInitialBackoff", "PT0.01S"));
+    sonarqube.stubFor(get("/batch/index.txt").inScenario("retry").whenScenarioStateIs(STARTED)
+      .willReturn(aResponse().withStatus(503))
+      .willSetStateTo("rate limited"));
+    sonarqube.stubFor(get("/batch/index.txt").inScenario("retry").whenScenarioStateIs("rate limited")
+      .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "0"))
+      .willSetStateTo("recovered"));
+    sonarqube.stubFor(get("/batch/index.txt").inScenario("retry").whenScenarioStateIs("recovered")
+      .willReturn(aResponse().withBody(HELLO_WORLD)));
+
+    assertThat(underTest.callWebApi("/batch/index.txt")).isEqualTo(HELLO_WORLD);
+    sonarqube.verify(3, getRequestedFor(urlEqualTo("/batch/index.txt")));
+  }
+
+  @Test
+  void should_not_retry_other_failures() {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of("sonar.scanner.httpRetryInitialBackoff", "PT0.01S"));
+    answer(HELLO_WORLD, 500);
+
+    assertThatThrownBy(() -> underTest.callWebApi("/batch/index.txt"))
+      .isInstanceOf(HttpException.class);
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/batch/index.txt")));
+  }
+
+  @Test
+  void should_fail_with_last_error_when_retries_are_exhausted() {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of(
+      "sonar.scanner.httpRetryInitialBackoff", "PT0.01S",
+      "sonar.scanner.httpMaxRetries", "2"));
+    answer(HELLO_WORLD, 502);
+
+    assertThatThrownBy(() -> underTest.callWebApi("/batch/index.txt"))
+      .isInstanceOf(HttpException.class)
+      .extracting(e -> ((HttpException) e).getCode()).isEqualTo(502);
+    sonarqube.verify(3, getRequestedFor(urlEqualTo("/batch/index.txt")));
+  }
+
+  @Test
+  void should_fail_fast_when_server_is_down() {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of(
+      "sonar.scanner.httpRetryInitialBackoff", "PT0.01S",
+      "sonar.scanner.httpMaxRetries", "1",
+      "sonar.scanner.httpCircuitBreakerThreshold", "2"));
+    answer(HELLO_WORLD, 503);
+
+    assertThatThrownBy(() -> underTest.callWebApi("/batch/index.txt"))
+      .isInstanceOf(HttpException.class);
+    assertThatThrownBy(() -> underTest.callWebApi("/batch/index.txt"))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("is considered unavailable after 2 consecutive failures");
+    sonarqube.verify(2, getRequestedFor(urlEqualTo("/batch/index.txt")));
+  }
+
+  @Test
+  void should_not_retry_nor_count_local_write_failures(@TempDir Path tmpFolder) throws Exception {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of(
+      "sonar.scanner.httpRetryInitialBackoff", "PT0.01S",
+      "sonar.scanner.httpCircuitBreakerThreshold", "1"));
+    answer(HELLO_WORLD);
+    // The parent of the target is a file, so the target can't be created
+    var notADirectory = Files.createFile(tmpFolder.resolve("file"));
+    var toFile = notADirectory.resolve("index.txt");
+
+    assertThatThrownBy(() -> underTest.downloadFromWebApi("/batch/index.txt", toFile))
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("Unable to write file");
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/batch/index.txt")));
+
+    // The circuit breaker is still closed
+    assertThat(underTest.callWebApi("/batch/index.txt")).isEqualTo(HELLO_WORLD);
+  }
+
+  @Test
+  void should_fail_over_to_alternative_host() throws Exception {
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of(
+      "sonar.scanner.alternativeHostUrls", redirectProxy.baseUrl(),
+      "sonar.scanner.httpMaxRetries", "0"));
+    sonarqube.stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(200)));
+    redirectProxy.stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(200).withFixedDelay(200)));
+    answer(HELLO_WORLD, 503);
+    redirectProxy.stubFor(get("/batch/index.txt").willReturn(aResponse().withBody(HELLO_WORLD)));
+
+    assertThat(underTest.callWebApi("/batch/index.txt")).isEqualTo(HELLO_WORLD);
+    assertThat(underTest.callWebApi("/batch/index.txt")).isEqualTo(HELLO_WORLD);
+
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/batch/index.txt")));
+    redirectProxy.verify(2, getRequestedFor(urlEqualTo("/batch/index.txt")));
+  }
+
+  @Test
+  void should_download_from_mirror_and_fall_back_to_original_url(@TempDir Path tmpFolder) throws Exception {
+    var toFile = tmpFolder.resolve("jre.tar.gz");
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of("sonar.scanner.downloadMirrors", redirectProxy.baseUrl() + "/mirror/"));
+    redirectProxy.stubFor(head(urlEqualTo("/mirror")).willReturn(aResponse().withStatus(200)));
+    sonarqube.stubFor(head(urlEqualTo("/")).willReturn(aResponse().withStatus(200).withFixedDelay(200)));
+    redirectProxy.stubFor(get("/mirror/jres/jre.tar.gz").willReturn(aResponse().withBody("from mirror")));
+    redirectProxy.stubFor(get("/mirror/jres/other.tar.gz").willReturn(aResponse().withStatus(404)));
+    sonarqube.stubFor(get("/jres/other.tar.gz").willReturn(aResponse().withBody("from origin")));
+
+    underTest.downloadFromExternalUrl(sonarqube.baseUrl() + "/jres/jre.tar.gz", toFile);
+    assertThat(Files.readString(toFile)).isEqualTo("from mirror");
+
+    underTest.downloadFromExternalUrl(sonarqube.baseUrl() + "/jres/other.tar.gz", toFile);
+    assertThat(Files.readString(toFile)).isEqualTo("from origin");
+    sonarqube.verify(0, getRequestedFor(urlEqualTo("/jres/jre.tar.gz")));
+  }
+
+  @Test
+  void download_once_should_not_use_mirrors_nor_retry(@TempDir Path tmpFolder) throws Exception {
+    var toFile = tmpFolder.resolve("jre.tar.gz");
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of(
+      "sonar.scanner.downloadMirrors", redirectProxy.baseUrl() + "/mirror/",
+      "sonar.scanner.httpRetryInitialBackoff", "PT0.01S"));
+    redirectProxy.stubFor(get("/mirror/jres/jre.tar.gz").willReturn(aResponse().withBody("from mirror")));
+    sonarqube.stubFor(get("/jres/jre.tar.gz").willReturn(aResponse().withBody("from origin")));
+    sonarqube.stubFor(get("/jres/other.tar.gz").willReturn(aResponse().withStatus(503)));
+
+    underTest.downloadOnce(sonarqube.baseUrl() + "/jres/jre.tar.gz", toFile);
+    assertThat(Files.readString(toFile)).isEqualTo("from origin");
+    redirectProxy.verify(0, getRequestedFor(urlEqualTo("/mirror/jres/jre.tar.gz")));
+
+    assertThatThrownBy(() -> underTest.downloadOnce(sonarqube.baseUrl() + "/jres/other.tar.gz", toFile))
+      .isInstanceOf(HttpException.class);
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/jres/other.tar.gz")));
+  }
+
+  @Test
+  void should_limit_download_rate(@TempDir Path tmpFolder) throws Exception {
+    var toFile = tmpFolder.resolve("file.bin");
+    // 1 KB/s, with a burst of one second, so downloading 1.5 KB takes at least 0.5 s
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of("sonar.scanner.downloadRateLimit", "1"));
+    sonarqube.stubFor(get("/file.bin").willReturn(aResponse().withBody(new byte[1536])));
+
+    long start = System.nanoTime();
+    underTest.downloadFromExternalUrl(sonarqube.url("/file.bin"), toFile);
+
+    assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+    assertThat(toFile).hasSize(1536);
+  }
+
+  @Test
+  void should_not_retry_download_interrupted_while_waiting_for_rate_limit(@TempDir Path tmpFolder) throws Exception {
+    var toFile = tmpFolder.resolve("file.bin");
+    // 1 KB/s, so downloading 3 KB waits for about 2 s after the first chunk
+    ScannerHttpClient underTest = create(sonarqube.baseUrl(), Map.of(
+      "sonar.scanner.downloadRateLimit", "1",
+      "sonar.scanner.httpRetryInitialBackoff", "PT0.01S"));
+    sonarqube.stubFor(get("/file.bin").willReturn(aResponse().withBody(new byte[3072])));
+    var failure = new AtomicReference<Throwable>();
+    var interruptFlag = new AtomicBoolean();
+
+    var downloader = new Thread(() -> {
+      try {
+        underTest.downloadFromExternalUrl(sonarqube.url("/file.bin"), toFile);
+      } catch (RuntimeException e) {
+        failure.set(e);
+      }
+      interruptFlag.set(Thread.currentThread().isInterrupted());
+    });
+    downloader.start();
+    Thread.sleep(500);
+    downloader.interrupt();
+    downloader.join(10_000);
+
+    assertThat(failure.get())
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessageContaining("was interrupted");
+    assertThat(interruptFlag).isTrue();
+    assertThat(toFile).doesNotExist();
+    sonarqube.verify(1, getRequestedFor(urlEqualTo("/file.bin")));
+  }
+
   private ScannerHttpClient create() {
     return create(sonarqube.baseUrl());
   }
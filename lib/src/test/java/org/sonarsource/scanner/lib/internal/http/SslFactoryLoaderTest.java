@@ -0,0 +1,122 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import nl.altindag.ssl.SSLFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.event.Level;
+import org.sonarsource.scanner.lib.internal.util.System2;
+import testutils.LogTester;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SslFactoryLoaderTest {
+
+  private final Map<String, String> bootstrapProperties = new HashMap<>();
+
+  @RegisterExtension
+  private final LogTester logTester = new LogTester();
+
+  @TempDir
+  private Path sonarUserHome;
+
+  private final System2 system = mock();
+
+  @BeforeEach
+  void prepareMocks() {
+    bootstrapProperties.clear();
+    when(system.getProperty("java.home")).thenReturn(System.getProperty("java.home"));
+  }
+
+  @Test
+  void should_load_ssl_material_in_background() {
+    var underTest = SslFactoryLoader.start(new HttpConfig(bootstrapProperties, sonarUserHome, system));
+
+    assertThat(underTest.get()).isNotNull();
+    assertThat(underTest.getLoadingTime()).isNotNull();
+    assertThat(underTest.getWaitingTime()).isNotNull();
+  }
+
+  @Test
+  void should_fallback_to_jvm_truststore_when_system_truststore_is_too_slow() {
+    bootstrapProperties.put("sonar.scanner.systemTruststoreTimeout", "PT0.1S");
+    var stuck = new CountDownLatch(1);
+    var underTest = new SslFactoryLoader(new HttpConfig(bootstrapProperties, sonarUserHome, system), () -> {
+      try {
+        stuck.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return mock(SSLFactory.class);
+    });
+
+    var sslFactory = underTest.get();
+
+    assertThat(sslFactory).isNotNull();
+    assertThat(sslFactory.getTrustManager()).isPresent();
+    assertThat(underTest.getLoadingTime()).isNotNull();
+    assertThat(logTester.logs(Level.WARN)).anySatisfy(log -> assertThat(log)
+      .startsWith("Loading OS trusted SSL certificates took more than 100ms and was abandoned")
+      .contains("sonar.scanner.systemTruststoreTimeout", "sonar.scanner.skipSystemTruststore=true"));
+  }
+
+  @Test
+  void should_not_time_out_when_system_truststore_is_skipped() {
+    bootstrapProperties.put("sonar.scanner.systemTruststoreTimeout", "PT0.1S");
+    bootstrapProperties.put("sonar.scanner.skipSystemTruststore", "true");
+    var expected = mock(SSLFactory.class);
+    var underTest = new SslFactoryLoader(new HttpConfig(bootstrapProperties, sonarUserHome, system), () -> {
+      sleep(300);
+      return expected;
+    });
+
+    assertThat(underTest.get()).isSameAs(expected);
+    assertThat(logTester.logs(Level.WARN)).isEmpty();
+  }
+
+  @Test
+  void should_rethrow_background_errors() {
+    var underTest = new SslFactoryLoader(new HttpConfig(bootstrapProperties, sonarUserHome, system), () -> {
+      throw new IllegalStateException("boom");
+    });
+
+    assertThatThrownBy(underTest::get)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("boom");
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketRateLimiterTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  @Test
+  void should_allow_a_burst_of_one_second() {
+    var underTest = new TokenBucketRateLimiter(1000, clock::get);
+
+    assertThat(underTest.reserve(1000)).isZero();
+  }
+
+  @Test
+  void should_wait_for_the_debt_to_be_paid_back() {
+    var underTest = new TokenBucketRateLimiter(1000, clock::get);
+
+    underTest.reserve(1000);
+
+    assertThat(underTest.reserve(500)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+  }
+
+  @Test
+  void should_refill_over_time_up_to_one_second() {
+    var underTest = new TokenBucketRateLimiter(1000, clock::get);
+    underTest.reserve(1000);
+
+    clock.set(TimeUnit.MILLISECONDS.toNanos(250));
+    assertThat(underTest.reserve(250)).isZero();
+
+    clock.set(TimeUnit.SECONDS.toNanos(10));
+    assertThat(underTest.reserve(1000)).isZero();
+    assertThat(underTest.reserve(1)).isPositive();
+  }
+
+  @Test
+  void should_share_limiter_per_process() {
+    assertThat(TokenBucketRateLimiter.forProcess(1234)).isSameAs(TokenBucketRateLimiter.forProcess(1234));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.http;
+
+import java.net.URL;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class UrlTemplateArtifactSourceTest {
+
+  private final ScannerHttpClient scannerHttpClient = mock(ScannerHttpClient.class);
+
+  @Test
+  void should_replace_placeholders_or_append_filename() {
+    assertThat(new UrlTemplateArtifactSource("https://repo/sonar/{hash}/{filename}", scannerHttpClient).urlOf("jre.tar.gz", "abc"))
+      .isEqualTo("https://repo/sonar/abc/jre.tar.gz");
+    assertThat(new UrlTemplateArtifactSource("https://repo/sonar/", scannerHttpClient).urlOf("jre.tar.gz", "abc"))
+      .isEqualTo("https://repo/sonar/jre.tar.gz");
+  }
+
+  @Test
+  void should_download_from_template_url() {
+    var underTest = new UrlTemplateArtifactSource("https://repo/sonar/{filename}", scannerHttpClient);
+    var toFile = Path.of("jre.tar.gz");
+
+    assertThat(underTest.fetch("jre.tar.gz", "abc", toFile)).isTrue();
+
+    verify(scannerHttpClient).downloadOnce("https://repo/sonar/jre.tar.gz", toFile);
+  }
+
+  @Test
+  void should_return_false_when_not_found() throws Exception {
+    doThrow(new HttpException(new URL("https://repo/sonar/jre.tar.gz"), 404, "Not Found", null))
+      .when(scannerHttpClient).downloadOnce(anyString(), any());
+    var underTest = new UrlTemplateArtifactSource("https://repo/sonar/{filename}", scannerHttpClient);
+
+    assertThat(underTest.fetch("jre.tar.gz", "abc", Path.of("jre.tar.gz"))).isFalse();
+  }
+
+  @Test
+  void should_fail_on_other_errors() throws Exception {
+    doThrow(new HttpException(new URL("https://repo/sonar/jre.tar.gz"), 401, "Unauthorized", null))
+      .when(scannerHttpClient).downloadOnce(anyString(), any());
+    var underTest = new UrlTemplateArtifactSource("https://repo/sonar/{filename}", scannerHttpClient);
+
+    assertThatThrownBy(() -> underTest.fetch("jre.tar.gz", "abc", Path.of("jre.tar.gz")))
+      .isInstanceOf(HttpException.class);
+  }
+}
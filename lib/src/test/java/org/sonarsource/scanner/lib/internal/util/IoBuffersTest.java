@@ -0,0 +1,122 @@
+/*
+ * SonarScanner Java Library
+ * Copyright (C) 2011-2025 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonarsource.scanner.lib.internal.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IoBuffersTest {
+
+  @TempDir
+  private Path temp;
+
+  @Test
+  void should_reuse_released_buffers() {
+    var buffer = IoBuffers.acquire();
+    buffer.put((byte) 1);
+    IoBuffers.release(buffer);
+
+    // Other tests may have left buffers in the pool
+    var acquired = new ArrayList<ByteBuffer>();
+    var reused = false;
+    for (int i = 0; i < 64 && !reused; i++) {
+      var candidate = IoBuffers.acquire();
+      acquired.add(candidate);
+      reused = candidate == buffer;
+    }
+    acquired.forEach(IoBuffers::release);
+
+    assertThat(reused).isTrue();
+    assertThat(buffer.position()).isZero();
+    assertThat(buffer.remaining()).isEqualTo(IoBuffers.BUFFER_SIZE);
+  }
+
+  @Test
+  void should_not_pool_foreign_buffers() {
+    var foreign = ByteBuffer.allocate(IoBuffers.BUFFER_SIZE);
+    IoBuffers.release(foreign);
+
+    var buffer = IoBuffers.acquire();
+    assertThat(buffer).isNotSameAs(foreign);
+    assertThat(buffer.isDirect()).isTrue();
+    IoBuffers.release(buffer);
+  }
+
+  @Test
+  void should_copy_stream_larger_than_buffer_and_replace_target() throws IOException {
+    var content = randomBytes(IoBuffers.BUFFER_SIZE * 3 + 17);
+    var target = temp.resolve("target");
+    Files.writeString(target, "previous content that is longer than nothing");
+
+    long copied = IoBuffers.copy(new ByteArrayInputStream(content), target);
+
+    assertThat(copied).isEqualTo(content.length);
+    assertThat(target).hasBinaryContent(content);
+  }
+
+  @Test
+  void should_copy_empty_stream() throws IOException {
+    var target = temp.resolve("target");
+
+    assertThat(IoBuffers.copy(new ByteArrayInputStream(new byte[0]), target)).isZero();
+    assertThat(target).isEmptyFile();
+  }
+
+  @Test
+  void should_copy_file() throws IOException {
+    var content = randomBytes(IoBuffers.BUFFER_SIZE + 5);
+    var source = Files.write(temp.resolve("source"), content);
+    var target = Files.writeString(temp.resolve("target"), "previous");
+
+    assertThat(IoBuffers.copy(source, target)).isEqualTo(content.length);
+    assertThat(target).hasBinaryContent(content);
+  }
+
+  @Test
+  void should_transfer_from_current_position_of_file_channel() throws IOException {
+    var source = Files.write(temp.resolve("source"), new byte[] {1, 2, 3, 4, 5});
+    var target = temp.resolve("target");
+
+    try (var in = FileChannel.open(source, StandardOpenOption.READ);
+      var out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      in.position(2);
+      assertThat(IoBuffers.copy(in, out)).isEqualTo(3);
+      assertThat(in.position()).isEqualTo(5);
+    }
+    assertThat(target).hasBinaryContent(new byte[] {3, 4, 5});
+  }
+
+  private static byte[] randomBytes(int length) {
+    var bytes = new byte[length];
+    new Random(42).nextBytes(bytes);
+    return bytes;
+  }
+}